@@ -0,0 +1,149 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instance du plugin montée hors serveur pour les benchmarks.
+ * <p>
+ * {@link JavaPlugin} refuse d'être construit en dehors du chargeur de plugins de Bukkit :
+ * l'instance est donc allouée sans constructeur, puis ses champs sont renseignés comme le ferait
+ * {@code onEnable}, avec la configuration par défaut et une base SQLite dans un dossier temporaire.
+ * Les listeners ne sont pas enregistrés et aucune tâche répétée n'est planifiée : les benchmarks
+ * appellent directement les méthodes mesurées.
+ */
+final class BenchmarkPlugin {
+
+    private BenchmarkPlugin() {
+    }
+
+    /**
+     * Monte le plugin sur le serveur simulé. Les joueurs déjà créés par {@link BukkitStubs#player(String)}
+     * sont chargés dans le cache des statistiques comme à la fin du démarrage, par
+     * {@link StatsCache#install(java.util.Map)} et le thread de lecture de {@link StatsService}.
+     *
+     * @return Le plugin prêt à l'emploi.
+     * @throws Exception Si le plugin ne peut pas être monté.
+     */
+    static LunityCraft_TopLuck create() throws Exception {
+        BukkitStubs.install();
+        File dataFolder = Files.createTempDirectory("topluck-jmh").toFile();
+        LunityCraft_TopLuck plugin = allocate();
+
+        YamlConfiguration config;
+        try (Reader reader = new InputStreamReader(
+                BenchmarkPlugin.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        }
+        set(JavaPlugin.class, plugin, "server", Bukkit.getServer());
+        set(JavaPlugin.class, plugin, "dataFolder", dataFolder);
+        set(JavaPlugin.class, plugin, "newConfig", config);
+        set(JavaPlugin.class, plugin, "isEnabled", true);
+
+        // Champs initialisés à la déclaration, ignorés par l'allocation sans constructeur
+        set(LunityCraft_TopLuck.class, plugin, "leaderboard", new LuckLeaderboard());
+        set(LunityCraft_TopLuck.class, plugin, "playerIndex", new PlayerIndex());
+        PluginMetrics metrics = new PluginMetrics();
+        set(LunityCraft_TopLuck.class, plugin, "metrics", metrics);
+
+        OreRegistry oreRegistry = OreRegistry.fromConfig(config.getConfigurationSection("ores"));
+        set(LunityCraft_TopLuck.class, plugin, "oreRegistry", oreRegistry);
+
+        Class.forName("org.sqlite.JDBC");
+        Storage storage = new SqliteStorage(new File(dataFolder, "data.db"), oreRegistry);
+        storage.initialize();
+        set(LunityCraft_TopLuck.class, plugin, "storage", storage);
+
+        set(LunityCraft_TopLuck.class, plugin, "guiTemplates", new GuiTemplates());
+        set(LunityCraft_TopLuck.class, plugin, "menuListener", new MenuListener(metrics));
+        set(LunityCraft_TopLuck.class, plugin, "skullCache", new SkullCache(256, metrics));
+        set(LunityCraft_TopLuck.class, plugin, "leaderboardMenu", new LeaderboardMenu(plugin));
+        set(LunityCraft_TopLuck.class, plugin, "databaseWriter", new DatabaseWriter(storage, 4096, metrics));
+        set(LunityCraft_TopLuck.class, plugin, "statsService", new StatsService(plugin, 128, 0, 40));
+        LuckScorer luckScorer = new LuckScorer(oreRegistry, 500);
+        set(LunityCraft_TopLuck.class, plugin, "luckScorer", luckScorer);
+        set(LunityCraft_TopLuck.class, plugin, "leaderboardUpdater",
+                new LeaderboardUpdater(plugin.getLeaderboard(), luckScorer, null));
+        set(LunityCraft_TopLuck.class, plugin, "taskScheduler", new BukkitTaskScheduler(plugin));
+        set(LunityCraft_TopLuck.class, plugin, "placedOreStore",
+                new PlacedOreStore(new File(dataFolder, "placed-ores"), oreRegistry));
+        set(LunityCraft_TopLuck.class, plugin, "miningJournal",
+                new MiningJournal(new File(dataFolder, "journal"), config.getInt("journal.segment-records", 65536)));
+
+        StatsCache statsCache = new StatsCache(plugin);
+        set(LunityCraft_TopLuck.class, plugin, "statsCache", statsCache);
+        set(LunityCraft_TopLuck.class, plugin, "cheatListener", new CheatListener(plugin));
+        set(LunityCraft_TopLuck.class, plugin, "state", PluginState.READY);
+        statsCache.install(Collections.<UUID, PlayerStats>emptyMap());
+        awaitLoaded(statsCache);
+        return plugin;
+    }
+
+    /**
+     * Attend que les statistiques de tous les joueurs connectés aient été lues et installées.
+     */
+    private static void awaitLoaded(StatsCache statsCache) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        for (Player player : Bukkit.getServer().getOnlinePlayers()) {
+            while (statsCache.isLoading(player.getUniqueId())) {
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Statistics of " + player.getName() + " were not loaded.");
+                }
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    /**
+     * Arrête les threads du plugin puis supprime son dossier temporaire.
+     *
+     * @param plugin Le plugin monté par {@link #create()}.
+     */
+    static void destroy(LunityCraft_TopLuck plugin) {
+        plugin.onDisable();
+        delete(plugin.getDataFolder());
+    }
+
+    private static LunityCraft_TopLuck allocate() throws Exception {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        return (LunityCraft_TopLuck) allocateInstance.invoke(theUnsafe.get(null), LunityCraft_TopLuck.class);
+    }
+
+    private static void set(Class<?> owner, Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = owner.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de {@link CheatListener#onBlockBreak(BlockBreakEvent)} par événement, sur le thread principal.
+ * <p>
+ * Les événements sont construits à l'avance et parcourus en boucle : un bloc commun, un minerai rare
+ * (comptage des filons et recherche des minerais posés compris) et un bloc non suivi, écarté dès le début.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class BlockBreakBenchmark {
+
+    /** Nombre d'événements préparés par type de bloc (puissance de 2) */
+    private static final int EVENTS = 1024;
+
+    private LunityCraft_TopLuck plugin;
+    private CheatListener listener;
+
+    private final BlockBreakEvent[] commonEvents = new BlockBreakEvent[EVENTS];
+    private final BlockBreakEvent[] rareEvents = new BlockBreakEvent[EVENTS];
+    private final BlockBreakEvent[] untrackedEvents = new BlockBreakEvent[EVENTS];
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Player player = BukkitStubs.player("Miner");
+        plugin = BenchmarkPlugin.create();
+        listener = new CheatListener(plugin);
+
+        World world = BukkitStubs.world("world");
+        listener.registerWorlds(Collections.singletonList(world));
+        for (int i = 0; i < EVENTS; i++) {
+            int x = (i & 31) * 3;
+            int z = (i >> 5) * 3;
+            commonEvents[i] = new BlockBreakEvent(BukkitStubs.block(world, Material.STONE, x, 40, z), player);
+            // Minerais espacés de 3 blocs : chacun ouvre un nouveau filon
+            rareEvents[i] = new BlockBreakEvent(BukkitStubs.block(world, Material.DIAMOND_ORE, x, 12, z), player);
+            untrackedEvents[i] = new BlockBreakEvent(BukkitStubs.block(world, Material.DIRT, x, 64, z), player);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkPlugin.destroy(plugin);
+    }
+
+    @Benchmark
+    public void breakCommon() {
+        listener.onBlockBreak(commonEvents[next++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public void breakRare() {
+        listener.onBlockBreak(rareEvents[next++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public void breakUntracked() {
+        listener.onBlockBreak(untrackedEvents[next++ & (EVENTS - 1)]);
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemFactory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.scheduler.BukkitScheduler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Implémentations légères des interfaces Bukkit utilisées par les benchmarks, sans serveur.
+ * <p>
+ * Chaque objet est un {@link Proxy} qui ne répond qu'aux méthodes appelées par le plugin ;
+ * les autres renvoient la valeur par défaut de leur type. Les valeurs renvoyées sur les chemins
+ * mesurés sont allouées à l'avance, pour que le profiler gc ne compte que les allocations du plugin.
+ */
+final class BukkitStubs {
+
+    /** Joueurs connectés du serveur simulé, par pseudo */
+    private static final Map<String, Player> ONLINE = new LinkedHashMap<>();
+
+    /** Mondes du serveur simulé */
+    private static final List<World> WORLDS = new ArrayList<>();
+
+    /** Voisin de tous les blocs simulés : de la pierre, de luminosité nulle */
+    private static final Block DARK_NEIGHBOUR = proxy(Block.class, new ValuesHandler("Block STONE (neighbour)",
+            Collections.<String, Object>singletonMap("getType", Material.STONE)));
+
+    private BukkitStubs() {
+    }
+
+    /**
+     * Installe le serveur simulé dans {@link Bukkit}, une seule fois par JVM.
+     */
+    static synchronized void install() {
+        if (Bukkit.getServer() != null) return;
+        final ItemFactory itemFactory = proxy(ItemFactory.class, new ItemFactoryHandler());
+        final Logger logger = Logger.getLogger("TopLuck-Stub");
+        final BukkitScheduler scheduler = proxy(BukkitScheduler.class, new SchedulerHandler());
+        Bukkit.setServer(proxy(Server.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getName":
+                    case "getVersion":
+                    case "getBukkitVersion":
+                        return "Stub";
+                    case "getLogger":
+                        return logger;
+                    case "getItemFactory":
+                        return itemFactory;
+                    case "getScheduler":
+                        return scheduler;
+                    case "createInventory":
+                        String title = args.length > 2 ? (String) args[2] : "Chest";
+                        return inventory(args[1] instanceof Integer ? (Integer) args[1] : 27, title, (InventoryHolder) args[0]);
+                    case "getPlayer":
+                    case "getPlayerExact":
+                        return args[0] instanceof String ? ONLINE.get(args[0]) : null;
+                    case "getOnlinePlayers":
+                        return Collections.unmodifiableCollection(ONLINE.values());
+                    case "getWorlds":
+                        return Collections.unmodifiableList(WORLDS);
+                    case "isPrimaryThread":
+                    case "dispatchCommand":
+                        return true;
+                    default:
+                        return objectMethod(proxy, method, args, "Server");
+                }
+            }
+        }));
+    }
+
+    /**
+     * Crée un joueur en mode survie, avec toutes les permissions, et le connecte au serveur simulé.
+     *
+     * @param name Pseudo du joueur.
+     * @return Le joueur.
+     */
+    static Player player(String name) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getName", name);
+        values.put("getDisplayName", name);
+        values.put("getUniqueId", UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes()));
+        values.put("getGameMode", GameMode.SURVIVAL);
+        values.put("hasPermission", true);
+        values.put("isOnline", true);
+        values.put("getServer", Bukkit.getServer());
+        Player player = proxy(Player.class, new ValuesHandler("Player " + name, values));
+        synchronized (BukkitStubs.class) {
+            ONLINE.put(name, player);
+        }
+        return player;
+    }
+
+    /**
+     * Crée un monde sans chunk chargé et l'ajoute au serveur simulé.
+     *
+     * @param name Nom du monde.
+     * @return Le monde.
+     */
+    static World world(String name) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getName", name);
+        values.put("getUID", UUID.nameUUIDFromBytes(name.getBytes()));
+        values.put("getLoadedChunks", new org.bukkit.Chunk[0]);
+        World world = proxy(World.class, new ValuesHandler("World " + name, values));
+        synchronized (BukkitStubs.class) {
+            WORLDS.add(world);
+        }
+        return world;
+    }
+
+    /**
+     * Crée un bloc immobile ; ses coordonnées sont converties une fois pour toutes en {@link Integer}.
+     * Tous ses voisins sont un même bloc de pierre plongé dans le noir.
+     *
+     * @param world Monde du bloc.
+     * @param type  Matériau du bloc.
+     * @param x     Coordonnée X.
+     * @param y     Coordonnée Y.
+     * @param z     Coordonnée Z.
+     * @return Le bloc.
+     */
+    static Block block(World world, Material type, int x, int y, int z) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getWorld", world);
+        values.put("getType", type);
+        values.put("getX", x);
+        values.put("getY", y);
+        values.put("getZ", z);
+        values.put("getRelative", DARK_NEIGHBOUR);
+        return proxy(Block.class, new ValuesHandler("Block " + type + " " + x + "," + y + "," + z, values));
+    }
+
+    /**
+     * Crée un inventaire simulé qui conserve ses items sans les copier.
+     *
+     * @param size   Nombre d'emplacements.
+     * @param title  Titre de l'inventaire.
+     * @param holder Propriétaire de l'inventaire, éventuellement {@code null}.
+     * @return L'inventaire.
+     */
+    static Inventory inventory(int size, String title, InventoryHolder holder) {
+        return proxy(Inventory.class, new InventoryHandler(size, title, holder));
+    }
+
+    /**
+     * Crée la vue d'un inventaire ouvert par un joueur, pour construire des événements de clic.
+     *
+     * @param top    Inventaire affiché en haut.
+     * @param player Joueur qui consulte l'inventaire.
+     * @return La vue.
+     */
+    static InventoryView view(final Inventory top, final Player player) {
+        final Inventory bottom = inventory(36, "Inventory", player);
+        return new InventoryView() {
+            @Override
+            public Inventory getTopInventory() {
+                return top;
+            }
+
+            @Override
+            public Inventory getBottomInventory() {
+                return bottom;
+            }
+
+            @Override
+            public HumanEntity getPlayer() {
+                return player;
+            }
+
+            @Override
+            public InventoryType getType() {
+                return InventoryType.CHEST;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(BukkitStubs.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * Répond aux méthodes de {@link Object} et renvoie la valeur par défaut pour toutes les autres.
+     */
+    private static Object objectMethod(Object proxy, Method method, Object[] args, String description) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return description;
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+
+    /**
+     * Renvoie une valeur fixe par nom de méthode.
+     */
+    private static final class ValuesHandler implements InvocationHandler {
+
+        private final String description;
+        private final Map<String, Object> values;
+
+        private ValuesHandler(String description, Map<String, Object> values) {
+            this.description = description;
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Object value = values.get(method.getName());
+            return value != null ? value : objectMethod(proxy, method, args, description);
+        }
+    }
+
+    /**
+     * Planificateur sans tick : les tâches ponctuelles s'exécutent immédiatement sur le thread appelant,
+     * les tâches répétées ne sont jamais lancées.
+     */
+    private static final class SchedulerHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "runTask":
+                case "runTaskLater":
+                case "runTaskAsynchronously":
+                case "runTaskLaterAsynchronously":
+                    ((Runnable) args[1]).run();
+                    return null;
+                default:
+                    return objectMethod(proxy, method, args, "Scheduler");
+            }
+        }
+    }
+
+    /**
+     * Inventaire réduit à un tableau d'items.
+     */
+    private static final class InventoryHandler implements InvocationHandler {
+
+        private final ItemStack[] contents;
+        private final String title;
+        private final Integer size;
+        private final InventoryHolder holder;
+
+        private InventoryHandler(int size, String title, InventoryHolder holder) {
+            this.contents = new ItemStack[size];
+            this.title = title;
+            this.size = size;
+            this.holder = holder;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getName":
+                case "getTitle":
+                    return title;
+                case "getSize":
+                    return size;
+                case "getHolder":
+                    return holder;
+                case "getItem":
+                    return contents[(Integer) args[0]];
+                case "setItem":
+                    contents[(Integer) args[0]] = (ItemStack) args[1];
+                    return null;
+                case "getContents":
+                    return contents.clone();
+                case "setContents":
+                    ItemStack[] items = (ItemStack[]) args[0];
+                    System.arraycopy(items, 0, contents, 0, Math.min(items.length, contents.length));
+                    return null;
+                case "getType":
+                    return InventoryType.CHEST;
+                case "getViewers":
+                    return Collections.emptyList();
+                default:
+                    return objectMethod(proxy, method, args, "Inventory " + title);
+            }
+        }
+    }
+
+    /**
+     * Fabrique des métadonnées d'items : des {@link MetaHandler}, de type {@link SkullMeta} pour les têtes.
+     */
+    private static final class ItemFactoryHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "getItemMeta":
+                    return meta(args[0] == Material.SKULL_ITEM, new HashMap<String, Object>());
+                case "isApplicable":
+                    return true;
+                case "asMetaFor":
+                    return args[0];
+                case "equals":
+                    if (args.length == 1) return proxy == args[0];
+                    return args[0] == null ? args[1] == null : args[0].equals(args[1]);
+                default:
+                    return objectMethod(proxy, method, args, "ItemFactory");
+            }
+        }
+    }
+
+    private static ItemMeta meta(boolean skull, Map<String, Object> properties) {
+        Class<?> type = skull ? SkullMeta.class : ItemMeta.class;
+        return (ItemMeta) Proxy.newProxyInstance(BukkitStubs.class.getClassLoader(), new Class<?>[]{type},
+                new MetaHandler(skull, properties));
+    }
+
+    /**
+     * Métadonnées d'item stockées comme des propriétés : setX / getX / hasX.
+     */
+    private static final class MetaHandler implements InvocationHandler {
+
+        private final boolean skull;
+        private final Map<String, Object> properties;
+
+        private MetaHandler(boolean skull, Map<String, Object> properties) {
+            this.skull = skull;
+            this.properties = properties;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("clone")) {
+                return meta(skull, new HashMap<>(properties));
+            }
+            if (name.equals("equals")) {
+                if (!(args[0] instanceof ItemMeta) || !Proxy.isProxyClass(args[0].getClass())) return false;
+                InvocationHandler other = Proxy.getInvocationHandler(args[0]);
+                return other instanceof MetaHandler && properties.equals(((MetaHandler) other).properties);
+            }
+            if (name.equals("hashCode")) {
+                return properties.hashCode();
+            }
+            if (name.startsWith("set") && args != null && args.length == 1) {
+                properties.put(name.substring(3), args[0]);
+                return method.getReturnType() == boolean.class ? true : null;
+            }
+            if (name.startsWith("get") && args == null && properties.containsKey(name.substring(3))) {
+                return properties.get(name.substring(3));
+            }
+            if (name.startsWith("has") && args == null) {
+                return properties.get(name.substring(3)) != null;
+            }
+            return objectMethod(proxy, method, args, "ItemMeta " + properties);
+        }
+    }
+}
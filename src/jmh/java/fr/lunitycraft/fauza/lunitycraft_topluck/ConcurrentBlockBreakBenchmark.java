@@ -0,0 +1,112 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Casses de blocs simultanées de plusieurs joueurs, comme sur un serveur à régions (Folia) où chaque
+ * région avance sur son propre thread.
+ * <p>
+ * Tous les threads partagent le même plugin (score de population, journal, classement, cache des
+ * statistiques) ; chaque thread joue un joueur différent, qui mine dans sa propre zone. Le débit total
+ * doit croître avec le nombre de threads ({@code -t}) tant que les compteurs partagés ne sont pas
+ * disputés. Le {@link LeaderboardUpdater} n'est pas vidé : chaque joueur y reste signalé, comme entre
+ * deux ticks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+public class ConcurrentBlockBreakBenchmark {
+
+    /** Nombre de joueurs connectés, au moins égal au nombre de threads mesurés */
+    private static final int PLAYERS = 64;
+
+    /** Nombre d'événements préparés par joueur et par type de bloc (puissance de 2) */
+    private static final int EVENTS = 1024;
+
+    /**
+     * Plugin partagé par tous les threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        private LunityCraft_TopLuck plugin;
+        private CheatListener listener;
+        private World world;
+        private final Player[] players = new Player[PLAYERS];
+        private final AtomicInteger nextPlayer = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BukkitStubs.install();
+            // Joueurs connectés avant le montage du plugin, qui charge leurs statistiques
+            for (int i = 0; i < PLAYERS; i++) {
+                players[i] = BukkitStubs.player("Miner" + i);
+            }
+            plugin = BenchmarkPlugin.create();
+            listener = new CheatListener(plugin);
+            world = BukkitStubs.world("world");
+            listener.registerWorlds(Collections.singletonList(world));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            BenchmarkPlugin.destroy(plugin);
+        }
+    }
+
+    /**
+     * Joueur d'un thread, avec ses événements préparés.
+     */
+    @State(Scope.Thread)
+    public static class Miner {
+
+        private final BlockBreakEvent[] commonEvents = new BlockBreakEvent[EVENTS];
+        private final BlockBreakEvent[] rareEvents = new BlockBreakEvent[EVENTS];
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) {
+            int index = server.nextPlayer.getAndIncrement() % PLAYERS;
+            Player player = server.players[index];
+            // Zone de 96 × 96 blocs propre à chaque joueur
+            int originX = index * 1024;
+            for (int i = 0; i < EVENTS; i++) {
+                int x = originX + (i & 31) * 3;
+                int z = (i >> 5) * 3;
+                commonEvents[i] = new BlockBreakEvent(BukkitStubs.block(server.world, Material.STONE, x, 40, z), player);
+                rareEvents[i] = new BlockBreakEvent(BukkitStubs.block(server.world, Material.DIAMOND_ORE, x, 12, z), player);
+            }
+        }
+    }
+
+    @Benchmark
+    public void breakCommon(Server server, Miner miner) {
+        server.listener.onBlockBreak(miner.commonEvents[miner.next++ & (EVENTS - 1)]);
+    }
+
+    @Benchmark
+    public void breakRare(Server server, Miner miner) {
+        server.listener.onBlockBreak(miner.rareEvents[miner.next++ & (EVENTS - 1)]);
+    }
+}
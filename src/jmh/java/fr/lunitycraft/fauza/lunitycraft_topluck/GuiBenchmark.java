@@ -0,0 +1,94 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction des menus sur le thread principal : /topluck &lt;joueur&gt; avec des statistiques en mémoire
+ * ({@link TopLuckCommand}), une page du classement ({@link LeaderboardMenu}), le clic sur une tête
+ * qui ouvre les options du joueur et le clic dans un coffre ordinaire, écarté par le {@link MenuListener}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class GuiBenchmark {
+
+    private static final String[] TARGET = {"Target"};
+
+    private LunityCraft_TopLuck plugin;
+    private Player viewer;
+    private TopLuckCommand command;
+    private MenuListener menuListener;
+    private InventoryClickEvent headClick;
+    private InventoryClickEvent chestClick;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        viewer = BukkitStubs.player("Staff");
+        BukkitStubs.player(TARGET[0]);
+        plugin = BenchmarkPlugin.create();
+        command = new TopLuckCommand(plugin);
+        menuListener = plugin.getMenuListener();
+
+        // Classement de quelques pages, hors des identifiants des joueurs connectés
+        for (int i = 0; i < 1000; i++) {
+            plugin.getLeaderboard().update(100 + i, "Player" + i, i / 100.0, i / 1000.0);
+        }
+
+        // Menu Top Luck ouvert par la commande, dont la tête reste cliquable à chaque itération
+        command.onCommand(viewer, null, "topluck", TARGET);
+        Inventory topLuck = menuListener.getSession(viewer).getInventory();
+        headClick = new InventoryClickEvent(BukkitStubs.view(topLuck, viewer), InventoryType.SlotType.CONTAINER,
+                GuiTemplates.HEAD_SLOT, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+
+        Inventory chest = BukkitStubs.inventory(27, "Chest", null);
+        chestClick = new InventoryClickEvent(BukkitStubs.view(chest, viewer), InventoryType.SlotType.CONTAINER,
+                4, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkPlugin.destroy(plugin);
+    }
+
+    @Benchmark
+    public boolean openPlayerMenu() {
+        return command.onCommand(viewer, null, "topluck", TARGET);
+    }
+
+    @Benchmark
+    public void openLeaderboardPage() {
+        plugin.getLeaderboardMenu().open(viewer, 3);
+    }
+
+    @Benchmark
+    public boolean clickPlayerHead() {
+        menuListener.onInventoryClick(headClick);
+        return headClick.isCancelled();
+    }
+
+    @Benchmark
+    public boolean clickChest() {
+        menuListener.onInventoryClick(chestClick);
+        return chestClick.isCancelled();
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mise à jour du score et du ratio d'un joueur après un bloc suivi : calcul du score
+ * par {@link LuckScorer} et repositionnement dans un {@link LuckLeaderboard} déjà rempli.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class LeaderboardBenchmark {
+
+    /** Nombre de joueurs classés */
+    @Param({"1000", "100000"})
+    public int players;
+
+    private OreRegistry oreRegistry;
+    private LuckScorer scorer;
+    private LuckLeaderboard leaderboard;
+
+    /** Statistiques d'un échantillon de joueurs, parcourues en boucle */
+    private PlayerStats[] sample;
+
+    private OreCategory diamond;
+    private OreCategory common;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        try (Reader reader = new InputStreamReader(
+                LeaderboardBenchmark.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            oreRegistry = OreRegistry.fromConfig(YamlConfiguration.loadConfiguration(reader).getConfigurationSection("ores"));
+        }
+        diamond = oreRegistry.getCategory("diamond");
+        common = oreRegistry.getCategory("common");
+        scorer = new LuckScorer(oreRegistry, 500);
+        leaderboard = new LuckLeaderboard();
+
+        Random random = new Random(42);
+        PlayerStats[] all = new PlayerStats[players];
+        long[] population = new long[oreRegistry.size()];
+        long populationTotal = 0;
+        for (int i = 0; i < players; i++) {
+            int id = i + 1;
+            PlayerStats stats = new PlayerStats(id, new UUID(0, id), "Player" + id, oreRegistry.size());
+            for (OreCategory category : oreRegistry.getCategories()) {
+                long count = category.isRare() ? random.nextInt(40) : 1000 + random.nextInt(20000);
+                stats.load(category, count, count, 0);
+                stats.loadTotal(count);
+                population[category.getIndex()] += count;
+                populationTotal += count;
+            }
+            all[i] = stats;
+        }
+        for (OreCategory category : oreRegistry.getCategories()) {
+            scorer.seed(category, population[category.getIndex()]);
+        }
+        scorer.seedTotal(populationTotal);
+
+        // Les scores dépendent des taux de référence, connus une fois toute la population semée
+        for (PlayerStats stats : all) {
+            leaderboard.update(stats.getPlayerId(), stats.getPlayerName(), scorer.score(stats), stats.getRatio());
+        }
+        sample = Arrays.copyOf(all, Integer.highestOneBit(Math.min(players, 1024)));
+    }
+
+    @Benchmark
+    public int recordCommon() {
+        return update(common);
+    }
+
+    @Benchmark
+    public int recordRare() {
+        return update(diamond);
+    }
+
+    @Benchmark
+    public int rank() {
+        return leaderboard.rank(sample[next++ & (sample.length - 1)].getPlayerId());
+    }
+
+    /**
+     * Chemin de {@link CheatListener} une fois les statistiques du joueur trouvées, sans le suivi des filons.
+     */
+    private int update(OreCategory category) {
+        PlayerStats stats = sample[next++ & (sample.length - 1)];
+        stats.record(category, 1.0, 0, 0, 0, -1, System.currentTimeMillis());
+        scorer.record(category);
+        leaderboard.update(stats.getPlayerId(), stats.getPlayerName(), scorer.score(stats), stats.getRatio());
+        return leaderboard.size();
+    }
+}
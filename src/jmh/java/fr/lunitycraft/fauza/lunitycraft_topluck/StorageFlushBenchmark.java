@@ -0,0 +1,99 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Écriture d'un vidage par le {@link DatabaseWriter} dans une base temporaire : une transaction par appel,
+ * avec les upserts additifs de tous les joueurs modifiés. Le paramètre "players" correspond au nombre
+ * de joueurs connectés ayant miné depuis le vidage précédent ; "backend" choisit entre le fichier SQLite
+ * (WAL) et le {@link MySqlStorage} sur une base H2 embarquée en mode de compatibilité MySQL.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class StorageFlushBenchmark {
+
+    /** Nombre de joueurs écrits par transaction */
+    @Param({"1", "50", "500"})
+    public int players;
+
+    /** Stockage : "sqlite" ou "h2" (syntaxe MySQL/MariaDB) */
+    @Param({"sqlite", "h2"})
+    public String backend;
+
+    private LunityCraft_TopLuck plugin;
+    private DatabaseWriter writer;
+
+    /** Stockage H2, {@code null} pour SQLite qui utilise celui du plugin */
+    private Storage serverStorage;
+
+    /** Deltas d'un vidage ; identifiants distincts, donc jamais fusionnés ni modifiés par l'écriture */
+    private List<StatsDelta> deltas;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        plugin = BenchmarkPlugin.create();
+        writer = plugin.getDatabaseWriter();
+        if ("h2".equals(backend)) {
+            serverStorage = new MySqlStorage("jdbc:h2:file:" + new File(plugin.getDataFolder(), "h2").getAbsolutePath()
+                    + ";MODE=MySQL;NON_KEYWORDS=DAY", "sa", "", 4, plugin.getOreRegistry());
+            serverStorage.initialize();
+            writer = new DatabaseWriter(serverStorage, 4096, plugin.getMetrics());
+        }
+
+        int categories = plugin.getOreRegistry().size();
+        int today = (int) (System.currentTimeMillis() / TimeUnit.DAYS.toMillis(1));
+        deltas = new ArrayList<>(players);
+        for (int id = 1; id <= players; id++) {
+            long[] counts = new long[categories];
+            double[] weighted = new double[categories];
+            long[] veins = new long[categories];
+            OreProfile profile = new OreProfile(categories);
+            for (OreCategory category : plugin.getOreRegistry().getCategories()) {
+                counts[category.getIndex()] = category.isRare() ? 1 : 120;
+                weighted[category.getIndex()] = counts[category.getIndex()];
+                veins[category.getIndex()] = category.isRare() ? 1 : 0;
+                for (int i = 0; i < counts[category.getIndex()]; i++) {
+                    profile.record(category.getIndex(), 12, category.isRare() ? 0 : -1);
+                }
+            }
+            deltas.add(new StatsDelta(id, new UUID(0, id), "Player" + id, 123, counts, weighted, veins, profile,
+                    Collections.singletonMap(today, counts.clone()), 0.01, 0.5));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (serverStorage != null) {
+            writer.shutdown(Collections.<StatsDelta>emptyList());
+            serverStorage.close();
+        }
+        BenchmarkPlugin.destroy(plugin);
+    }
+
+    @Benchmark
+    public long flush() {
+        writer.write(deltas);
+        return writer.getCommittedBatches();
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+
+/**
+ * Planification sur un serveur Bukkit classique : le thread global et celui de chaque joueur
+ * sont le thread principal.
+ */
+public class BukkitTaskScheduler implements TaskScheduler {
+
+    /** Plugin propriétaire des tâches */
+    private final Plugin plugin;
+
+    /**
+     * Constructeur du planificateur.
+     *
+     * @param plugin Plugin propriétaire des tâches.
+     */
+    public BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        scheduler().runTask(plugin, task);
+    }
+
+    @Override
+    public void runGlobalLater(Runnable task, long delayTicks) {
+        scheduler().runTaskLater(plugin, task, delayTicks);
+    }
+
+    @Override
+    public void runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        scheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public void runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        scheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks);
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task, long delayTicks) {
+        scheduler().runTaskLater(plugin, () -> {
+            if (player.isOnline()) task.run();
+        }, delayTicks);
+    }
+
+    private BukkitScheduler scheduler() {
+        return plugin.getServer().getScheduler();
+    }
+}
@@ -4,26 +4,81 @@
  */
 package fr.lunitycraft.fauza.lunitycraft_topluck;
 
+import org.bukkit.GameMode;
 import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.entity.Player;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Classe qui gère les événements liés à la casse de blocs et enregistre
- * les statistiques des joueurs dans une base de données.
+ * Classe qui gère les événements liés à la casse de blocs et met à jour
+ * les statistiques des joueurs conservées en mémoire.
+ * Pendant le démarrage du plugin, les casses sont mises en attente puis rejouées
+ * lorsque le stockage est prêt.
+ * <p>
+ * Sur un serveur à régions (Folia), les casses de joueurs différents arrivent en parallèle sur les
+ * threads de leurs régions : les statistiques d'un joueur ne sont modifiées que par son propre thread,
+ * les compteurs partagés sont sans verrou et le classement est mis à jour par le {@link LeaderboardUpdater}.
  */
 public class CheatListener implements Listener {
 
+    /** Nombre maximal de casses mises en attente, tous joueurs confondus */
+    private static final int MAX_BUFFERED = 100_000;
+
+    /** Nombre maximal de casses mises en attente par joueur pendant le chargement de ses statistiques */
+    private static final int MAX_HELD_PER_PLAYER = 10_000;
+
+    /** Faces voisines d'un bloc, pour mesurer la luminosité autour d'un minerai */
+    private static final BlockFace[] NEIGHBOURS = {
+            BlockFace.UP, BlockFace.DOWN, BlockFace.NORTH, BlockFace.SOUTH, BlockFace.EAST, BlockFace.WEST
+    };
+
     /** Référence à l'instance principale du plugin */
     private final LunityCraft_TopLuck plugin;
 
+    /** Classification des blocs suivis */
+    private final OreRegistry oreRegistry;
+
+    /** Score d'anomalie, mis à jour avec chaque bloc suivi */
+    private final LuckScorer scorer;
+
+    /** Mises à jour du classement, regroupées par tick */
+    private final LeaderboardUpdater leaderboardUpdater;
+
+    /** Blocs suivis posés par les joueurs */
+    private final PlacedOreStore placedOres;
+
+    /** Journal des minerais rares cassés, {@code null} s'il est désactivé ou en erreur */
+    private volatile MiningJournal journal;
+
+    /** Nombre de casses en attente, tous joueurs confondus */
+    private final AtomicInteger bufferedCount = new AtomicInteger();
+
+    /** Indique si des casses ont été ignorées faute de place */
+    private volatile boolean bufferFull;
+
+    /**
+     * Casses reçues pendant le démarrage ou le chargement des statistiques d'un joueur, dans l'ordre,
+     * par UUID ; chaque liste n'est lue et modifiée que sur le thread de son joueur
+     */
+    private final Map<UUID, List<PendingBreak>> held = new ConcurrentHashMap<>();
+
+    /** Durée du traitement de chaque casse */
+    private final Histogram latency;
+
     /**
      * Constructeur pour initialiser le listener avec l'instance du plugin.
      *
@@ -31,119 +86,256 @@ public class CheatListener implements Listener {
      */
     public CheatListener(LunityCraft_TopLuck plugin) {
         this.plugin = plugin;
+        this.oreRegistry = plugin.getOreRegistry();
+        this.scorer = plugin.getLuckScorer();
+        this.leaderboardUpdater = plugin.getLeaderboardUpdater();
+        this.placedOres = plugin.getPlacedOreStore();
+        this.journal = plugin.getMiningJournal();
+        this.latency = plugin.getMetrics().getBlockBreak();
     }
 
     /**
      * Gestionnaire d'événement pour la casse de blocs. Met à jour les statistiques
-     * des joueurs dans une base de données en fonction du type de bloc cassé.
+     * en mémoire du joueur en fonction de la catégorie du bloc cassé ; l'écriture en base
+     * est différée et assurée par {@link StatsCache#flushDirty()}.
+     * Les blocs non suivis sont écartés avant tout autre traitement ; les blocs suivis posés
+     * par un joueur, rares comme communs, et les joueurs en mode créatif ne sont pas comptés.
+     * Chaque minerai rare compté est ajouté au {@link MiningJournal}.
+     * La durée du traitement est enregistrée dans {@link PluginMetrics#getBlockBreak()}.
      *
      * @param event L'événement de casse de bloc.
      */
-    @EventHandler
+    @EventHandler(ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        Player player = event.getPlayer();
-        Material blockType = event.getBlock().getType();
-        Connection connection = plugin.getDatabaseConnection();
+        long start = System.nanoTime();
+        handleBlockBreak(event);
+        latency.record(System.nanoTime() - start);
+    }
 
-        // Vérifie si la connexion à la base de données est établie
-        if (connection == null) {
-            System.out.println("Failed to establish database connection.");
+    private void handleBlockBreak(BlockBreakEvent event) {
+        Block block = event.getBlock();
+        Material blockType = block.getType();
+        OreCategory category = oreRegistry.getCategory(blockType);
+        if (category == null) {
             return;
         }
 
-        try {
-            // Vérifie si le joueur existe déjà dans la base de données
-            String checkQuery = "SELECT player_name FROM player_data WHERE player_name = ?";
-            try (PreparedStatement checkStmt = connection.prepareStatement(checkQuery)) {
-                checkStmt.setString(1, player.getName());
-                ResultSet resultSet = checkStmt.executeQuery();
-
-                // Si le joueur n'existe pas, insère un nouvel enregistrement
-                if (!resultSet.next()) {
-                    String insertQuery = "INSERT INTO player_data (player_name, total_blocks, diamond_blocks, gold_blocks, emerald_blocks, common_blocks, rare_to_common_ratio) VALUES (?, 1, 0, 0, 0, 0, 0.0)";
-                    try (PreparedStatement insertStmt = connection.prepareStatement(insertQuery)) {
-                        insertStmt.setString(1, player.getName());
-                        insertStmt.executeUpdate();
-                    }
-                } else {
-                    // Sinon, met à jour le nombre total de blocs cassés
-                    String updateQuery = "UPDATE player_data SET total_blocks = total_blocks + 1 WHERE player_name = ?";
-                    try (PreparedStatement updateStmt = connection.prepareStatement(updateQuery)) {
-                        updateStmt.setString(1, player.getName());
-                        updateStmt.executeUpdate();
-                    }
-                }
+        // Bloc posé par un joueur : oublié à sa casse et jamais compté
+        if (placedOres.removePlaced(block)) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        if (player.getGameMode() == GameMode.CREATIVE) {
+            return;
+        }
+
+        // Stockage en cours d'ouverture : la casse est rejouée à l'installation des statistiques du joueur
+        if (!plugin.isReady()) {
+            if (plugin.getState() == PluginState.STARTING) {
+                hold(player, category, blockType, block);
             }
+            return;
+        }
 
-            // Mise à jour des statistiques spécifiques au type de bloc
-            if (blockType == Material.DIAMOND_ORE) {
-                incrementBlockCount(connection, player.getName(), "diamond_blocks");
-            } else if (blockType == Material.GOLD_ORE) {
-                incrementBlockCount(connection, player.getName(), "gold_blocks");
-            } else if (blockType == Material.EMERALD_ORE) {
-                incrementBlockCount(connection, player.getName(), "emerald_blocks");
-            } else if (isCommonBlock(blockType)) {
-                incrementBlockCount(connection, player.getName(), "common_blocks");
+        // Statistiques en cours de chargement après la connexion : la casse est rejouée à leur installation ;
+        // sinon, elles n'ont pas pu être chargées
+        PlayerStats stats = plugin.getStatsCache().get(player.getUniqueId());
+        if (stats == null) {
+            if (plugin.getStatsCache().isLoading(player.getUniqueId())) {
+                hold(player, category, blockType, block);
             }
+            return;
+        }
 
-            // Met à jour le ratio blocs rares / blocs communs
-            updateRatio(connection, player.getName());
+        // Luminosité mesurée pour les minerais rares seulement : la pierre, bien plus fréquente, ne lit pas ses voisins
+        int light = category.isRare() ? lightAround(block) : -1;
+        record(stats, category, blockType, block.getWorld(),
+                block.getX(), block.getY(), block.getZ(), light, System.currentTimeMillis());
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Enregistre un monde chargé dans le journal, pour qu'aucune casse n'ait à écrire la liste des mondes.
+     *
+     * @param event L'événement de chargement du monde.
+     */
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        MiningJournal journal = this.journal;
+        if (journal != null) {
+            registerWorld(journal, event.getWorld());
         }
     }
 
     /**
-     * Incrémente le compteur d'un type de bloc spécifique pour un joueur donné.
+     * Enregistre dans le journal ouvert au démarrage les mondes déjà chargés, avant que le plugin soit prêt.
      *
-     * @param connection Connexion à la base de données.
-     * @param playerName Nom du joueur.
-     * @param column Colonne de la base de données correspondant au type de bloc.
-     * @throws SQLException En cas d'erreur lors de l'exécution de la requête.
+     * @param worlds Les mondes du serveur.
      */
-    private void incrementBlockCount(Connection connection, String playerName, String column) throws SQLException {
-        try (PreparedStatement statement = connection.prepareStatement(
-                "UPDATE player_data SET " + column + " = " + column + " + 1 WHERE player_name = ?"
-        )) {
-            statement.setString(1, playerName);
-            statement.executeUpdate();
+    public void registerWorlds(Iterable<World> worlds) {
+        MiningJournal journal = plugin.getMiningJournal();
+        if (journal == null) return;
+        for (World world : worlds) {
+            registerWorld(journal, world);
+        }
+    }
+
+    private void registerWorld(MiningJournal journal, World world) {
+        try {
+            journal.registerWorld(world);
+        } catch (IOException e) {
+            System.out.println("[TopLuck] Failed to register world " + world.getName() + " in the mining journal.");
+            e.printStackTrace();
         }
     }
 
     /**
-     * Met à jour le ratio blocs rares / blocs communs pour un joueur donné.
+     * Reprend le journal ouvert au démarrage, juste avant que le plugin soit prêt. Les casses mises en
+     * attente pendant le démarrage restent en attente : celles de chaque joueur sont rejouées sur son
+     * propre thread à l'installation de ses statistiques, celles des joueurs déconnectés ne sont pas comptées.
      *
-     * @param connection Connexion à la base de données.
-     * @param playerName Nom du joueur.
-     * @throws SQLException En cas d'erreur lors de l'exécution de la requête.
+     * @return Le nombre de casses en attente.
      */
-    private void updateRatio(Connection connection, String playerName) throws SQLException {
-        String updateQuery = "UPDATE player_data " +
-                "SET rare_to_common_ratio = (diamond_blocks + gold_blocks + emerald_blocks) / (common_blocks + 1) " +
-                "WHERE player_name = ?";
+    public int startRecording() {
+        journal = plugin.getMiningJournal();
+        return bufferedCount.get();
+    }
 
-        String insertQuery = "INSERT OR IGNORE INTO player_data (player_name, total_blocks, diamond_blocks, gold_blocks, emerald_blocks, common_blocks, rare_to_common_ratio) " +
-                "VALUES (?, 1, 0, 0, 0, 0, 0.0)";
+    /**
+     * Oublie les casses mises en attente, si le stockage n'a pas pu être ouvert.
+     */
+    public void discardBuffered() {
+        held.clear();
+        bufferedCount.set(0);
+    }
+
+    /**
+     * Rejoue les casses d'un joueur mises en attente pendant le chargement de ses statistiques,
+     * une fois celles-ci installées. Appelée sur le thread du joueur.
+     *
+     * @param uuid UUID du joueur.
+     * @return Le nombre de casses rejouées.
+     */
+    public int replayHeld(UUID uuid) {
+        List<PendingBreak> breaks = held.remove(uuid);
+        if (breaks == null) return 0;
+        bufferedCount.addAndGet(-breaks.size());
+        replay(breaks);
+        return breaks.size();
+    }
 
-        try (PreparedStatement insertStmt = connection.prepareStatement(insertQuery)) {
-            insertStmt.setString(1, playerName);
-            insertStmt.executeUpdate();
+    /**
+     * Oublie les casses mises en attente d'un joueur qui se déconnecte ou dont les statistiques
+     * n'ont pas pu être chargées.
+     *
+     * @param uuid UUID du joueur.
+     */
+    public void discardHeld(UUID uuid) {
+        List<PendingBreak> breaks = held.remove(uuid);
+        if (breaks != null) {
+            bufferedCount.addAndGet(-breaks.size());
         }
+    }
 
-        try (PreparedStatement updateStmt = connection.prepareStatement(updateQuery)) {
-            updateStmt.setString(1, playerName);
-            updateStmt.executeUpdate();
+    /**
+     * Compte les casses mises en attente d'un joueur, sur son thread.
+     */
+    private void replay(List<PendingBreak> breaks) {
+        for (PendingBreak pending : breaks) {
+            PlayerStats stats = plugin.getStatsCache().get(pending.playerUuid);
+            if (stats == null) return;
+            record(stats, pending.category, pending.material, pending.world,
+                    pending.x, pending.y, pending.z, pending.light, pending.timestamp);
         }
     }
 
     /**
-     * Vérifie si un type de bloc est considéré comme commun.
-     *
-     * @param blockType Type de bloc à vérifier.
-     * @return {@code true} si le bloc est commun, {@code false} sinon.
+     * Met une casse en attente pendant le démarrage ou le chargement des statistiques du joueur, sur son
+     * thread ; au-delà de {@value #MAX_HELD_PER_PLAYER} casses pour ce joueur ou de {@value #MAX_BUFFERED}
+     * au total, la casse n'est pas comptée.
+     */
+    private void hold(Player player, OreCategory category, Material blockType, Block block) {
+        List<PendingBreak> breaks = held.computeIfAbsent(player.getUniqueId(), uuid -> new ArrayList<>());
+        if (breaks.size() >= MAX_HELD_PER_PLAYER || bufferedCount.incrementAndGet() > MAX_BUFFERED) {
+            if (breaks.size() < MAX_HELD_PER_PLAYER) {
+                bufferedCount.decrementAndGet();
+            }
+            if (!bufferFull) {
+                System.out.println("[TopLuck] Too many block breaks waiting for player statistics, further breaks are not counted.");
+                bufferFull = true;
+            }
+            return;
+        }
+        breaks.add(pending(player, category, blockType, block));
+    }
+
+    private PendingBreak pending(Player player, OreCategory category, Material blockType, Block block) {
+        return new PendingBreak(player.getUniqueId(), category, blockType, block.getWorld(),
+                block.getX(), block.getY(), block.getZ(), category.isRare() ? lightAround(block) : -1,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Compte un bloc suivi dans les statistiques du joueur, sa répartition par couche et par luminosité
+     * et le score, signale le joueur au classement, puis ajoute les minerais rares au journal.
+     * La luminosité vaut -1 pour un bloc commun, dont elle n'est pas mesurée.
+     */
+    private void record(PlayerStats stats, OreCategory category, Material blockType, World world,
+                        int x, int y, int z, int light, long timestamp) {
+        stats.record(category, oreRegistry.getWeight(blockType), x, y, z, light, timestamp);
+        scorer.record(category);
+        leaderboardUpdater.submit(stats);
+
+        MiningJournal journal = this.journal;
+        if (category.isRare() && journal != null) {
+            try {
+                journal.append(timestamp, stats.getPlayerId(), blockType, world, x, y, z, light);
+            } catch (IOException e) {
+                System.out.println("[TopLuck] Failed to append to the mining journal, journal disabled.");
+                e.printStackTrace();
+                this.journal = null;
+            }
+        }
+    }
+
+    /**
+     * Retourne la luminosité la plus forte parmi les blocs voisins : un bloc plein est toujours dans le noir.
+     */
+    private static int lightAround(Block block) {
+        int light = 0;
+        for (BlockFace face : NEIGHBOURS) {
+            light = Math.max(light, block.getRelative(face).getLightLevel());
+            if (light == 15) break;
+        }
+        return light;
+    }
+
+    /**
+     * Casse d'un bloc suivi reçue pendant le démarrage.
      */
-    private boolean isCommonBlock(Material blockType) {
-        return blockType == Material.STONE || blockType == Material.COAL_ORE || blockType == Material.REDSTONE_ORE || blockType == Material.IRON_ORE;
+    private static final class PendingBreak {
+
+        private final UUID playerUuid;
+        private final OreCategory category;
+        private final Material material;
+        private final World world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final int light;
+        private final long timestamp;
+
+        private PendingBreak(UUID playerUuid, OreCategory category, Material material, World world,
+                             int x, int y, int z, int light, long timestamp) {
+            this.playerUuid = playerUuid;
+            this.category = category;
+            this.material = material;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.light = light;
+            this.timestamp = timestamp;
+        }
     }
 }
@@ -0,0 +1,197 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de connexions JDBC de taille fixe, partagé par le thread principal, le thread d'écriture,
+ * le thread de lecture et la migration.
+ * <p>
+ * Les connexions sont ouvertes à la demande jusqu'à la taille du pool, puis réutilisées avec leurs
+ * requêtes préparées ({@link PooledConnection}). Une connexion inutilisée depuis quelques secondes
+ * est vérifiée avant d'être prêtée, et rouverte si le serveur de base de données l'a fermée.
+ */
+public final class ConnectionPool {
+
+    /** Durée d'inactivité au-delà de laquelle une connexion est vérifiée avant d'être prêtée */
+    private static final long VALIDATE_AFTER_MILLIS = 5000;
+
+    /** Délai accordé à la vérification d'une connexion, en secondes */
+    private static final int VALIDATE_TIMEOUT_SECONDS = 2;
+
+    /** Attente maximale d'une connexion libre */
+    private static final long BORROW_TIMEOUT_MILLIS = 10000;
+
+    /** URL JDBC de la base */
+    private final String url;
+
+    /** Propriétés de connexion (utilisateur, mot de passe) */
+    private final Properties properties;
+
+    /** Requêtes exécutées à l'ouverture de chaque connexion */
+    private final List<String> initStatements;
+
+    /** Nombre maximal de connexions ouvertes */
+    private final int size;
+
+    /** Connexions libres */
+    private final BlockingQueue<PooledConnection> idle;
+
+    /** Nombre de connexions ouvertes, libres ou prêtées */
+    private final AtomicInteger opened = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * Crée le pool sans ouvrir de connexion.
+     *
+     * @param url            URL JDBC de la base.
+     * @param properties     Propriétés de connexion.
+     * @param size           Nombre maximal de connexions ouvertes.
+     * @param initStatements Requêtes exécutées à l'ouverture de chaque connexion.
+     */
+    public ConnectionPool(String url, Properties properties, int size, List<String> initStatements) {
+        this.url = url;
+        this.properties = properties;
+        this.size = size;
+        this.initStatements = initStatements;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Emprunte une connexion, à rendre avec {@link PooledConnection#close()} (try-with-resources).
+     *
+     * @return Une connexion valide.
+     * @throws SQLException Si aucune connexion ne se libère à temps ou si l'ouverture échoue.
+     */
+    public PooledConnection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT_MILLIS;
+        while (true) {
+            PooledConnection connection = idle.poll();
+            if (connection == null) {
+                connection = openIfAllowed();
+            }
+            if (connection == null) {
+                // Attente courte puis nouvel essai : une connexion écartée libère une place sans revenir dans la file
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new SQLException("No database connection available after " + BORROW_TIMEOUT_MILLIS + " ms");
+                }
+                try {
+                    connection = idle.poll(Math.min(remaining, 100), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                }
+                if (connection == null) continue;
+            }
+
+            if (System.currentTimeMillis() - connection.getLastReleased() > VALIDATE_AFTER_MILLIS
+                    && !isValid(connection.getConnection())) {
+                discard(connection);
+                continue;
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Reprend une connexion rendue : une transaction laissée ouverte est annulée,
+     * une connexion fermée entre-temps est écartée.
+     */
+    void release(PooledConnection connection) {
+        try {
+            Connection jdbc = connection.getConnection();
+            if (jdbc.isClosed()) {
+                discard(connection);
+                return;
+            }
+            if (!jdbc.getAutoCommit()) {
+                jdbc.rollback();
+                jdbc.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(connection);
+            return;
+        }
+        connection.setLastReleased(System.currentTimeMillis());
+        if (closed || !idle.offer(connection)) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Ferme les connexions libres ; les connexions encore prêtées sont fermées à leur retour.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Retourne la taille du pool.
+     *
+     * @return Le nombre maximal de connexions ouvertes.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Ouvre une nouvelle connexion si la taille du pool le permet.
+     *
+     * @return La connexion, ou {@code null} si toutes les connexions sont déjà ouvertes.
+     */
+    private PooledConnection openIfAllowed() throws SQLException {
+        while (true) {
+            int count = opened.get();
+            if (count >= size) return null;
+            if (opened.compareAndSet(count, count + 1)) break;
+        }
+        try {
+            Connection connection = DriverManager.getConnection(url, properties);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : initStatements) {
+                    statement.execute(sql);
+                }
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+            return new PooledConnection(this, connection);
+        } catch (SQLException e) {
+            opened.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(PooledConnection connection) {
+        opened.decrementAndGet();
+        connection.closeConnection();
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATE_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread unique d'écriture en base de données.
+ * Les deltas sont déposés dans une file bornée par le thread principal, fusionnés par joueur,
+ * puis écrits avec un seul {@code executeBatch} dans une seule transaction par vidage.
+ * <p>
+ * Lorsque la file est pleine, {@link #submit(StatsDelta)} refuse le delta sans bloquer et
+ * incrémente un compteur : l'appelant conserve alors ses incréments et les fusionne au vidage suivant.
+ * <p>
+ * Un lot dont l'écriture échoue (base occupée, serveur MySQL redémarré) n'est jamais abandonné :
+ * les deltas acceptés ont déjà avancé les valeurs envoyées des {@link PlayerStats}. Le lot est conservé
+ * par le thread d'écriture, fusionné avec les deltas suivants, et réessayé avec un délai croissant.
+ */
+public class DatabaseWriter implements Runnable {
+
+    /** Stockage des statistiques, utilisé uniquement par le thread d'écriture */
+    private final Storage storage;
+
+    /** Mesures du plugin : durée des transactions, taille des lots et nombre de requêtes */
+    private final PluginMetrics metrics;
+
+    /** File bornée des deltas en attente */
+    private final BlockingQueue<StatsDelta> queue;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    /** Nombre de deltas refusés parce que la file était pleine */
+    private final AtomicLong rejectedDeltas = new AtomicLong();
+
+    /** Nombre de transactions validées */
+    private final AtomicLong committedBatches = new AtomicLong();
+
+    /** Nombre de lignes écrites */
+    private final AtomicLong writtenRows = new AtomicLong();
+
+    /** Délais minimal et maximal avant de réessayer un lot en échec, en millisecondes */
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    /** Deltas dont l'écriture a échoué, par joueur, en attente d'un nouvel essai (thread d'écriture uniquement) */
+    private Map<Integer, StatsDelta> failed = new LinkedHashMap<>();
+
+    /** Délai avant le prochain essai et heure de cet essai, en millisecondes */
+    private long retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+    private long nextRetryMillis;
+
+    /** Deltas remis par {@link #shutdown(Collection)}, écrits par le thread avant de s'arrêter */
+    private volatile Collection<StatsDelta> closing = new ArrayList<>();
+
+    /** Indique si le thread a terminé sa dernière écriture avant de s'arrêter */
+    private volatile boolean exited;
+
+    /** Nombre d'écritures en échec, réessayées plus tard */
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    /**
+     * Démarre le thread d'écriture.
+     *
+     * @param storage       Stockage des statistiques.
+     * @param queueCapacity Capacité de la file des deltas.
+     * @param metrics       Mesures du plugin.
+     */
+    public DatabaseWriter(Storage storage, int queueCapacity, PluginMetrics metrics) {
+        this.storage = storage;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this, "TopLuck-DatabaseWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Dépose un delta dans la file sans jamais bloquer.
+     *
+     * @param delta Le delta à écrire.
+     * @return {@code true} si le delta a été accepté, {@code false} si la file est pleine ou le thread arrêté.
+     */
+    public boolean submit(StatsDelta delta) {
+        if (running && queue.offer(delta)) {
+            return true;
+        }
+        rejectedDeltas.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Boucle du thread d'écriture : attend un premier delta puis vide la file d'un coup.
+     * Tant qu'un lot en échec attend son nouvel essai, les deltas reçus y sont fusionnés.
+     */
+    @Override
+    public void run() {
+        List<StatsDelta> drained = new ArrayList<>();
+        while (running) {
+            try {
+                StatsDelta first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    drained.add(first);
+                    queue.drainTo(drained);
+                }
+                if (!failed.isEmpty() && System.currentTimeMillis() < nextRetryMillis) {
+                    merge(failed, drained);
+                } else if (!drained.isEmpty() || !failed.isEmpty()) {
+                    writeOrRetry(drained);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                drained.clear();
+            }
+        }
+
+        // Arrêt : dernière écriture de la file, des deltas remis à l'arrêt et du lot en échec
+        queue.drainTo(drained);
+        drained.addAll(closing);
+        drainOnExit(drained);
+        exited = true;
+    }
+
+    /**
+     * Écrit les derniers deltas avant l'arrêt, en réessayant quelques fois si la base est momentanément indisponible.
+     */
+    private void drainOnExit(List<StatsDelta> deltas) {
+        Map<Integer, StatsDelta> merged = failed;
+        failed = new LinkedHashMap<>();
+        merge(merged, deltas);
+        for (int attempt = 1; !write(merged, deltas.size()); attempt++) {
+            if (attempt == 3) {
+                System.out.println("[TopLuck] Giving up on " + merged.size() + " player(s) not written before shutdown.");
+                return;
+            }
+            try {
+                Thread.sleep(MIN_RETRY_DELAY_MILLIS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Demande au thread d'écrire les deltas restants dans la file ainsi que ceux fournis, puis de s'arrêter.
+     * Le thread n'est pas interrompu, pour ne jamais couper une transaction en cours ; l'appelant n'écrit
+     * lui-même que ce qui reste une fois le thread terminé.
+     * Appelée depuis {@code onDisable}, avant la fermeture du stockage.
+     *
+     * @param remaining Deltas supplémentaires à écrire avant la fermeture.
+     */
+    public void shutdown(Collection<StatsDelta> remaining) {
+        closing = new ArrayList<>(remaining);
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            System.out.println("[TopLuck] The database writer is still busy, pending statistics may not be written.");
+            return;
+        }
+
+        // Thread terminé : deltas déposés pendant sa dernière écriture, ou tout si elle n'a pas eu lieu
+        List<StatsDelta> rest = new ArrayList<>();
+        if (!exited) {
+            rest.addAll(closing);
+            rest.addAll(failed.values());
+        }
+        queue.drainTo(rest);
+        write(rest);
+    }
+
+    /**
+     * Écrit le lot en échec et les nouveaux deltas ; en cas d'erreur, les conserve pour un nouvel essai
+     * après un délai doublé à chaque échec.
+     */
+    private void writeOrRetry(List<StatsDelta> deltas) {
+        Map<Integer, StatsDelta> merged = failed;
+        failed = new LinkedHashMap<>();
+        merge(merged, deltas);
+        if (write(merged, deltas.size())) {
+            retryDelayMillis = MIN_RETRY_DELAY_MILLIS;
+            return;
+        }
+        failed = merged;
+        nextRetryMillis = System.currentTimeMillis() + retryDelayMillis;
+        System.out.println("[TopLuck] Retrying in " + retryDelayMillis / 1000 + " s.");
+        retryDelayMillis = Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis * 2);
+    }
+
+    /**
+     * Fusionne les deltas par joueur puis les écrit dans une seule transaction.
+     * Visible dans le paquet pour les benchmarks, qui l'appellent sans passer par la file.
+     *
+     * @param deltas Les deltas à écrire.
+     * @return {@code true} si la transaction a été validée.
+     */
+    boolean write(List<StatsDelta> deltas) {
+        if (deltas.isEmpty()) return true;
+        Map<Integer, StatsDelta> merged = new LinkedHashMap<>();
+        merge(merged, deltas);
+        return write(merged, deltas.size());
+    }
+
+    private boolean write(Map<Integer, StatsDelta> merged, int deltaCount) {
+        if (merged.isEmpty()) return true;
+        long start = System.nanoTime();
+        try {
+            int statements = storage.write(merged.values());
+            committedBatches.incrementAndGet();
+            writtenRows.addAndGet(merged.size());
+            metrics.getDatabaseWrite().record(System.nanoTime() - start);
+            metrics.getWriteBatch().record(deltaCount);
+            metrics.getDatabaseStatements().add(statements);
+            return true;
+        } catch (SQLException e) {
+            failedWrites.incrementAndGet();
+            System.out.println("[TopLuck] Failed to write " + merged.size() + " player(s) to the database.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Ajoute des deltas à un lot indexé par joueur, en fusionnant ceux d'un même joueur.
+     */
+    private static void merge(Map<Integer, StatsDelta> merged, List<StatsDelta> deltas) {
+        for (StatsDelta delta : deltas) {
+            StatsDelta existing = merged.get(delta.getPlayerId());
+            if (existing == null) {
+                merged.put(delta.getPlayerId(), delta);
+            } else {
+                existing.merge(delta);
+            }
+        }
+    }
+
+    public long getRejectedDeltas() {
+        return rejectedDeltas.get();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    public long getCommittedBatches() {
+        return committedBatches.get();
+    }
+
+    public long getWrittenRows() {
+        return writtenRows.get();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+}
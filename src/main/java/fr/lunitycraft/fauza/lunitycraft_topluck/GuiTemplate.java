@@ -0,0 +1,104 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Disposition immuable d'un menu, construite une seule fois à l'activation du plugin.
+ * Chaque ouverture copie la disposition en bloc dans un nouvel inventaire ;
+ * seuls les emplacements dynamiques (tête, statistiques) sont ensuite remplis.
+ */
+public final class GuiTemplate {
+
+    /** Contenu de chaque emplacement, jamais modifié après la construction */
+    private final ItemStack[] layout;
+
+    private GuiTemplate(ItemStack[] layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Crée un inventaire rempli avec la disposition du modèle.
+     *
+     * @param holder Propriétaire de l'inventaire, le {@link Menu} qui l'affiche.
+     * @param title  Titre de l'inventaire.
+     * @return Le nouvel inventaire.
+     */
+    public Inventory createInventory(InventoryHolder holder, String title) {
+        Inventory inventory = Bukkit.createInventory(holder, layout.length, title);
+        // L'inventaire copie les items : le tableau du modèle n'est jamais partagé
+        inventory.setContents(layout.clone());
+        return inventory;
+    }
+
+    /**
+     * Retourne la taille des inventaires créés par ce modèle.
+     *
+     * @return Le nombre d'emplacements.
+     */
+    public int getSize() {
+        return layout.length;
+    }
+
+    /**
+     * Crée un constructeur de modèle.
+     *
+     * @param size Nombre d'emplacements (multiple de 9).
+     * @return Le constructeur.
+     */
+    public static Builder builder(int size) {
+        return new Builder(size);
+    }
+
+    /**
+     * Constructeur de {@link GuiTemplate}.
+     */
+    public static final class Builder {
+
+        private final ItemStack[] layout;
+
+        private Builder(int size) {
+            this.layout = new ItemStack[size];
+        }
+
+        /**
+         * Remplit tous les emplacements avec le même item.
+         *
+         * @param item L'item de fond.
+         * @return Ce constructeur.
+         */
+        public Builder fill(ItemStack item) {
+            for (int i = 0; i < layout.length; i++) {
+                layout[i] = item;
+            }
+            return this;
+        }
+
+        /**
+         * Place un item à un emplacement.
+         *
+         * @param slot Emplacement de l'item.
+         * @param item L'item.
+         * @return Ce constructeur.
+         */
+        public Builder set(int slot, ItemStack item) {
+            layout[slot] = item;
+            return this;
+        }
+
+        /**
+         * Construit le modèle immuable.
+         *
+         * @return Le modèle.
+         */
+        public GuiTemplate build() {
+            return new GuiTemplate(layout.clone());
+        }
+    }
+}
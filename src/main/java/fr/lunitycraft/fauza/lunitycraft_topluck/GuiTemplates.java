@@ -0,0 +1,111 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Arrays;
+
+/**
+ * Définition partagée des menus du plugin : fond, boutons d'action et emplacements dynamiques.
+ * Les modèles sont construits une seule fois, à l'activation du plugin.
+ */
+public final class GuiTemplates {
+
+    /** Emplacement de la tête du joueur dans le menu "Top Luck" */
+    public static final int HEAD_SLOT = 11;
+
+    /** Emplacements des boutons d'action, communs aux deux menus */
+    public static final int FREEZE_SLOT = 10;
+    public static final int INVENTORY_SLOT = 12;
+    public static final int TELEPORT_SLOT = 14;
+
+    /** Menu "Top Luck" ouvert par /topluck &lt;joueur&gt; */
+    private final GuiTemplate topLuck;
+
+    /** Menu "Options for &lt;joueur&gt;" ouvert en cliquant sur une tête */
+    private final GuiTemplate playerOptions;
+
+    /**
+     * Construit les modèles de tous les menus.
+     */
+    public GuiTemplates() {
+        ItemStack filler = createFiller();
+
+        this.topLuck = GuiTemplate.builder(27)
+                .fill(filler)
+                .set(HEAD_SLOT, null)
+                .set(FREEZE_SLOT, createActionButton(Material.DIAMOND_BLOCK, "Geler le joueur", "Gèle le joueur sélectionné."))
+                .set(INVENTORY_SLOT, createActionButton(Material.GOLD_BLOCK, "Voir l'inventaire", "Ouvre l'inventaire du joueur."))
+                .set(TELEPORT_SLOT, createActionButton(Material.EYE_OF_ENDER, "Se téléporter", "Vous téléporte au joueur sélectionné."))
+                .build();
+
+        this.playerOptions = GuiTemplate.builder(27)
+                .fill(filler)
+                .set(FREEZE_SLOT, createActionButton(Material.DIAMOND_BLOCK, "Freeze Player", "Freezes the selected player."))
+                .set(INVENTORY_SLOT, createActionButton(Material.GOLD_BLOCK, "View Inventory", "Allows you to view the player's inventory."))
+                .set(TELEPORT_SLOT, createActionButton(Material.EYE_OF_ENDER, "Teleport to Player", "Teleports you to the selected player."))
+                .build();
+    }
+
+    public GuiTemplate getTopLuck() {
+        return topLuck;
+    }
+
+    public GuiTemplate getPlayerOptions() {
+        return playerOptions;
+    }
+
+    /**
+     * Crée le panneau de verre utilisé comme fond des menus.
+     *
+     * @return Un {@link ItemStack} sans nom visible.
+     */
+    public static ItemStack createFiller() {
+        ItemStack glassPane = new ItemStack(Material.STAINED_GLASS_PANE);
+        ItemMeta glassMeta = glassPane.getItemMeta();
+        if (glassMeta != null) glassMeta.setDisplayName(" "); // Nom vide pour l'esthétique.
+        glassPane.setItemMeta(glassMeta);
+        return glassPane;
+    }
+
+    /**
+     * Crée un bouton avec un nom.
+     *
+     * @param material Le matériau de l'item.
+     * @param name     Le nom à afficher pour cet item.
+     * @return Un {@link ItemStack} configuré.
+     */
+    public static ItemStack createButton(Material material, String name) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+        }
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    /**
+     * Crée un bouton d'action avec un nom et une description.
+     *
+     * @param material Le matériau de l'item.
+     * @param name     Le nom à afficher pour cet item.
+     * @param loreText Le texte de description (lore) associé.
+     * @return Un {@link ItemStack} configuré.
+     */
+    public static ItemStack createActionButton(Material material, String name, String loreText) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            meta.setLore(Arrays.asList(" ", loreText));
+        }
+        item.setItemMeta(meta);
+        return item;
+    }
+}
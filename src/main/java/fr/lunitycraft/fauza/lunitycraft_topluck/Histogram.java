@@ -0,0 +1,127 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme à intervalles fixes, utilisable sans verrou depuis plusieurs threads.
+ * <p>
+ * Chaque puissance de 2 est découpée en 4 intervalles égaux : un percentile est donné par la borne
+ * supérieure de son intervalle, avec une erreur relative d'au plus 25 %. Les valeurs sont comptées
+ * dans des {@link LongAdder}, répartis par thread : un enregistrement ne fait que quelques additions,
+ * sans allocation ni contention. Les valeurs au-delà de 2^42 (73 minutes en nanosecondes)
+ * sont comptées dans le dernier intervalle.
+ */
+public final class Histogram {
+
+    /** Intervalles par puissance de 2 */
+    private static final int SUB_BUCKETS = 4;
+
+    /** Plus grand exposant distingué */
+    private static final int MAX_EXPONENT = 41;
+
+    private static final int BUCKETS = MAX_EXPONENT * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Enregistre une valeur.
+     *
+     * @param value La valeur, ramenée à 0 si elle est négative.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets[bucket(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Relève les valeurs enregistrées depuis le relevé précédent et remet l'histogramme à zéro.
+     * Une valeur enregistrée pendant le relevé peut être comptée dans le suivant.
+     *
+     * @return Le relevé.
+     */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sumThenReset();
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, sum.sumThenReset(), max.getThenReset());
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 2)) - 1;
+    }
+
+    /**
+     * Valeurs d'un histogramme sur un intervalle de temps.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Retourne la borne supérieure de l'intervalle contenant un percentile, sans dépasser le maximum.
+         *
+         * @param quantile Le percentile, entre 0 et 1.
+         * @return La valeur du percentile, 0 si aucune valeur n'a été enregistrée.
+         */
+        public long percentile(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regroupe par semaine l'historique journalier plus ancien que la durée de conservation, puis rend
+ * au système l'espace libéré lorsque l'activité est faible.
+ * <p>
+ * Les lignes journalières ("player_ore_daily", écrite avec les totaux des joueurs, et
+ * "player_ore_history", agrégée depuis le journal des minerais) ne sont gardées que quelques mois ;
+ * au-delà, chaque jour est ajouté aux totaux de sa semaine dans "player_ore_weekly" puis supprimé,
+ * dans la même transaction. La taille de la base ne croît donc plus qu'avec le nombre de semaines.
+ * <p>
+ * Chaque passage regroupe au plus quelques jours, puis libère quelques pages si le thread d'écriture
+ * n'a presque rien écrit depuis le passage précédent. Planifié hors du thread principal.
+ */
+public class HistoryRollup implements Runnable {
+
+    /** Stockage des statistiques */
+    private final Storage storage;
+
+    /** Thread d'écriture, dont le débit mesure l'activité du serveur */
+    private final DatabaseWriter databaseWriter;
+
+    /** Mesures du plugin : durée du regroupement d'un jour et nombre de requêtes */
+    private final PluginMetrics metrics;
+
+    /** Durée de conservation des lignes journalières, en jours */
+    private final int retentionDays;
+
+    /** Nombre maximal de jours regroupés par passage */
+    private final int daysPerRun;
+
+    /** Nombre maximal de pages libérées par passage */
+    private final int vacuumPages;
+
+    /** Débit d'écriture, en lignes par minute, en dessous duquel l'activité est faible */
+    private final double lowLoadRowsPerMinute;
+
+    /** Heure et nombre de lignes écrites au passage précédent */
+    private long lastRun = System.nanoTime();
+    private long lastWrittenRows;
+
+    /**
+     * Constructeur du regroupement.
+     *
+     * @param storage              Stockage des statistiques.
+     * @param databaseWriter       Thread d'écriture.
+     * @param metrics              Mesures du plugin.
+     * @param retentionDays        Durée de conservation des lignes journalières, en jours.
+     * @param daysPerRun           Nombre maximal de jours regroupés par passage.
+     * @param vacuumPages          Nombre maximal de pages libérées par passage, 0 pour ne jamais en libérer.
+     * @param lowLoadRowsPerMinute Débit d'écriture en dessous duquel les pages sont libérées.
+     */
+    public HistoryRollup(Storage storage, DatabaseWriter databaseWriter, PluginMetrics metrics, int retentionDays,
+                         int daysPerRun, int vacuumPages, double lowLoadRowsPerMinute) {
+        this.storage = storage;
+        this.databaseWriter = databaseWriter;
+        this.metrics = metrics;
+        this.retentionDays = retentionDays;
+        this.daysPerRun = daysPerRun;
+        this.vacuumPages = vacuumPages;
+        this.lowLoadRowsPerMinute = lowLoadRowsPerMinute;
+        this.lastWrittenRows = databaseWriter.getWrittenRows();
+    }
+
+    /**
+     * Regroupe les jours expirés les plus anciens, puis libère des pages si l'activité est faible.
+     * En cas d'erreur, le regroupement reprend au même jour au passage suivant.
+     */
+    @Override
+    public synchronized void run() {
+        int today = (int) Math.floorDiv(System.currentTimeMillis(), TimeUnit.DAYS.toMillis(1));
+        int rolledUp = 0;
+        try {
+            while (rolledUp < daysPerRun) {
+                int day = storage.getOldestDay();
+                if (day < 0 || day >= today - retentionDays) break;
+
+                long start = System.nanoTime();
+                int statements = storage.rollupDay(day, weekOf(day));
+                metrics.getHistoryRollup().record(System.nanoTime() - start);
+                metrics.getDatabaseStatements().add(statements);
+                rolledUp++;
+            }
+        } catch (SQLException e) {
+            System.out.println("[TopLuck] Failed to roll up the daily history, retrying later.");
+            e.printStackTrace();
+        }
+        if (rolledUp > 0) {
+            System.out.println("[TopLuck] Rolled up " + rolledUp + " day(s) of history into weekly totals.");
+        }
+
+        long now = System.nanoTime();
+        long writtenRows = databaseWriter.getWrittenRows();
+        double minutes = (now - lastRun) / (double) TimeUnit.MINUTES.toNanos(1);
+        boolean lowLoad = databaseWriter.getQueueSize() == 0
+                && writtenRows - lastWrittenRows <= lowLoadRowsPerMinute * minutes;
+        lastRun = now;
+        lastWrittenRows = writtenRows;
+        if (vacuumPages == 0 || !lowLoad) return;
+
+        try {
+            long start = System.nanoTime();
+            int freed = storage.vacuum(vacuumPages);
+            if (freed > 0) {
+                System.out.println("[TopLuck] Released " + freed + " free page(s) of the database in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+            }
+        } catch (SQLException e) {
+            System.out.println("[TopLuck] Failed to release free pages of the database.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Retourne le lundi de la semaine d'un jour.
+     *
+     * @param day Le jour, en jours depuis le 1er janvier 1970 (un jeudi).
+     * @return Le lundi de sa semaine, dans la même unité.
+     */
+    static int weekOf(int day) {
+        return day - Math.floorMod(day + 3, 7);
+    }
+}
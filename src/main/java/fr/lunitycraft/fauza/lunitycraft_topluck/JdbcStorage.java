@@ -0,0 +1,530 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Partie commune des stockages JDBC : les lectures, identiques d'une base à l'autre, et l'écriture
+ * des deltas, dont seule la syntaxe des insertions additives dépend de la base.
+ * Chaque requête est préparée une fois par connexion du {@link ConnectionPool}.
+ * <p>
+ * La version du schéma est enregistrée dans la table "schema_version" : à l'initialisation,
+ * seules les migrations postérieures à cette version sont appliquées.
+ */
+public abstract class JdbcStorage implements Storage {
+
+    /**
+     * Migration du schéma d'une version à la suivante.
+     */
+    protected interface Migration {
+
+        /**
+         * Applique la migration.
+         *
+         * @param connection Connexion à la base.
+         * @throws SQLException En cas d'erreur ; la version n'est alors pas enregistrée.
+         */
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static final String CREATE_SCHEMA_VERSION_QUERY =
+            "CREATE TABLE IF NOT EXISTS schema_version (version INTEGER NOT NULL)";
+
+    private static final String SELECT_SCHEMA_VERSION_QUERY =
+            "SELECT MAX(version) AS version FROM schema_version";
+
+    private static final String INSERT_SCHEMA_VERSION_QUERY =
+            "INSERT INTO schema_version (version) VALUES (?)";
+
+    protected static final String SELECT_TOTAL_QUERY =
+            "SELECT total_blocks FROM player_stats WHERE player_id = ?";
+
+    protected static final String SELECT_ORES_QUERY =
+            "SELECT category, count, weighted, veins, profile FROM player_ores WHERE player_id = ?";
+
+    private static final String SELECT_PLAYER_BY_NAME_QUERY =
+            "SELECT id, uuid FROM players WHERE name = ?";
+
+    private static final String POPULATION_COUNTS_QUERY =
+            "SELECT category, SUM(count) AS total FROM player_ores GROUP BY category";
+
+    private static final String POPULATION_TOTAL_QUERY =
+            "SELECT SUM(total_blocks) AS total FROM player_stats";
+
+    private static final String LEADERBOARD_QUERY =
+            "SELECT player_id, luck_score, rare_to_common_ratio FROM player_stats";
+
+    private static final String SELECT_CHECKPOINT_QUERY =
+            "SELECT segment FROM journal_checkpoints WHERE journal = ?";
+
+    private static final String SELECT_OLDEST_DAY_QUERY =
+            "SELECT MIN(day) AS day FROM (" +
+                    "SELECT MIN(day) AS day FROM player_ore_daily UNION ALL " +
+                    "SELECT MIN(day) AS day FROM player_ore_history) days";
+
+    private static final String SELECT_DAILY_ROLLUP =
+            "SELECT player_id, ? AS week, category, count, 0 AS dark FROM player_ore_daily WHERE day = ?";
+
+    private static final String SELECT_HISTORY_ROLLUP =
+            "SELECT player_id, ? AS week, category, 0 AS count, dark FROM player_ore_history WHERE day = ? AND dark > 0";
+
+    private static final String DELETE_DAILY_QUERY =
+            "DELETE FROM player_ore_daily WHERE day = ?";
+
+    private static final String DELETE_HISTORY_QUERY =
+            "DELETE FROM player_ore_history WHERE day = ?";
+
+    /** Connexions à la base */
+    protected final ConnectionPool pool;
+
+    /** Classification des blocs suivis */
+    protected final OreRegistry oreRegistry;
+
+    protected JdbcStorage(ConnectionPool pool, OreRegistry oreRegistry) {
+        this.pool = pool;
+        this.oreRegistry = oreRegistry;
+    }
+
+    /**
+     * Retourne les requêtes de création des tables "players", "player_stats", "player_ores",
+     * "player_ore_history", "journal_checkpoints", "player_ore_daily" et "player_ore_weekly".
+     * Les tables journalières sont indexées par jour, pour que leur regroupement par semaine
+     * ne parcoure que les lignes du jour regroupé.
+     *
+     * @return Les requêtes, exécutées dans l'ordre.
+     */
+    protected abstract List<String> schema();
+
+    /**
+     * Retourne les migrations des bases créées par une version précédente du plugin, dans l'ordre :
+     * la migration d'indice {@code i} fait passer le schéma de la version {@code i} à la version {@code i + 1}.
+     * Les tables de {@link #schema()} existent déjà lorsqu'elles s'exécutent. Une base créée avant
+     * l'enregistrement des versions est en version 0 : chaque migration doit donc vérifier l'état
+     * de la base et ne rien faire s'il est déjà à jour.
+     *
+     * @return Les migrations, aucune par défaut.
+     */
+    protected List<Migration> migrations() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Insertion ou mise à jour du pseudo d'un joueur : (id, uuid, name).
+     */
+    protected abstract String upsertPlayerQuery();
+
+    /**
+     * Insertion additive des totaux d'un joueur : (player_id, total_blocks, rare_to_common_ratio, luck_score).
+     * Le total s'ajoute à la valeur en base ; le ratio et le score, recalculables, sont remplacés.
+     */
+    protected abstract String upsertStatsQuery();
+
+    /**
+     * Insertion additive d'une catégorie de minerai : (player_id, category, count, weighted, veins, profile).
+     * La répartition, un blob qui ne s'additionne pas en SQL, est remplacée : elle est déjà fusionnée
+     * avec celle lue par {@link #selectProfilesQuery()} dans la même transaction.
+     */
+    protected abstract String upsertOreQuery();
+
+    /**
+     * Lecture des répartitions d'un joueur avant leur mise à jour : (player_id).
+     * Une base partagée doit verrouiller les lignes lues jusqu'à la fin de la transaction.
+     */
+    protected String selectProfilesQuery() {
+        return "SELECT category, profile FROM player_ores WHERE player_id = ?";
+    }
+
+    /**
+     * Insertion additive d'un agrégat du journal : (player_id, day, category, count, dark).
+     */
+    protected abstract String upsertHistoryQuery();
+
+    /**
+     * Insertion ou mise à jour du dernier segment traité d'un journal : (journal, segment).
+     */
+    protected abstract String upsertCheckpointQuery();
+
+    /**
+     * Insertion additive des totaux d'un jour : (player_id, day, category, count).
+     */
+    protected abstract String upsertDailyQuery();
+
+    /**
+     * Insertion additive dans "player_ore_weekly" des lignes d'une requête de sélection
+     * (player_id, week, category, count, dark), dont les paramètres sont la semaine puis le jour.
+     *
+     * @param select La requête de sélection.
+     */
+    protected abstract String rollupWeeklyQuery(String select);
+
+    /**
+     * Emprunte une connexion au pool.
+     *
+     * @return La connexion, à rendre avec {@link PooledConnection#close()}.
+     * @throws SQLException Si aucune connexion n'est disponible.
+     */
+    public PooledConnection borrow() throws SQLException {
+        return pool.borrow();
+    }
+
+    /**
+     * Crée les tables, puis applique les migrations postérieures à la version enregistrée.
+     */
+    @Override
+    public void initialize() throws SQLException {
+        try (PooledConnection pooled = pool.borrow();
+             Statement statement = pooled.getConnection().createStatement()) {
+            statement.executeUpdate(CREATE_SCHEMA_VERSION_QUERY);
+            for (String sql : schema()) {
+                statement.executeUpdate(sql);
+            }
+
+            int version;
+            try (ResultSet resultSet = statement.executeQuery(SELECT_SCHEMA_VERSION_QUERY)) {
+                version = resultSet.next() ? resultSet.getInt("version") : 0;
+            }
+            List<Migration> migrations = migrations();
+            for (int i = version; i < migrations.size(); i++) {
+                migrations.get(i).apply(pooled.getConnection());
+                PreparedStatement versionStatement = pooled.prepare(INSERT_SCHEMA_VERSION_QUERY);
+                versionStatement.setInt(1, i + 1);
+                versionStatement.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasLegacyTables() {
+        return false;
+    }
+
+    @Override
+    public void loadPlayers(PlayerIndex playerIndex) throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            playerIndex.load(connection.getConnection());
+        }
+    }
+
+    @Override
+    public int resolvePlayer(PlayerIndex playerIndex, UUID uuid, String name) throws SQLException {
+        return playerIndex.resolve(uuid, name);
+    }
+
+    @Override
+    public int lookupPlayer(PlayerIndex playerIndex, String name) throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepare(SELECT_PLAYER_BY_NAME_QUERY);
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) return -1;
+                int id = resultSet.getInt("id");
+                String uuid = resultSet.getString("uuid");
+                playerIndex.register(id, uuid == null ? null : UUID.fromString(uuid), name);
+                return id;
+            }
+        }
+    }
+
+    @Override
+    public void loadPopulation(LuckScorer luckScorer) throws SQLException {
+        loadPopulation(luckScorer, POPULATION_COUNTS_QUERY, POPULATION_TOTAL_QUERY);
+    }
+
+    /**
+     * Initialise les taux de référence avec une requête de totaux par catégorie et une requête de total général.
+     */
+    protected void loadPopulation(LuckScorer luckScorer, String countsQuery, String totalQuery) throws SQLException {
+        try (PooledConnection connection = pool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery(countsQuery)) {
+                while (resultSet.next()) {
+                    OreCategory category = oreRegistry.getCategory(resultSet.getString("category"));
+                    if (category != null) {
+                        luckScorer.seed(category, resultSet.getLong("total"));
+                    }
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery(totalQuery)) {
+                if (resultSet.next()) {
+                    luckScorer.seedTotal(resultSet.getLong("total"));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void loadLeaderboard(LuckLeaderboard leaderboard, PlayerIndex playerIndex) throws SQLException {
+        try (PooledConnection connection = pool.borrow();
+             Statement statement = connection.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery(LEADERBOARD_QUERY)) {
+            while (resultSet.next()) {
+                int playerId = resultSet.getInt("player_id");
+                String playerName = playerIndex.getName(playerId);
+                if (playerName == null) continue;
+                leaderboard.update(playerId, playerName,
+                        resultSet.getDouble("luck_score"), resultSet.getDouble("rare_to_common_ratio"));
+            }
+        }
+    }
+
+    @Override
+    public PlayerStats read(int playerId, UUID uuid, String playerName, boolean includeLegacy) throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            PlayerStats playerStats = new PlayerStats(playerId, uuid, playerName, oreRegistry.size());
+            return readRows(connection, SELECT_TOTAL_QUERY, SELECT_ORES_QUERY, playerId, playerStats)
+                    ? playerStats : null;
+        }
+    }
+
+    /**
+     * Ajoute aux statistiques les lignes d'un joueur lues avec une paire de requêtes.
+     *
+     * @return {@code true} si une ligne de totaux existe pour ce joueur.
+     */
+    protected boolean readRows(PooledConnection connection, String totalQuery, String oresQuery, Object key,
+                               PlayerStats playerStats) throws SQLException {
+        PreparedStatement totalStatement = connection.prepare(totalQuery);
+        totalStatement.setObject(1, key);
+        try (ResultSet resultSet = totalStatement.executeQuery()) {
+            if (!resultSet.next()) return false;
+            playerStats.loadTotal(resultSet.getLong("total_blocks"));
+        }
+
+        PreparedStatement oreStatement = connection.prepare(oresQuery);
+        oreStatement.setObject(1, key);
+        try (ResultSet resultSet = oreStatement.executeQuery()) {
+            while (resultSet.next()) {
+                OreCategory category = oreRegistry.getCategory(resultSet.getString("category"));
+                if (category != null) {
+                    playerStats.load(category, resultSet.getLong("count"), resultSet.getDouble("weighted"),
+                            resultSet.getLong("veins"));
+                    if (!playerStats.loadProfile(category, resultSet.getBytes("profile"))) {
+                        System.out.println("[TopLuck] Ignored an unreadable " + category.getName()
+                                + " profile of " + playerStats.getPlayerName() + ".");
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int write(Collection<StatsDelta> deltas) throws SQLException {
+        int statements = 0;
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            PreparedStatement playerStatement = pooled.prepare(upsertPlayerQuery());
+            PreparedStatement statsStatement = pooled.prepare(upsertStatsQuery());
+            PreparedStatement oreStatement = pooled.prepare(upsertOreQuery());
+            PreparedStatement profileStatement = pooled.prepare(selectProfilesQuery());
+            PreparedStatement dailyStatement = pooled.prepare(upsertDailyQuery());
+            connection.setAutoCommit(false);
+            try {
+                for (StatsDelta delta : deltas) {
+                    // Joueur rattaché : enregistre son UUID et son pseudo actuel
+                    if (delta.getUuid() != null) {
+                        playerStatement.setInt(1, delta.getPlayerId());
+                        playerStatement.setString(2, delta.getUuid().toString());
+                        playerStatement.setString(3, delta.getPlayerName());
+                        playerStatement.addBatch();
+                        statements++;
+                    }
+
+                    statsStatement.setInt(1, delta.getPlayerId());
+                    statsStatement.setLong(2, delta.getTotalBlocks());
+                    statsStatement.setDouble(3, delta.getRatio());
+                    statsStatement.setDouble(4, delta.getScore());
+                    statsStatement.addBatch();
+                    statements++;
+
+                    OreProfile profile = readProfiles(profileStatement, delta);
+                    if (profile != null) {
+                        statements++;
+                    }
+
+                    for (OreCategory category : oreRegistry.getCategories()) {
+                        long count = delta.getCount(category.getIndex());
+                        if (count == 0) continue;
+                        oreStatement.setInt(1, delta.getPlayerId());
+                        oreStatement.setString(2, category.getName());
+                        oreStatement.setLong(3, count);
+                        oreStatement.setDouble(4, delta.getWeighted(category.getIndex()));
+                        oreStatement.setLong(5, delta.getVeins(category.getIndex()));
+                        oreStatement.setBytes(6, profile.encode(category.getIndex()));
+                        oreStatement.addBatch();
+                        statements++;
+                    }
+
+                    // Jour de la casse et non de l'écriture : un lot écrit après minuit ou en retard reste à son jour
+                    for (Map.Entry<Integer, long[]> day : delta.getDaily().entrySet()) {
+                        for (OreCategory category : oreRegistry.getCategories()) {
+                            long count = day.getValue()[category.getIndex()];
+                            if (count == 0) continue;
+                            dailyStatement.setInt(1, delta.getPlayerId());
+                            dailyStatement.setInt(2, day.getKey());
+                            dailyStatement.setString(3, category.getName());
+                            dailyStatement.setLong(4, count);
+                            dailyStatement.addBatch();
+                            statements++;
+                        }
+                    }
+                }
+                playerStatement.executeBatch();
+                statsStatement.executeBatch();
+                oreStatement.executeBatch();
+                dailyStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                // Les requêtes restent en cache : un lot interrompu ne doit pas être rejoué à l'écriture suivante
+                playerStatement.clearBatch();
+                statsStatement.clearBatch();
+                oreStatement.clearBatch();
+                dailyStatement.clearBatch();
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Lit les répartitions enregistrées d'un joueur et leur ajoute celles du delta.
+     *
+     * @return Les répartitions fusionnées, ou {@code null} si le delta ne compte aucun bloc.
+     */
+    private OreProfile readProfiles(PreparedStatement profileStatement, StatsDelta delta) throws SQLException {
+        boolean changed = false;
+        for (OreCategory category : oreRegistry.getCategories()) {
+            changed |= delta.getCount(category.getIndex()) != 0;
+        }
+        if (!changed) return null;
+
+        OreProfile profile = new OreProfile(oreRegistry.size());
+        profileStatement.setInt(1, delta.getPlayerId());
+        try (ResultSet resultSet = profileStatement.executeQuery()) {
+            while (resultSet.next()) {
+                OreCategory category = oreRegistry.getCategory(resultSet.getString("category"));
+                if (category != null && delta.getCount(category.getIndex()) != 0
+                        && !profile.decode(category.getIndex(), resultSet.getBytes("profile"))) {
+                    System.out.println("[TopLuck] Replaced an unreadable " + category.getName()
+                            + " profile of " + delta.getPlayerName() + ".");
+                }
+            }
+        }
+        profile.add(delta.getProfile());
+        return profile;
+    }
+
+    @Override
+    public long getCompactedSegment(String journalId) throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement statement = connection.prepare(SELECT_CHECKPOINT_QUERY);
+            statement.setString(1, journalId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("segment") : 0;
+            }
+        }
+    }
+
+    @Override
+    public int writeHistory(String journalId, long segment, Collection<OreHistoryEntry> entries) throws SQLException {
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            PreparedStatement historyStatement = pooled.prepare(upsertHistoryQuery());
+            PreparedStatement checkpointStatement = pooled.prepare(upsertCheckpointQuery());
+            connection.setAutoCommit(false);
+            try {
+                for (OreHistoryEntry entry : entries) {
+                    historyStatement.setInt(1, entry.getPlayerId());
+                    historyStatement.setInt(2, entry.getDay());
+                    historyStatement.setString(3, entry.getCategory());
+                    historyStatement.setLong(4, entry.getCount());
+                    historyStatement.setLong(5, entry.getDark());
+                    historyStatement.addBatch();
+                }
+                historyStatement.executeBatch();
+                checkpointStatement.setString(1, journalId);
+                checkpointStatement.setLong(2, segment);
+                checkpointStatement.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                historyStatement.clearBatch();
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return entries.size() + 1;
+    }
+
+    @Override
+    public int getOldestDay() throws SQLException {
+        try (PooledConnection connection = pool.borrow()) {
+            try (ResultSet resultSet = connection.prepare(SELECT_OLDEST_DAY_QUERY).executeQuery()) {
+                if (!resultSet.next()) return -1;
+                int day = resultSet.getInt("day");
+                return resultSet.wasNull() ? -1 : day;
+            }
+        }
+    }
+
+    @Override
+    public int rollupDay(int day, int week) throws SQLException {
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            PreparedStatement dailyStatement = pooled.prepare(rollupWeeklyQuery(SELECT_DAILY_ROLLUP));
+            PreparedStatement historyStatement = pooled.prepare(rollupWeeklyQuery(SELECT_HISTORY_ROLLUP));
+            PreparedStatement deleteDailyStatement = pooled.prepare(DELETE_DAILY_QUERY);
+            PreparedStatement deleteHistoryStatement = pooled.prepare(DELETE_HISTORY_QUERY);
+            connection.setAutoCommit(false);
+            try {
+                dailyStatement.setInt(1, week);
+                dailyStatement.setInt(2, day);
+                dailyStatement.executeUpdate();
+                historyStatement.setInt(1, week);
+                historyStatement.setInt(2, day);
+                historyStatement.executeUpdate();
+
+                deleteDailyStatement.setInt(1, day);
+                deleteDailyStatement.executeUpdate();
+                deleteHistoryStatement.setInt(1, day);
+                deleteHistoryStatement.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        return 4;
+    }
+
+    /**
+     * Ne fait rien : seul SQLite rend son espace libre à la demande.
+     */
+    @Override
+    public int vacuum(int pages) throws SQLException {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Material;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrège les segments scellés du {@link MiningJournal} dans la table "player_ore_history"
+ * (minerais par joueur, jour et catégorie, dont ceux cassés dans l'obscurité).
+ * <p>
+ * Les segments sont traités dans l'ordre ; chacun est ajouté dans la même transaction que le numéro
+ * du dernier segment traité, de sorte qu'un arrêt en cours d'agrégation ne compte jamais un segment
+ * deux fois. Les segments bruts restent sur disque comme preuve, puis sont supprimés une fois agrégés
+ * et plus anciens que la durée de conservation.
+ * <p>
+ * Un segment scellé qui n'est pas un segment du journal (en-tête absent ou invalide) est renommé avec le
+ * suffixe {@value MiningJournal#QUARANTINE_SUFFIX} et conservé pour examen, sans bloquer les suivants.
+ * <p>
+ * Planifié hors du thread principal : les segments scellés ne sont plus modifiés par le journal.
+ */
+public class JournalCompactor implements Runnable {
+
+    /** Journal des minerais cassés */
+    private final MiningJournal journal;
+
+    /** Stockage des statistiques */
+    private final Storage storage;
+
+    /** Classification des blocs suivis, pour retrouver la catégorie de chaque matériau */
+    private final OreRegistry oreRegistry;
+
+    /** Mesures du plugin : durée d'agrégation d'un segment et nombre de requêtes */
+    private final PluginMetrics metrics;
+
+    /** Durée de conservation des segments agrégés, en millisecondes */
+    private final long retentionMillis;
+
+    /**
+     * Constructeur de l'agrégation.
+     *
+     * @param journal       Journal des minerais cassés.
+     * @param storage       Stockage des statistiques.
+     * @param oreRegistry   Classification des blocs suivis.
+     * @param metrics       Mesures du plugin.
+     * @param retentionDays Durée de conservation des segments agrégés, en jours.
+     */
+    public JournalCompactor(MiningJournal journal, Storage storage, OreRegistry oreRegistry, PluginMetrics metrics,
+                            int retentionDays) {
+        this.journal = journal;
+        this.storage = storage;
+        this.oreRegistry = oreRegistry;
+        this.metrics = metrics;
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+    }
+
+    /**
+     * Agrège les segments scellés pas encore traités, puis supprime les segments expirés.
+     * En cas d'erreur, l'agrégation s'arrête et reprend au segment en échec au passage suivant.
+     */
+    @Override
+    public synchronized void run() {
+        long compacted;
+        try {
+            compacted = storage.getCompactedSegment(journal.getJournalId());
+        } catch (SQLException e) {
+            System.out.println("[TopLuck] Failed to read the mining journal checkpoint.");
+            e.printStackTrace();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (long segment : journal.getSealedSegments()) {
+            File segmentFile = journal.getSegmentFile(segment);
+            if (segment > compacted) {
+                try {
+                    compact(segment, segmentFile);
+                } catch (IOException | SQLException e) {
+                    System.out.println("[TopLuck] Failed to compact mining journal segment " + segment + ", retrying later.");
+                    e.printStackTrace();
+                    return;
+                }
+            } else if (now - segmentFile.lastModified() > retentionMillis && !segmentFile.delete()) {
+                System.out.println("[TopLuck] Failed to delete expired mining journal segment " + segmentFile.getName() + ".");
+            }
+        }
+    }
+
+    /**
+     * Agrège un segment par joueur, jour et catégorie, puis l'ajoute à l'historique.
+     */
+    @SuppressWarnings("deprecation")
+    private void compact(long segment, File segmentFile) throws IOException, SQLException {
+        long start = System.nanoTime();
+        ByteBuffer content = MiningJournal.readSegment(segmentFile);
+        if (content == null) {
+            quarantine(segment, segmentFile);
+            return;
+        }
+
+        Map<Long, OreHistoryEntry> entries = new HashMap<>();
+        int records = 0;
+        for (int offset = content.position(); offset + MiningJournal.RECORD_SIZE <= content.limit();
+             offset += MiningJournal.RECORD_SIZE) {
+            records++;
+            int playerId = content.getInt(offset + 8);
+            Material material = Material.getMaterial(content.getShort(offset + 12) & 0xFFFF);
+            int light = content.get(offset + 15);
+            long timestamp = content.getLong(offset + 16);
+
+            // Matériau retiré de la configuration depuis la casse : l'enregistrement brut reste dans le segment
+            OreCategory category = material == null ? null : oreRegistry.getCategory(material);
+            if (category == null) continue;
+
+            int day = (int) Math.floorDiv(timestamp, TimeUnit.DAYS.toMillis(1));
+            long key = ((long) playerId << 32) | ((long) (day & 0xFFFFFF) << 8) | category.getIndex();
+            OreHistoryEntry entry = entries.get(key);
+            if (entry == null) {
+                entry = new OreHistoryEntry(playerId, day, category.getName());
+                entries.put(key, entry);
+            }
+            entry.add(light);
+        }
+
+        int statements = storage.writeHistory(journal.getJournalId(), segment, entries.values());
+        metrics.getJournalCompaction().record(System.nanoTime() - start);
+        metrics.getDatabaseStatements().add(statements);
+        System.out.println("[TopLuck] Compacted mining journal segment " + segment + " (" + records + " records).");
+    }
+
+    /**
+     * Met à l'écart un segment illisible : il n'est plus listé, et l'agrégation passe au suivant.
+     */
+    private void quarantine(long segment, File segmentFile) {
+        File quarantined = new File(segmentFile.getParentFile(), segmentFile.getName() + MiningJournal.QUARANTINE_SUFFIX);
+        if (segmentFile.renameTo(quarantined)) {
+            System.out.println("[TopLuck] Mining journal segment " + segment + " is unreadable, moved to " + quarantined.getName() + ".");
+        } else {
+            System.out.println("[TopLuck] Mining journal segment " + segment + " is unreadable and could not be moved, skipped.");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.Arrays;
+
+/**
+ * Interface graphique paginée du classement, ouverte par /topluck sans argument.
+ * Seule la page affichée est construite, à partir d'une tranche du {@link LuckLeaderboard},
+ * et les têtes proviennent du {@link SkullCache}. La page affichée est portée par les actions
+ * des flèches de navigation, et le joueur classé par l'action de sa tête.
+ */
+public class LeaderboardMenu {
+
+    /** Début du titre de l'inventaire, suivi du numéro de page */
+    public static final String TITLE_PREFIX = "Top Luck - Page ";
+
+    /** Nombre de têtes par page (5 lignes de 9) */
+    private static final int PAGE_SIZE = 45;
+
+    private static final int PREVIOUS_SLOT = 45;
+    private static final int INFO_SLOT = 49;
+    private static final int NEXT_SLOT = 53;
+
+    /** Référence à l'instance principale du plugin */
+    private final LunityCraft_TopLuck plugin;
+
+    /**
+     * Constructeur du menu.
+     *
+     * @param plugin Instance du plugin LunityCraft_TopLuck
+     */
+    public LeaderboardMenu(LunityCraft_TopLuck plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Ouvre une page du classement pour un joueur.
+     *
+     * @param viewer Le joueur qui consulte le classement.
+     * @param page   Numéro de page, à partir de 0 ; ramené dans les bornes si nécessaire.
+     */
+    public void open(Player viewer, int page) {
+        LuckLeaderboard leaderboard = plugin.getLeaderboard();
+        int pageCount = Math.max(1, (leaderboard.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        final int shown = Math.max(0, Math.min(page, pageCount - 1));
+
+        Menu menu = new Menu(54, TITLE_PREFIX + (shown + 1) + "/" + pageCount);
+
+        // Têtes des joueurs de la page : un clic ouvre l'interface Top Luck du joueur
+        int rank = shown * PAGE_SIZE + 1;
+        int slot = 0;
+        for (LuckLeaderboard.Entry entry : leaderboard.range(shown * PAGE_SIZE, PAGE_SIZE)) {
+            final String playerName = entry.getPlayerName();
+            menu.setItem(slot++, createHead(entry, rank++), clicker -> clicker.performCommand("topluck " + playerName));
+        }
+
+        // Contrôles de navigation
+        if (shown > 0) {
+            menu.setItem(PREVIOUS_SLOT, GuiTemplates.createButton(Material.ARROW, "Page précédente"),
+                    clicker -> open(clicker, shown - 1));
+        }
+        menu.setItem(INFO_SLOT, GuiTemplates.createButton(Material.PAPER, "Page " + (shown + 1) + "/" + pageCount
+                + " - " + leaderboard.size() + " joueurs"), null);
+        if (shown < pageCount - 1) {
+            menu.setItem(NEXT_SLOT, GuiTemplates.createButton(Material.ARROW, "Page suivante"),
+                    clicker -> open(clicker, shown + 1));
+        }
+
+        plugin.getMenuListener().open(viewer, menu);
+    }
+
+    /**
+     * Crée la tête d'un joueur classé à partir du cache, avec son rang, son score et son ratio.
+     */
+    private ItemStack createHead(LuckLeaderboard.Entry entry, int rank) {
+        ItemStack head = plugin.getSkullCache().get(entry.getPlayerName());
+        ItemMeta meta = head.getItemMeta();
+        if (meta != null) {
+            meta.setLore(Arrays.asList(
+                    ChatColor.YELLOW + "Rang : #" + rank,
+                    ChatColor.RED + "Score : " + String.format("%.2f", entry.getScore()),
+                    ChatColor.LIGHT_PURPLE + "Ratio : " + String.format("%.3f", entry.getRatio())
+            ));
+        }
+        head.setItemMeta(meta);
+        return head;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Mises à jour du classement regroupées par tick.
+ * <p>
+ * Chaque casse suivie signale seulement que le score du joueur a changé : le joueur est ajouté à une
+ * file sans verrou, une seule fois tant qu'il n'a pas été reclassé. À chaque tick, le thread global
+ * recalcule le score des joueurs signalés et met à jour le {@link LuckLeaderboard}. Les threads des
+ * régions ne se disputent donc jamais le verrou du classement, et un joueur qui casse beaucoup de
+ * blocs dans le même tick n'est reclassé qu'une fois. Le score et le ratio recalculés sont aussi
+ * comparés aux seuils des {@link StaffAlerts}.
+ */
+public class LeaderboardUpdater implements Runnable {
+
+    /** Classement à tenir à jour */
+    private final LuckLeaderboard leaderboard;
+
+    /** Score d'anomalie des joueurs */
+    private final LuckScorer scorer;
+
+    /** Alertes du staff, {@code null} si elles sont désactivées */
+    private final StaffAlerts alerts;
+
+    /** Joueurs dont le score a changé depuis le dernier tick */
+    private final Queue<PlayerStats> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructeur des mises à jour.
+     *
+     * @param leaderboard Classement à tenir à jour.
+     * @param scorer      Score d'anomalie des joueurs.
+     * @param alerts      Alertes du staff, ou {@code null} si elles sont désactivées.
+     */
+    public LeaderboardUpdater(LuckLeaderboard leaderboard, LuckScorer scorer, StaffAlerts alerts) {
+        this.leaderboard = leaderboard;
+        this.scorer = scorer;
+        this.alerts = alerts;
+    }
+
+    /**
+     * Signale que le score d'un joueur a changé ; appelée depuis n'importe quel thread.
+     *
+     * @param stats Les statistiques du joueur.
+     */
+    public void submit(PlayerStats stats) {
+        if (stats.markRankPending()) {
+            pending.offer(stats);
+        }
+    }
+
+    /**
+     * Reclasse les joueurs signalés depuis le tick précédent. Planifiée à chaque tick sur le thread global.
+     */
+    @Override
+    public void run() {
+        PlayerStats stats;
+        while ((stats = pending.poll()) != null) {
+            // Libéré avant la lecture : une casse pendant le calcul signale de nouveau le joueur
+            stats.clearRankPending();
+            double score = scorer.score(stats);
+            double ratio = stats.getRatio();
+            leaderboard.update(stats.getPlayerId(), stats.getPlayerName(), score, ratio);
+            if (alerts != null) {
+                alerts.evaluate(stats, score, ratio);
+            }
+        }
+    }
+
+    /**
+     * Retourne le nombre de joueurs en attente de reclassement.
+     *
+     * @return La taille de la file.
+     */
+    public int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classement en mémoire des joueurs par score d'anomalie décroissant ({@link LuckScorer}).
+ * <p>
+ * Implémenté comme un arbre d'ordre statistique (treap dont chaque nœud connaît la taille
+ * de son sous-arbre) : la mise à jour d'un joueur, son rang et l'accès au k-ième joueur
+ * coûtent O(log n), sans jamais trier toute la table. Chaque joueur possède un nœud unique
+ * réutilisé à chaque mise à jour, retrouvé directement par son identifiant ({@link PlayerIndex}).
+ * <p>
+ * Les méthodes publiques sont synchronisées : le classement est mis à jour par le
+ * {@link LeaderboardUpdater} et lu par les menus, éventuellement sur des threads différents.
+ */
+public class LuckLeaderboard {
+
+    /**
+     * Entrée du classement.
+     */
+    public static final class Entry {
+
+        private final int playerId;
+        private volatile String playerName;
+        private volatile double score;
+        private volatile double ratio;
+
+        private final int priority;
+        private int size = 1;
+        private Entry left;
+        private Entry right;
+
+        private Entry(int playerId, String playerName, double score, double ratio, int priority) {
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.score = score;
+            this.ratio = ratio;
+            this.priority = priority;
+        }
+
+        public int getPlayerId() {
+            return playerId;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+    }
+
+    /** Nœud de chaque joueur classé, indexé par identifiant */
+    private Entry[] entries = new Entry[64];
+
+    private Entry root;
+
+    /** Générateur xorshift des priorités du treap */
+    private int seed = 0x2545F491;
+
+    /**
+     * Met à jour le score et le ratio d'un joueur, en l'ajoutant au classement si nécessaire.
+     *
+     * @param playerId   Identifiant du joueur.
+     * @param playerName Pseudo actuel du joueur.
+     * @param score      Nouveau score, qui détermine le rang.
+     * @param ratio      Nouveau ratio, affiché avec le score.
+     */
+    public synchronized void update(int playerId, String playerName, double score, double ratio) {
+        if (playerId >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(playerId + 1, entries.length * 2));
+        }
+        Entry entry = entries[playerId];
+        if (entry == null) {
+            entry = new Entry(playerId, playerName, score, ratio, nextPriority());
+            entries[playerId] = entry;
+        } else {
+            entry.playerName = playerName;
+            entry.ratio = ratio;
+            if (entry.score == score) return;
+            root = remove(root, entry);
+            entry.score = score;
+            entry.left = null;
+            entry.right = null;
+            entry.size = 1;
+        }
+        root = insert(root, entry);
+    }
+
+    /**
+     * Retire un joueur du classement.
+     *
+     * @param playerId Identifiant du joueur.
+     */
+    public synchronized void remove(int playerId) {
+        Entry entry = get(playerId);
+        if (entry != null) {
+            entries[playerId] = null;
+            root = remove(root, entry);
+        }
+    }
+
+    /**
+     * Retourne le rang d'un joueur (1 pour le score le plus élevé).
+     *
+     * @param playerId Identifiant du joueur.
+     * @return Le rang, ou -1 si le joueur n'est pas classé.
+     */
+    public synchronized int rank(int playerId) {
+        Entry entry = get(playerId);
+        if (entry == null) return -1;
+
+        int rank = 0;
+        Entry node = root;
+        while (node != null) {
+            int cmp = compare(entry, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                if (cmp == 0) return rank;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retourne une tranche du classement.
+     *
+     * @param offset Nombre de joueurs à ignorer depuis le premier.
+     * @param limit  Nombre maximal de joueurs à retourner.
+     * @return Les entrées, du score le plus élevé au plus faible.
+     */
+    public synchronized List<Entry> range(int offset, int limit) {
+        List<Entry> result = new ArrayList<>(Math.max(0, Math.min(limit, size() - offset)));
+        collect(root, offset, limit, result);
+        return result;
+    }
+
+    /**
+     * Retourne le nombre de joueurs classés.
+     *
+     * @return La taille du classement.
+     */
+    public synchronized int size() {
+        return size(root);
+    }
+
+    private Entry get(int playerId) {
+        return playerId >= 0 && playerId < entries.length ? entries[playerId] : null;
+    }
+
+    /**
+     * Parcours infixe limité à la tranche demandée, en sautant les sous-arbres hors de la tranche.
+     */
+    private void collect(Entry node, int offset, int limit, List<Entry> result) {
+        if (node == null || result.size() >= limit) return;
+
+        int leftSize = size(node.left);
+        if (offset < leftSize) {
+            collect(node.left, offset, limit, result);
+        }
+        if (result.size() < limit && offset <= leftSize) {
+            result.add(node);
+        }
+        if (result.size() < limit) {
+            collect(node.right, Math.max(0, offset - leftSize - 1), limit, result);
+        }
+    }
+
+    private Entry insert(Entry node, Entry entry) {
+        if (node == null) return entry;
+
+        if (compare(entry, node) < 0) {
+            node.left = insert(node.left, entry);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, entry);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Entry remove(Entry node, Entry entry) {
+        if (node == null) return null;
+
+        int cmp = compare(entry, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, entry);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, entry);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = remove(node.right, entry);
+            } else {
+                node = rotateLeft(node);
+                node.left = remove(node.left, entry);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Entry rotateRight(Entry node) {
+        Entry left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Entry rotateLeft(Entry node) {
+        Entry right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Entry node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private static int size(Entry node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Ordre du classement : score décroissant, puis identifiant croissant pour départager les égalités
+     * (le plus ancien joueur d'abord, indépendamment d'un changement de pseudo).
+     */
+    private static int compare(Entry a, Entry b) {
+        int cmp = Double.compare(b.score, a.score);
+        return cmp != 0 ? cmp : Integer.compare(a.playerId, b.playerId);
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Score d'anomalie incrémental des joueurs.
+ * <p>
+ * Pour chaque catégorie, le taux de référence {@code p} est estimé en continu sur l'ensemble
+ * des blocs suivis de la population. Le score d'un joueur ayant cassé {@code n} blocs suivis,
+ * dont {@code k} d'une catégorie rare, est la somme sur les catégories rares de l'écart
+ * réduit avec un a priori Beta-Binomial de force {@code s} :
+ * <pre>
+ * z = (k - n·p) / sqrt((n + s) · p · (1 - p))
+ * </pre>
+ * L'a priori ramène vers zéro le score des comptes récents (n petit devant s), alors qu'un
+ * joueur dont la chance persiste sur beaucoup de blocs voit son score croître.
+ * Seuls les écarts positifs (plus de minerais que prévu) sont comptés.
+ * L'enregistrement d'un bloc et le calcul du score coûtent O(1) par catégorie suivie.
+ * <p>
+ * Les compteurs de population sont des {@link LongAdder} : les casses arrivent de plusieurs threads
+ * sur un serveur à régions, sans contention sur un compteur partagé.
+ */
+public class LuckScorer {
+
+    /** Classification des blocs suivis */
+    private final OreRegistry oreRegistry;
+
+    /** Force de l'a priori, en nombre de blocs */
+    private final double priorStrength;
+
+    /** Nombre de blocs par catégorie cassés par l'ensemble des joueurs */
+    private final LongAdder[] populationCounts;
+
+    /** Nombre total de blocs suivis cassés par l'ensemble des joueurs */
+    private final LongAdder populationTotal = new LongAdder();
+
+    /**
+     * Constructeur du score.
+     *
+     * @param oreRegistry   Classification des blocs suivis.
+     * @param priorStrength Force de l'a priori, en nombre de blocs.
+     */
+    public LuckScorer(OreRegistry oreRegistry, double priorStrength) {
+        this.oreRegistry = oreRegistry;
+        this.priorStrength = priorStrength;
+        this.populationCounts = new LongAdder[oreRegistry.size()];
+        for (int i = 0; i < populationCounts.length; i++) {
+            populationCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Initialise le compteur de population d'une catégorie avec les totaux enregistrés en base.
+     *
+     * @param category La catégorie.
+     * @param count    Nombre de blocs de la catégorie cassés par tous les joueurs.
+     */
+    public void seed(OreCategory category, long count) {
+        LongAdder counter = populationCounts[category.getIndex()];
+        counter.reset();
+        counter.add(count);
+    }
+
+    /**
+     * Initialise le nombre total de blocs suivis de la population avec la valeur enregistrée en base.
+     *
+     * @param total Nombre total de blocs suivis cassés par tous les joueurs.
+     */
+    public void seedTotal(long total) {
+        populationTotal.reset();
+        populationTotal.add(total);
+    }
+
+    /**
+     * Met à jour les taux de référence avec un bloc cassé.
+     *
+     * @param category Catégorie du bloc.
+     */
+    public void record(OreCategory category) {
+        populationCounts[category.getIndex()].increment();
+        populationTotal.increment();
+    }
+
+    /**
+     * Retourne le taux de référence d'une catégorie, lissé pour ne jamais valoir 0 ou 1.
+     *
+     * @param category La catégorie.
+     * @return La proportion de blocs de cette catégorie dans la population.
+     */
+    public double baseline(OreCategory category) {
+        return (populationCounts[category.getIndex()].sum() + 1.0) / (populationTotal.sum() + 2.0);
+    }
+
+    /**
+     * Calcule le score d'anomalie d'un joueur.
+     *
+     * @param stats Les statistiques du joueur.
+     * @return Le score, 0 pour un joueur conforme à la population.
+     */
+    public double score(PlayerStats stats) {
+        long n = stats.getTotalBlocks();
+        double score = 0;
+        for (OreCategory category : oreRegistry.getCategories()) {
+            if (!category.isRare()) continue;
+            double p = baseline(category);
+            double z = (stats.getCount(category) - n * p) / Math.sqrt((n + priorStrength) * p * (1 - p));
+            if (z > 0) score += z;
+        }
+        return score;
+    }
+}
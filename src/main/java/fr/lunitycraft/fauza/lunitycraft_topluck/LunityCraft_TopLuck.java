@@ -4,115 +4,548 @@
  */
 package fr.lunitycraft.fauza.lunitycraft_topluck;
 
+import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.*;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * La classe principale qui gère le cycle de vie du plugin (activation/désactivation) et initialise la base de données.
  */
 public final class LunityCraft_TopLuck extends JavaPlugin implements Listener {
 
-    /** Connexion à la base de données SQLite */
-    private Connection connection;
+    /** État du démarrage, lu par les listeners et la commande */
+    private volatile PluginState state = PluginState.STARTING;
+
+    /** Planification des tâches, sur le thread principal ou sur les régions d'un serveur Folia */
+    private TaskScheduler taskScheduler;
+
+    /** Démarrage en arrière-plan : ouverture du stockage et chargement des caches */
+    private PluginStartup startup;
+
+    /** Stockage des statistiques : SQLite locale ou MySQL/MariaDB partagée entre les serveurs */
+    private Storage storage;
+
+    /** Classification des blocs suivis, construite depuis la configuration */
+    private OreRegistry oreRegistry;
+
+    /** Thread d'écriture en base des statistiques */
+    private DatabaseWriter databaseWriter;
+
+    /** Statistiques en mémoire des joueurs connectés */
+    private StatsCache statsCache;
+
+    /** Classement des joueurs par score d'anomalie */
+    private final LuckLeaderboard leaderboard = new LuckLeaderboard();
+
+    /** Score d'anomalie, avec les taux de référence de la population */
+    private LuckScorer luckScorer;
+
+    /** Mises à jour du classement, regroupées par tick */
+    private LeaderboardUpdater leaderboardUpdater;
+
+    /** Alertes du staff lorsqu'un joueur franchit un seuil, {@code null} si elles sont désactivées */
+    private StaffAlerts staffAlerts;
+
+    /** Identifiants entiers des joueurs, indexés par UUID */
+    private final PlayerIndex playerIndex = new PlayerIndex();
+
+    /** Migration en arrière-plan des anciennes tables indexées par pseudo, {@code null} si aucune */
+    private PlayerIdMigration playerIdMigration;
+
+    /** Blocs suivis posés par les joueurs, exclus des statistiques */
+    private PlacedOreStore placedOreStore;
+
+    /** Journal en ajout seul des minerais rares cassés, {@code null} s'il est désactivé */
+    private MiningJournal miningJournal;
+
+    /** Modèles des menus, construits une seule fois */
+    private GuiTemplates guiTemplates;
+
+    /** Listener unique des menus, avec le menu ouvert par chaque joueur */
+    private MenuListener menuListener;
+
+    /** Têtes de joueurs préparées, partagées par les menus */
+    private SkullCache skullCache;
+
+    /** Lecture des statistiques pour l'interface graphique */
+    private StatsService statsService;
+
+    /** Interface graphique paginée du classement */
+    private LeaderboardMenu leaderboardMenu;
+
+    /** Mesures de performance, enregistrées sans verrou */
+    private final PluginMetrics metrics = new PluginMetrics();
+
+    /** Relevé périodique des mesures dans le dossier "metrics" */
+    private MetricsReporter metricsReporter;
+
+    /** Listener des casses de blocs, qui met les casses en attente pendant le démarrage */
+    private CheatListener cheatListener;
 
     /**
      * Méthode appelée lors de l'activation du plugin.
-     * Initialise les commandes, enregistre les listeners, et configure la base de données.
+     * Initialise les commandes et les listeners sur le thread principal, puis lance l'ouverture
+     * du stockage et le chargement des caches en arrière-plan ({@link PluginStartup}).
      */
     @Override
     public void onEnable() {
 
+        // Planificateur du serveur : thread principal, ou régions multithreadées sur Folia
+        taskScheduler = createTaskScheduler();
+
+        // Copie la configuration par défaut si elle n'existe pas
+        saveDefaultConfig();
+        oreRegistry = OreRegistry.fromConfig(getConfig().getConfigurationSection("ores"));
+
+        // Construit les modèles des menus
+        guiTemplates = new GuiTemplates();
+
         // Enregistre la commande "topluck"
         this.getCommand("topluck").setExecutor(new TopLuckCommand(this));
 
-        // Enregistre les listeners pour les interactions avec l'inventaire
-        getServer().getPluginManager().registerEvents(new InventoryClickListener("Top Luck"), this);
-        getServer().getPluginManager().registerEvents(new InventoryClickListener("Options for "), this);  // Listener pour les options
+        // Enregistre le listener unique des menus
+        menuListener = new MenuListener(metrics);
+        getServer().getPluginManager().registerEvents(menuListener, this);
+
+        // Crée le menu paginé du classement et le cache de têtes partagé
+        skullCache = new SkullCache(Math.max(1, getConfig().getInt("leaderboard.skull-cache-size", 256)), metrics);
+        leaderboardMenu = new LeaderboardMenu(this);
 
-        // Chargement du driver SQLite et création des tables
-        try {
-            Class.forName("org.sqlite.JDBC");
-            createDatabaseAndTable();
-            System.out.println("[TopLuck] DB or/and tables created");
-        } catch (ClassNotFoundException e) {
-            System.out.println("[TopLuck] SQLite JDBC driver not found.");
-            return;
+        // Score d'anomalie et classement, remplis par le démarrage en arrière-plan
+        luckScorer = new LuckScorer(oreRegistry, Math.max(1, getConfig().getDouble("scoring.prior-strength", 500)));
+        // Alertes du staff, évaluées à chaque reclassement sans accès à la base
+        if (getConfig().getBoolean("alerts.enabled", true)) {
+            staffAlerts = new StaffAlerts(this,
+                    getConfig().getDouble("alerts.score-threshold", 10),
+                    getConfig().getDouble("alerts.ratio-threshold", 0.05),
+                    Math.max(0, getConfig().getLong("alerts.min-blocks", 500)),
+                    Math.max(1, getConfig().getLong("alerts.window-seconds", 60)),
+                    Math.max(1, getConfig().getInt("alerts.burst", 5)),
+                    Math.max(0, getConfig().getDouble("alerts.per-minute", 6)));
         }
+        leaderboardUpdater = new LeaderboardUpdater(leaderboard, luckScorer, staffAlerts);
+
+        // Cache des joueurs connectés, rempli lorsque le stockage est prêt
+        statsCache = new StatsCache(this);
+        getServer().getPluginManager().registerEvents(statsCache, this);
+
+        // Relève les mesures de performance à intervalle fixe, hors du thread principal
+        metricsReporter = new MetricsReporter(this, new File(getDataFolder(), "metrics"),
+                Math.max(1, getConfig().getInt("metrics.retained-files", 7)));
+        long metricsTicks = Math.max(1, getConfig().getLong("metrics.interval-seconds", 60)) * 20L;
+        taskScheduler.runAsyncTimer(metricsReporter, metricsTicks, metricsTicks);
+
+        // Retient les blocs suivis posés par les joueurs, chunk par chunk, à côté de data.db ;
+        // les chunks déjà chargés sont lus par le démarrage en arrière-plan
+        placedOreStore = new PlacedOreStore(new File(getDataFolder(), "placed-ores"), oreRegistry);
+        placedOreStore.registerLoadedChunks(getServer().getWorlds());
+        getServer().getPluginManager().registerEvents(placedOreStore, this);
+
+        // Enregistre le listener pour gérer les statistiques de casse de blocs ;
+        // les casses sont mises en attente jusqu'à ce que le stockage soit prêt
+        cheatListener = new CheatListener(this);
+        getServer().getPluginManager().registerEvents(cheatListener, this);
 
-        // Enregistre le listener pour gérer les statistiques de casse de blocs
-        getServer().getPluginManager().registerEvents(new CheatListener(this), this);
+        // Ouvre le stockage, crée les tables et charge les caches sans bloquer le démarrage du serveur
+        Map<UUID, String> onlinePlayers = new LinkedHashMap<>();
+        for (Player player : getServer().getOnlinePlayers()) {
+            onlinePlayers.put(player.getUniqueId(), player.getName());
+        }
+        state = PluginState.STARTING;
+        startup = new PluginStartup(this, onlinePlayers);
+        startup.start();
+    }
+
+    /**
+     * Termine le démarrage sur le thread global (le thread principal sur un serveur classique), une fois
+     * le stockage ouvert et les caches chargés par {@link PluginStartup} : démarre les services, puis rejoue
+     * les casses mises en attente.
+     *
+     * @param storage       Le stockage initialisé.
+     * @param journal       Le journal des minerais, ou {@code null} s'il est désactivé.
+     * @param preloaded     Statistiques des joueurs connectés à l'activation, par UUID.
+     * @param elapsedMillis Durée du démarrage en arrière-plan, en millisecondes.
+     */
+    void completeStartup(Storage storage, MiningJournal journal, Map<UUID, PlayerStats> preloaded, long elapsedMillis) {
+        this.storage = storage;
+
+        // Démarre le thread d'écriture en base
+        databaseWriter = new DatabaseWriter(storage,
+                Math.max(1, getConfig().getInt("storage.queue-capacity", 4096)), metrics);
+
+        // Démarre la lecture des statistiques hors du thread principal
+        // Avec une base partagée, les statistiques d'un joueur déconnecté d'ici changent encore ailleurs
+        statsService = new StatsService(this,
+                Math.max(1, getConfig().getInt("stats.offline-cache-size", 128)),
+                storage.isShared() ? Math.max(1, getConfig().getLong("stats.offline-cache-seconds", 60)) * 1000L : 0,
+                Math.max(1, getConfig().getLong("stats.load-timeout-ticks", 40)));
+
+        // Déplace par lots les anciennes tables indexées par pseudo, sans bloquer le serveur ;
+        // seule une base SQLite d'une version précédente peut en contenir
+        if (storage.hasLegacyTables()) {
+            playerIdMigration = new PlayerIdMigration((SqliteStorage) storage, playerIndex,
+                    Math.max(1, getConfig().getInt("storage.migration-batch-size", 500)), metrics);
+            playerIdMigration.start();
+        }
+
+        // Le plugin est prêt avant de prendre en charge les joueurs connectés : une connexion pendant
+        // leur prise en charge est ainsi chargée par StatsCache#onPlayerJoin, sans être oubliée
+        miningJournal = journal;
+        cheatListener.registerWorlds(getServer().getWorlds());
+        int buffered = cheatListener.startRecording();
+        state = PluginState.READY;
+
+        // Charge les joueurs connectés hors du thread global et planifie l'écriture périodique de leurs statistiques
+        statsCache.install(preloaded);
+        long flushTicks = Math.max(1, getConfig().getLong("storage.flush-interval-seconds", 30)) * 20L;
+        taskScheduler.runGlobalTimer(statsCache::flushDirty, flushTicks, flushTicks);
+
+        // Reclasse à chaque tick les joueurs dont le score a changé
+        taskScheduler.runGlobalTimer(leaderboardUpdater, 1, 1);
+
+        // Envoie chaque seconde les alertes du staff dont la fenêtre de regroupement est terminée
+        if (staffAlerts != null) {
+            taskScheduler.runGlobalTimer(staffAlerts, 20, 20);
+        }
+
+        // Agrège les segments pleins du journal hors du thread principal
+        if (journal != null) {
+            JournalCompactor journalCompactor = new JournalCompactor(journal, storage, oreRegistry, metrics,
+                    Math.max(1, getConfig().getInt("journal.retention-days", 30)));
+            long compactTicks = Math.max(1, getConfig().getLong("journal.compact-interval-seconds", 300)) * 20L;
+            taskScheduler.runAsyncTimer(journalCompactor, compactTicks, compactTicks);
+        }
+
+        // Regroupe par semaine l'historique journalier expiré et rend l'espace libéré, hors du thread principal
+        HistoryRollup historyRollup = new HistoryRollup(storage, databaseWriter, metrics,
+                Math.max(1, getConfig().getInt("history.daily-retention-days", 90)),
+                Math.max(1, getConfig().getInt("history.days-per-run", 7)),
+                Math.max(0, getConfig().getInt("history.vacuum-pages", 256)),
+                Math.max(0, getConfig().getDouble("history.low-load-rows-per-minute", 20)));
+        long rollupTicks = Math.max(1, getConfig().getLong("history.rollup-interval-seconds", 600)) * 20L;
+        taskScheduler.runAsyncTimer(historyRollup, rollupTicks, rollupTicks);
+
+        System.out.println("[TopLuck] Ready in " + elapsedMillis + " ms (" + buffered + " buffered block breaks to replay).");
+    }
+
+    /**
+     * Signale l'échec du démarrage sur le thread principal : les statistiques restent désactivées.
+     */
+    void failStartup() {
+        state = PluginState.FAILED;
+        cheatListener.discardBuffered();
+        System.out.println("[TopLuck] Storage unavailable, mining statistics are disabled until the next restart.");
     }
 
     /**
      * Méthode appelée lors de la désactivation du plugin.
-     * Ferme la connexion à la base de données si elle est ouverte.
+     * Écrit les statistiques en attente, arrête le thread d'écriture puis ferme les connexions à la base de données.
      */
     @Override
     public void onDisable() {
-        if (connection != null) {
+        if (startup != null) {
+            startup.shutdown();
+        }
+        if (menuListener != null) {
+            menuListener.closeAll();
+        }
+        if (playerIdMigration != null) {
+            playerIdMigration.shutdown();
+        }
+        if (statsService != null) {
+            statsService.shutdown();
+        }
+        if (databaseWriter != null) {
+            databaseWriter.shutdown(statsCache != null ? statsCache.drainPending() : Collections.<StatsDelta>emptyList());
+        }
+        if (placedOreStore != null) {
+            placedOreStore.closeAll();
+        }
+        if (miningJournal != null) {
             try {
-                connection.close();
-            } catch (SQLException e) {
+                miningJournal.close();
+            } catch (IOException e) {
+                System.out.println("[TopLuck] Failed to close the mining journal.");
                 e.printStackTrace();
             }
         }
+        // Dernier relevé, qui inclut les écritures de l'arrêt
+        if (metricsReporter != null) {
+            metricsReporter.run();
+        }
+        if (storage != null) {
+            storage.close();
+        }
     }
 
     /**
-     * Crée la base de données et la table "player_data" si elles n'existent pas.
+     * Crée le planificateur adapté au serveur : celui des régions sur un serveur Folia,
+     * sinon le planificateur Bukkit du thread principal.
+     *
+     * @return Le planificateur.
      */
-    private void createDatabaseAndTable() {
-        try {
-            // Création du dossier de données s'il n'existe pas
-            File dataFolder = getDataFolder();
-            if (!dataFolder.exists()) {
-                dataFolder.mkdirs();
+    private TaskScheduler createTaskScheduler() {
+        if (RegionTaskScheduler.isSupported()) {
+            try {
+                System.out.println("[TopLuck] Region-threaded server detected, using the region schedulers.");
+                return new RegionTaskScheduler(this);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("[TopLuck] Failed to access the region schedulers, using the Bukkit scheduler.");
+                e.printStackTrace();
             }
+        }
+        return new BukkitTaskScheduler(this);
+    }
 
-            // Création du fichier de base de données s'il n'existe pas
-            File dbFile = new File(dataFolder, "data.db");
-            if (!dbFile.exists()) {
-                dbFile.getParentFile().mkdirs();
-                dbFile.createNewFile();
-            }
+    /**
+     * Crée le stockage choisi par "storage.type" : la base MySQL/MariaDB partagée du réseau,
+     * ou par défaut le fichier SQLite "data.db" du serveur, créé s'il n'existe pas.
+     * Appelée par {@link PluginStartup}, hors du thread principal.
+     *
+     * @return Le stockage, sans connexion ouverte.
+     * @throws ClassNotFoundException Si le driver JDBC est introuvable.
+     * @throws IOException            Si le fichier de la base ne peut pas être créé.
+     */
+    Storage createStorage() throws ClassNotFoundException, IOException {
+        if ("mysql".equalsIgnoreCase(getConfig().getString("storage.type", "sqlite"))) {
+            Class.forName(getConfig().getString("storage.mysql.driver", "com.mysql.jdbc.Driver"));
+            return new MySqlStorage(
+                    getConfig().getString("storage.mysql.url", "jdbc:mysql://localhost:3306/topluck"),
+                    getConfig().getString("storage.mysql.user", "topluck"),
+                    getConfig().getString("storage.mysql.password", ""),
+                    Math.max(1, getConfig().getInt("storage.mysql.pool-size", 4)),
+                    oreRegistry);
+        }
 
-            // Initialisation de la connexion SQLite
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getPath());
-
-            // Création de la table "player_data" si elle n'existe pas
-            try (Statement statement = connection.createStatement()) {
-                statement.executeUpdate(
-                        "CREATE TABLE IF NOT EXISTS player_data (" +
-                                "player_name TEXT PRIMARY KEY, " +
-                                "total_blocks INTEGER DEFAULT 0, " +
-                                "diamond_blocks INTEGER DEFAULT 0, " +
-                                "gold_blocks INTEGER DEFAULT 0, " +
-                                "emerald_blocks INTEGER DEFAULT 0, " +
-                                "common_blocks INTEGER DEFAULT 0, " +
-                                "rare_to_common_ratio REAL DEFAULT 0.0" +
-                                ");"
-                );
-            }
-            System.out.println("[TopLuck] Database and table initialized successfully.");
-        } catch (SQLException | IOException e) {
-            e.printStackTrace();
+        Class.forName("org.sqlite.JDBC");
+
+        // Création du dossier de données s'il n'existe pas
+        File dataFolder = getDataFolder();
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
         }
+
+        // Création du fichier de base de données s'il n'existe pas
+        File dbFile = new File(dataFolder, "data.db");
+        if (!dbFile.exists()) {
+            dbFile.getParentFile().mkdirs();
+            dbFile.createNewFile();
+        }
+        return new SqliteStorage(dbFile, oreRegistry);
     }
 
     /**
-     * Retourne la connexion à la base de données.
-     * Si la connexion n'existe pas ou a été fermée, elle est recréée.
+     * Retourne le stockage des statistiques.
      *
-     * @return Connexion à la base de données SQLite.
+     * @return Le stockage, ou {@code null} tant que le plugin n'est pas prêt ou si la base n'a pas pu être ouverte.
      */
-    public Connection getDatabaseConnection() {
-        if (connection == null) {
-            createDatabaseAndTable();
-        }
-        return connection;
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Retourne la classification des blocs suivis.
+     *
+     * @return La table de classification.
+     */
+    public OreRegistry getOreRegistry() {
+        return oreRegistry;
+    }
+
+    /**
+     * Retourne le thread d'écriture en base des statistiques.
+     *
+     * @return Le thread d'écriture.
+     */
+    public DatabaseWriter getDatabaseWriter() {
+        return databaseWriter;
+    }
+
+    /**
+     * Retourne le planificateur des tâches du plugin.
+     *
+     * @return Le planificateur.
+     */
+    public TaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
+    /**
+     * Retourne les mises à jour du classement, regroupées par tick.
+     *
+     * @return Les mises à jour du classement.
+     */
+    public LeaderboardUpdater getLeaderboardUpdater() {
+        return leaderboardUpdater;
+    }
+
+    /**
+     * Retourne les alertes du staff.
+     *
+     * @return Les alertes, ou {@code null} si elles sont désactivées.
+     */
+    public StaffAlerts getStaffAlerts() {
+        return staffAlerts;
+    }
+
+    /**
+     * Retourne le classement des joueurs par score d'anomalie.
+     *
+     * @return Le classement.
+     */
+    public LuckLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Retourne la table des identifiants des joueurs.
+     *
+     * @return La table des identifiants.
+     */
+    public PlayerIndex getPlayerIndex() {
+        return playerIndex;
+    }
+
+    /**
+     * Indique si les anciennes tables indexées par pseudo sont encore en cours de migration.
+     *
+     * @return {@code true} si les lectures doivent aussi consulter les anciennes tables.
+     */
+    public boolean isMigrationPending() {
+        return playerIdMigration != null && !playerIdMigration.isFinished();
+    }
+
+    /**
+     * Retourne les blocs suivis posés par les joueurs.
+     *
+     * @return Le stockage des minerais posés.
+     */
+    public PlacedOreStore getPlacedOreStore() {
+        return placedOreStore;
+    }
+
+    /**
+     * Retourne le journal des minerais rares cassés.
+     *
+     * @return Le journal, ou {@code null} s'il est désactivé.
+     */
+    public MiningJournal getMiningJournal() {
+        return miningJournal;
+    }
+
+    /**
+     * Retourne le score d'anomalie des joueurs.
+     *
+     * @return Le score.
+     */
+    public LuckScorer getLuckScorer() {
+        return luckScorer;
+    }
+
+    /**
+     * Retourne les modèles des menus.
+     *
+     * @return Les modèles des menus.
+     */
+    public GuiTemplates getGuiTemplates() {
+        return guiTemplates;
+    }
+
+    /**
+     * Retourne le cache des têtes de joueurs.
+     *
+     * @return Le cache des têtes.
+     */
+    public SkullCache getSkullCache() {
+        return skullCache;
+    }
+
+    /**
+     * Retourne le service de lecture des statistiques.
+     *
+     * @return Le service de lecture.
+     */
+    public StatsService getStatsService() {
+        return statsService;
+    }
+
+    /**
+     * Retourne l'état du démarrage du plugin.
+     *
+     * @return {@link PluginState#STARTING} tant que le stockage est en cours d'ouverture,
+     * puis {@link PluginState#READY} ou {@link PluginState#FAILED}.
+     */
+    public PluginState getState() {
+        return state;
+    }
+
+    /**
+     * Indique si le stockage est ouvert et les caches chargés.
+     *
+     * @return {@code true} si les statistiques sont disponibles.
+     */
+    public boolean isReady() {
+        return state == PluginState.READY;
+    }
+
+    /**
+     * Retourne le listener des menus, qui ouvre les menus et suit le menu ouvert par chaque joueur.
+     *
+     * @return Le listener des menus.
+     */
+    public MenuListener getMenuListener() {
+        return menuListener;
+    }
+
+    /**
+     * Retourne l'interface graphique paginée du classement.
+     *
+     * @return Le menu du classement.
+     */
+    public LeaderboardMenu getLeaderboardMenu() {
+        return leaderboardMenu;
+    }
+
+    /**
+     * Retourne les mesures de performance du plugin.
+     *
+     * @return Les mesures.
+     */
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Retourne le relevé périodique des mesures.
+     *
+     * @return Le relevé, ou {@code null} si le plugin n'a pas pu démarrer.
+     */
+    public MetricsReporter getMetricsReporter() {
+        return metricsReporter;
+    }
+
+    /**
+     * Retourne le listener des casses de blocs.
+     *
+     * @return Le listener des casses.
+     */
+    public CheatListener getCheatListener() {
+        return cheatListener;
+    }
+
+    /**
+     * Retourne le cache des statistiques des joueurs connectés.
+     *
+     * @return Le cache des statistiques.
+     */
+    public StatsCache getStatsCache() {
+        return statsCache;
     }
 }
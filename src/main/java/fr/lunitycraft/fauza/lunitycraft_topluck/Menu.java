@@ -0,0 +1,91 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Menu du plugin : propriétaire de son inventaire, il est reconnu par le {@link MenuListener}
+ * avec un seul {@code instanceof}, sans comparer de titre.
+ * <p>
+ * Chaque emplacement peut porter une {@link MenuAction}, rangée dans un tableau indexé par
+ * l'emplacement : un clic est distribué en temps constant. Un menu est créé à chaque ouverture
+ * et ne sert qu'à un seul joueur.
+ */
+public class Menu implements InventoryHolder {
+
+    /** Inventaire affiché */
+    private final Inventory inventory;
+
+    /** Action de chaque emplacement, {@code null} pour un emplacement sans effet */
+    private final MenuAction[] actions;
+
+    /**
+     * Crée un menu vide.
+     *
+     * @param size  Nombre d'emplacements (multiple de 9).
+     * @param title Titre de l'inventaire.
+     */
+    public Menu(int size, String title) {
+        this.inventory = Bukkit.createInventory(this, size, title);
+        this.actions = new MenuAction[size];
+    }
+
+    /**
+     * Crée un menu rempli avec la disposition d'un modèle.
+     *
+     * @param template Modèle du menu.
+     * @param title    Titre de l'inventaire.
+     */
+    public Menu(GuiTemplate template, String title) {
+        this.inventory = template.createInventory(this, title);
+        this.actions = new MenuAction[template.getSize()];
+    }
+
+    /**
+     * Place un item et son action.
+     *
+     * @param slot   Emplacement de l'item.
+     * @param item   L'item.
+     * @param action Action du clic, ou {@code null}.
+     */
+    public void setItem(int slot, ItemStack item, MenuAction action) {
+        inventory.setItem(slot, item);
+        actions[slot] = action;
+    }
+
+    /**
+     * Associe une action à un emplacement déjà rempli, par exemple par le modèle.
+     *
+     * @param slot   Emplacement.
+     * @param action Action du clic, ou {@code null}.
+     */
+    public void setAction(int slot, MenuAction action) {
+        actions[slot] = action;
+    }
+
+    /**
+     * Exécute l'action d'un emplacement. Les clics hors du menu (inventaire du joueur) sont ignorés.
+     *
+     * @param viewer  Le joueur qui a cliqué.
+     * @param rawSlot Emplacement cliqué dans la vue.
+     */
+    public void click(Player viewer, int rawSlot) {
+        if (rawSlot < 0 || rawSlot >= actions.length) return;
+        MenuAction action = actions[rawSlot];
+        if (action != null) {
+            action.execute(viewer);
+        }
+    }
+
+    @Override
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
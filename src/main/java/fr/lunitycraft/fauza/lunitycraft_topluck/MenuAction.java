@@ -0,0 +1,21 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Action exécutée par un clic sur un emplacement d'un {@link Menu}.
+ * Les données de l'action (joueur ciblé, page) sont capturées à la construction du menu.
+ */
+public interface MenuAction {
+
+    /**
+     * Exécute l'action.
+     *
+     * @param viewer Le joueur qui a cliqué.
+     */
+    void execute(Player viewer);
+}
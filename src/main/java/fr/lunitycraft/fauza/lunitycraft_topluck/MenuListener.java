@@ -0,0 +1,133 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.InventoryHolder;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Listener unique de tous les menus du plugin.
+ * <p>
+ * Un clic dans un inventaire qui n'est pas un {@link Menu}, soit l'immense majorité des clics
+ * du serveur (coffres, fourneaux), ne coûte qu'un {@code instanceof} sur son propriétaire.
+ * Le menu ouvert par chaque joueur forme sa session, oubliée à la fermeture de l'inventaire
+ * et à la déconnexion. Les sessions sont partagées entre les threads des régions, où chaque joueur
+ * clique sur son propre thread.
+ */
+public class MenuListener implements Listener {
+
+    /** Menu ouvert par chaque joueur */
+    private final Map<UUID, Menu> sessions = new ConcurrentHashMap<>();
+
+    /** Durée du traitement des clics dans les menus */
+    private final Histogram latency;
+
+    /**
+     * Constructeur du listener.
+     *
+     * @param metrics Les mesures du plugin, pour la durée des clics.
+     */
+    public MenuListener(PluginMetrics metrics) {
+        this.latency = metrics.getInventoryClick();
+    }
+
+    /**
+     * Ouvre un menu pour un joueur et en fait sa session.
+     *
+     * @param viewer Le joueur.
+     * @param menu   Le menu à ouvrir.
+     */
+    public void open(Player viewer, Menu menu) {
+        // L'ouverture ferme le menu précédent, dont la session est retirée avant d'être remplacée
+        viewer.openInventory(menu.getInventory());
+        sessions.put(viewer.getUniqueId(), menu);
+    }
+
+    /**
+     * Retourne le menu ouvert par un joueur.
+     *
+     * @param viewer Le joueur.
+     * @return Le menu, ou {@code null} si le joueur n'a aucun menu du plugin ouvert.
+     */
+    public Menu getSession(Player viewer) {
+        return sessions.get(viewer.getUniqueId());
+    }
+
+    /**
+     * Empêche la prise d'objets dans un menu et exécute l'action de l'emplacement cliqué.
+     *
+     * @param event L'événement de clic dans l'inventaire.
+     */
+    @EventHandler
+    public void onInventoryClick(InventoryClickEvent event) {
+        InventoryHolder holder = event.getInventory().getHolder();
+        if (!(holder instanceof Menu)) return;
+
+        long start = System.nanoTime();
+        event.setCancelled(true);
+        ((Menu) holder).click((Player) event.getWhoClicked(), event.getRawSlot());
+        latency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Empêche de déposer des objets dans un menu en les faisant glisser.
+     *
+     * @param event L'événement de glissement dans l'inventaire.
+     */
+    @EventHandler
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getInventory().getHolder() instanceof Menu) {
+            event.setCancelled(true);
+        }
+    }
+
+    /**
+     * Oublie la session d'un joueur qui ferme son menu.
+     *
+     * @param event L'événement de fermeture de l'inventaire.
+     */
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        InventoryHolder holder = event.getInventory().getHolder();
+        if (holder instanceof Menu) {
+            sessions.remove(event.getPlayer().getUniqueId(), holder);
+        }
+    }
+
+    /**
+     * Oublie la session d'un joueur qui se déconnecte.
+     *
+     * @param event L'événement de déconnexion.
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Ferme tous les menus ouverts, à la désactivation du plugin : sans listener,
+     * leurs items pourraient être pris.
+     */
+    public void closeAll() {
+        for (Menu menu : new ArrayList<>(sessions.values())) {
+            for (HumanEntity viewer : new ArrayList<>(menu.getInventory().getViewers())) {
+                viewer.closeInventory();
+            }
+        }
+        sessions.clear();
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Relevé des mesures sur un intervalle, sous deux formes : des lignes lisibles pour /topluck metrics
+ * et une ligne "clé=valeur" pour le fichier de mesures.
+ */
+public final class MetricsReport {
+
+    /** Heure du relevé, en millisecondes */
+    private final long timestamp;
+
+    /** Durée couverte par le relevé, en millisecondes */
+    private final long intervalMillis;
+
+    /** Valeurs pour le fichier, dans l'ordre d'ajout */
+    private final Map<String, String> fields = new LinkedHashMap<>();
+
+    /** Lignes pour le chat */
+    private final List<String> lines = new ArrayList<>();
+
+    public MetricsReport(long timestamp, long intervalMillis) {
+        this.timestamp = timestamp;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Ajoute un histogramme de durées en nanosecondes, affichées en microsecondes.
+     *
+     * @param name     Nom de la mesure.
+     * @param snapshot Relevé de l'histogramme.
+     */
+    public void latency(String name, Histogram.Snapshot snapshot) {
+        String p50 = micros(snapshot.percentile(0.5));
+        String p99 = micros(snapshot.percentile(0.99));
+        String max = micros(snapshot.getMax());
+        fields.put(name + ".count", Long.toString(snapshot.getCount()));
+        fields.put(name + ".p50_us", p50);
+        fields.put(name + ".p99_us", p99);
+        fields.put(name + ".max_us", max);
+        lines.add(name + " : " + snapshot.getCount() + " appels, p50 " + p50 + " µs, p99 " + p99
+                + " µs, max " + max + " µs");
+    }
+
+    /**
+     * Ajoute un histogramme de tailles (nombre d'éléments).
+     *
+     * @param name     Nom de la mesure.
+     * @param snapshot Relevé de l'histogramme.
+     */
+    public void distribution(String name, Histogram.Snapshot snapshot) {
+        fields.put(name + ".count", Long.toString(snapshot.getCount()));
+        fields.put(name + ".p50", Long.toString(snapshot.percentile(0.5)));
+        fields.put(name + ".p99", Long.toString(snapshot.percentile(0.99)));
+        fields.put(name + ".max", Long.toString(snapshot.getMax()));
+        lines.add(name + " : " + snapshot.getCount() + " relevés, p50 " + snapshot.percentile(0.5)
+                + ", p99 " + snapshot.percentile(0.99) + ", max " + snapshot.getMax());
+    }
+
+    /**
+     * Ajoute un compteur ou une jauge.
+     *
+     * @param name  Nom de la mesure.
+     * @param value Valeur.
+     */
+    public void value(String name, long value) {
+        fields.put(name, Long.toString(value));
+        lines.add(name + " : " + value);
+    }
+
+    /**
+     * Ajoute le taux de réussite d'un cache.
+     *
+     * @param name   Nom du cache.
+     * @param hits   Nombre de recherches réussies.
+     * @param misses Nombre de recherches échouées.
+     */
+    public void hitRate(String name, long hits, long misses) {
+        long total = hits + misses;
+        String rate = total == 0 ? "-" : String.format(Locale.ROOT, "%.1f", 100.0 * hits / total);
+        fields.put(name + ".hits", Long.toString(hits));
+        fields.put(name + ".misses", Long.toString(misses));
+        fields.put(name + ".hit_rate_pct", rate);
+        lines.add(name + " : " + rate + " % de " + total + " recherches");
+    }
+
+    /**
+     * Retourne la ligne du fichier de mesures : l'heure ISO-8601, la durée couverte puis les valeurs.
+     *
+     * @return La ligne, sans retour à la ligne final.
+     */
+    public String toLogLine() {
+        StringBuilder line = new StringBuilder(Instant.ofEpochMilli(timestamp).toString())
+                .append(" interval_s=").append(intervalMillis / 1000);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            line.append(' ').append(field.getKey()).append('=').append(field.getValue());
+        }
+        return line.toString();
+    }
+
+    public List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
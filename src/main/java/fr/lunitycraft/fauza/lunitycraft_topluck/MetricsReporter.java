@@ -0,0 +1,143 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Relève périodiquement les {@link PluginMetrics} et les écrit dans le dossier "metrics",
+ * un fichier par jour ("metrics-AAAA-MM-JJ.log", une ligne par relevé) ; seuls les derniers
+ * fichiers sont conservés. Le dernier relevé reste disponible pour /topluck metrics.
+ * <p>
+ * Planifié hors du thread principal : le relevé ne lit que des compteurs sûrs entre threads.
+ */
+public class MetricsReporter implements Runnable {
+
+    private static final String FILE_PREFIX = "metrics-";
+    private static final String FILE_SUFFIX = ".log";
+
+    /** Référence à l'instance principale du plugin */
+    private final LunityCraft_TopLuck plugin;
+
+    /** Dossier des fichiers de mesures */
+    private final File folder;
+
+    /** Nombre de fichiers journaliers conservés */
+    private final int retainedFiles;
+
+    /** Heure du relevé précédent, en millisecondes */
+    private long lastRun = System.currentTimeMillis();
+
+    private volatile MetricsReport lastReport;
+
+    /**
+     * Constructeur du relevé.
+     *
+     * @param plugin        Instance du plugin LunityCraft_TopLuck
+     * @param folder        Dossier des fichiers de mesures.
+     * @param retainedFiles Nombre de fichiers journaliers conservés.
+     */
+    public MetricsReporter(LunityCraft_TopLuck plugin, File folder, int retainedFiles) {
+        this.plugin = plugin;
+        this.folder = folder;
+        this.retainedFiles = retainedFiles;
+    }
+
+    /**
+     * Relève les mesures de l'intervalle écoulé et les ajoute au fichier du jour.
+     */
+    @Override
+    public synchronized void run() {
+        MetricsReport report = collect();
+        lastReport = report;
+        append(report);
+    }
+
+    /**
+     * Retourne le dernier relevé.
+     *
+     * @return Le relevé, ou {@code null} si aucun intervalle n'est encore écoulé.
+     */
+    public MetricsReport getLastReport() {
+        return lastReport;
+    }
+
+    private MetricsReport collect() {
+        long now = System.currentTimeMillis();
+        MetricsReport report = new MetricsReport(now, now - lastRun);
+        lastRun = now;
+
+        PluginMetrics metrics = plugin.getMetrics();
+        report.latency("block_break", metrics.getBlockBreak().snapshotAndReset());
+        report.latency("inventory_click", metrics.getInventoryClick().snapshotAndReset());
+        report.latency("db_write", metrics.getDatabaseWrite().snapshotAndReset());
+        report.distribution("db_write_batch", metrics.getWriteBatch().snapshotAndReset());
+        report.latency("db_read", metrics.getDatabaseRead().snapshotAndReset());
+        report.latency("db_migration", metrics.getMigrationBatch().snapshotAndReset());
+        report.latency("journal_compaction", metrics.getJournalCompaction().snapshotAndReset());
+        report.latency("history_rollup", metrics.getHistoryRollup().snapshotAndReset());
+        report.value("db_statements", metrics.getDatabaseStatements().sumThenReset());
+        report.hitRate("stats_cache", metrics.getStatsHits().sumThenReset(), metrics.getStatsMisses().sumThenReset());
+        report.hitRate("skull_cache", metrics.getSkullHits().sumThenReset(), metrics.getSkullMisses().sumThenReset());
+
+        DatabaseWriter writer = plugin.getDatabaseWriter();
+        if (writer != null) {
+            report.value("writer_queue", writer.getQueueSize());
+            report.value("writer_rejected_total", writer.getRejectedDeltas());
+            report.value("writer_failed_total", writer.getFailedWrites());
+        }
+        StatsService statsService = plugin.getStatsService();
+        if (statsService != null) {
+            report.value("slow_loads_total", statsService.getSlowLoads());
+        }
+        StaffAlerts staffAlerts = plugin.getStaffAlerts();
+        if (staffAlerts != null) {
+            report.value("alerts_sent_total", staffAlerts.getSentAlerts());
+            report.value("alerts_throttled_total", staffAlerts.getThrottledAlerts());
+        }
+        return report;
+    }
+
+    private void append(MetricsReport report) {
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        File file = new File(folder, FILE_PREFIX + LocalDate.now() + FILE_SUFFIX);
+        boolean newFile = !file.exists();
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(report.toLogLine());
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            System.out.println("[TopLuck] Failed to write metrics to " + file.getName() + ".");
+            e.printStackTrace();
+            return;
+        }
+        if (newFile) {
+            deleteOldFiles();
+        }
+    }
+
+    /**
+     * Supprime les fichiers les plus anciens au-delà du nombre conservé ; les noms datés se trient par date.
+     */
+    private void deleteOldFiles() {
+        File[] files = folder.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length <= retainedFiles) return;
+        Arrays.sort(files);
+        for (int i = 0; i < files.length - retainedFiles; i++) {
+            if (!files[i].delete()) {
+                System.out.println("[TopLuck] Failed to delete old metrics file " + files[i].getName() + ".");
+            }
+        }
+    }
+}
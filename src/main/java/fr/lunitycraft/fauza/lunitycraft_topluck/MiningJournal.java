@@ -0,0 +1,374 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Journal en ajout seul des minerais rares cassés, conservé comme preuve en cas de sanction :
+ * contrairement aux totaux en base, aucun enregistrement n'est jamais modifié.
+ * <p>
+ * Le journal est découpé en segments de taille fixe ("segment-NNNNNNNNNNNNNNNN.bin" dans le dossier
+ * "journal"), chacun projeté en mémoire. Un segment commence par un en-tête de {@value #HEADER_SIZE} octets
+ * suivi d'enregistrements de {@value #RECORD_SIZE} octets :
+ * <pre>
+ *  0  long  position (x, z sur 26 bits, y sur 12 bits, voir {@link #pack(int, int, int)})
+ *  8  int   identifiant du joueur
+ * 12  short identifiant numérique du matériau
+ * 14  byte  index du monde dans "worlds.txt", non signé (au plus {@value #MAX_WORLDS} mondes)
+ * 15  byte  luminosité autour du bloc (0 à 15)
+ * 16  long  heure de la casse, en millisecondes, écrite en dernier
+ * </pre>
+ * Un enregistrement n'est complet que si son heure est non nulle : après un arrêt brutal,
+ * la fin du segment actif est retrouvée en cherchant la première heure nulle.
+ * <p>
+ * L'ajout se fait directement dans la projection du fichier, sans allocation, sous le verrou du journal :
+ * seuls les minerais rares y sont ajoutés, et les threads des régions d'un serveur Folia se le disputent peu ;
+ * lorsqu'un segment est plein, il est écrit sur disque et scellé, puis un nouveau segment est ouvert.
+ * Les mondes sont ajoutés à "worlds.txt" à leur chargement ({@link #registerWorld(World)}), jamais pendant
+ * une casse ; les casses d'un monde au-delà du {@value #MAX_WORLDS}e ne sont pas journalisées, plutôt
+ * que d'être attribuées à un autre monde.
+ * Les segments scellés sont lus par le {@link JournalCompactor}.
+ * <p>
+ * Un segment dont l'en-tête n'a pas été écrit (arrêt brutal juste après sa création) est repris comme
+ * un segment vide à sa réouverture, son en-tête est alors écrit ; un segment scellé illisible est mis
+ * à l'écart par le {@link JournalCompactor} sous le nom "segment-NNNNNNNNNNNNNNNN.bin{@value #QUARANTINE_SUFFIX}".
+ */
+public final class MiningJournal {
+
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 24;
+
+    /** Nombre de mondes que l'index sur un octet peut désigner */
+    public static final int MAX_WORLDS = 256;
+
+    /** "TLJ1" */
+    private static final int MAGIC = 0x544C4A31;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    /** Suffixe ajouté au nom des segments illisibles, qui ne sont plus listés */
+    public static final String QUARANTINE_SUFFIX = ".corrupt";
+
+    /** Dossier des segments */
+    private final File folder;
+
+    /** Nombre d'enregistrements des nouveaux segments */
+    private final int segmentRecords;
+
+    /** Identifiant du journal, unique par serveur, qui marque sa progression en base */
+    private final String journalId;
+
+    /** Index de chaque monde, par nom, enregistrés dans "worlds.txt" ; tous les noms du fichier y figurent */
+    private final Map<String, Integer> worldIndexes = new HashMap<>();
+
+    /** Nombre de noms dans "worlds.txt", y compris ceux au-delà de {@value #MAX_WORLDS} */
+    private int worldCount;
+
+    /** Dernier monde rencontré, pour éviter la recherche par nom à chaque casse */
+    private World lastWorld;
+    private int lastWorldIndex;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /** Numéro du segment actif ; les segments de numéro inférieur sont scellés */
+    private volatile long activeSegment;
+
+    /** Nombre d'enregistrements du segment actif */
+    private int records;
+
+    /** Capacité du segment actif, qui peut dater d'une configuration précédente */
+    private int capacity;
+
+    /**
+     * Ouvre le journal, en reprenant le dernier segment s'il n'est pas plein.
+     *
+     * @param folder         Dossier des segments.
+     * @param segmentRecords Nombre d'enregistrements par segment.
+     * @throws IOException En cas d'erreur d'accès aux fichiers.
+     */
+    public MiningJournal(File folder, int segmentRecords) throws IOException {
+        this.folder = folder;
+        this.segmentRecords = segmentRecords;
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        this.journalId = loadJournalId();
+        loadWorlds();
+
+        List<Long> segments = listSegments();
+        open(segments.isEmpty() ? 1 : segments.get(segments.size() - 1));
+        if (records == capacity) {
+            rotate();
+        }
+    }
+
+    /**
+     * Ajoute la casse d'un minerai au journal.
+     *
+     * @param timestamp Heure de la casse, en millisecondes.
+     * @param playerId  Identifiant du joueur.
+     * @param material  Matériau du bloc.
+     * @param world     Monde du bloc.
+     * @param x         Coordonnée X du bloc.
+     * @param y         Coordonnée Y du bloc.
+     * @param z         Coordonnée Z du bloc.
+     * @param light     Luminosité autour du bloc.
+     * @throws IOException Si le segment suivant ne peut pas être ouvert.
+     */
+    @SuppressWarnings("deprecation")
+    public synchronized void append(long timestamp, int playerId, Material material, World world, int x, int y, int z, int light)
+            throws IOException {
+        int worldIndex = worldIndex(world);
+        if (worldIndex < 0) return;
+        if (records == capacity) {
+            rotate();
+        }
+        int offset = HEADER_SIZE + records * RECORD_SIZE;
+        buffer.putLong(offset, pack(x, y, z));
+        buffer.putInt(offset + 8, playerId);
+        buffer.putShort(offset + 12, (short) material.getId());
+        buffer.put(offset + 14, (byte) worldIndex);
+        buffer.put(offset + 15, (byte) light);
+        buffer.putLong(offset + 16, timestamp);
+        records++;
+    }
+
+    /**
+     * Enregistre un monde dans "worlds.txt" s'il n'y figure pas encore. Appelée au démarrage pour les mondes
+     * chargés, puis au chargement de chaque monde, pour que l'ajout d'une casse n'écrive jamais ce fichier.
+     *
+     * @param world Le monde chargé.
+     * @throws IOException Si "worlds.txt" ne peut pas être écrit.
+     */
+    public synchronized void registerWorld(World world) throws IOException {
+        if (worldIndexes.containsKey(world.getName())) return;
+        Files.write(new File(folder, "worlds.txt").toPath(),
+                Collections.singletonList(world.getName()), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        addWorld(world.getName());
+        lastWorld = null;
+        if (worldIndexes.get(world.getName()) < 0) {
+            System.out.println("[TopLuck] More than " + MAX_WORLDS + " worlds, block breaks in "
+                    + world.getName() + " are not added to the mining journal.");
+        }
+    }
+
+    /**
+     * Écrit le segment actif sur disque et ferme le journal ; il sera repris au prochain démarrage.
+     *
+     * @throws IOException En cas d'erreur lors de la fermeture.
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * Retourne les numéros des segments scellés, du plus ancien au plus récent.
+     * Utilisable depuis n'importe quel thread.
+     *
+     * @return Les numéros des segments scellés.
+     */
+    public List<Long> getSealedSegments() {
+        long active = activeSegment;
+        List<Long> sealed = new ArrayList<>();
+        for (long segment : listSegments()) {
+            if (segment < active) sealed.add(segment);
+        }
+        return sealed;
+    }
+
+    /**
+     * Retourne le fichier d'un segment.
+     *
+     * @param segment Numéro du segment.
+     * @return Le fichier.
+     */
+    public File getSegmentFile(long segment) {
+        return new File(folder, SEGMENT_PREFIX + String.format("%016d", segment) + SEGMENT_SUFFIX);
+    }
+
+    public String getJournalId() {
+        return journalId;
+    }
+
+    /**
+     * Lit les enregistrements complets d'un segment scellé.
+     *
+     * @param segmentFile Fichier du segment.
+     * @return Le contenu du segment, limité aux enregistrements complets, positionné sur le premier,
+     *         ou {@code null} si le fichier n'est pas un segment du journal.
+     * @throws IOException Si le fichier ne peut pas être lu.
+     */
+    public static ByteBuffer readSegment(File segmentFile) throws IOException {
+        try (FileChannel segmentChannel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer content = ByteBuffer.allocate((int) segmentChannel.size());
+            while (content.hasRemaining() && segmentChannel.read(content) >= 0) {
+                // Lecture complète du segment
+            }
+            content.flip();
+            if (content.limit() < HEADER_SIZE || content.getInt(0) != MAGIC || content.getInt(8) != RECORD_SIZE) {
+                return null;
+            }
+            content.limit(HEADER_SIZE + countRecords(content, (content.limit() - HEADER_SIZE) / RECORD_SIZE) * RECORD_SIZE);
+            content.position(HEADER_SIZE);
+            return content;
+        }
+    }
+
+    /**
+     * Code une position de bloc sur 64 bits : x et z sur 26 bits, y sur 12 bits.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static int unpackX(long position) {
+        return (int) (position >> 38);
+    }
+
+    public static int unpackY(long position) {
+        return (int) (position << 52 >> 52);
+    }
+
+    public static int unpackZ(long position) {
+        return (int) (position << 26 >> 38);
+    }
+
+    /**
+     * Scelle le segment actif et ouvre le suivant.
+     */
+    private void rotate() throws IOException {
+        long next = activeSegment + 1;
+        buffer.force();
+        channel.close();
+        file.close();
+        open(next);
+        System.out.println("[TopLuck] Sealed mining journal segment " + (next - 1) + ".");
+    }
+
+    /**
+     * Ouvre ou crée un segment et retrouve son nombre d'enregistrements. Un segment existant trop court
+     * pour contenir son en-tête ne contient aucun enregistrement : il est repris à la taille d'un nouveau segment.
+     */
+    private void open(long segment) throws IOException {
+        File segmentFile = getSegmentFile(segment);
+        long size = HEADER_SIZE + (long) segmentRecords * RECORD_SIZE;
+
+        file = new RandomAccessFile(segmentFile, "rw");
+        channel = file.getChannel();
+        if (channel.size() > HEADER_SIZE) {
+            size = channel.size();
+        }
+        file.setLength(size);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        // En-tête absent : segment neuf, ou créé juste avant un arrêt brutal
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, 1);
+            buffer.putInt(8, RECORD_SIZE);
+        }
+        capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+        records = countRecords(buffer, capacity);
+        activeSegment = segment;
+    }
+
+    /**
+     * Compte les enregistrements complets, jusqu'à la première heure nulle.
+     */
+    private static int countRecords(ByteBuffer content, int capacity) {
+        int count = 0;
+        while (count < capacity && content.getLong(HEADER_SIZE + count * RECORD_SIZE + 16) != 0) {
+            count++;
+        }
+        return count;
+    }
+
+    private List<Long> listSegments() {
+        List<Long> segments = new ArrayList<>();
+        String[] names = folder.list();
+        if (names == null) return segments;
+        for (String name : names) {
+            if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) continue;
+            try {
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Retourne l'index d'un monde enregistré.
+     *
+     * @return L'index, ou -1 si le monde n'a pas été enregistré ou dépasse {@value #MAX_WORLDS} mondes.
+     */
+    private int worldIndex(World world) {
+        if (world == lastWorld) return lastWorldIndex;
+        Integer index = worldIndexes.get(world.getName());
+        if (index == null) {
+            System.out.println("[TopLuck] World " + world.getName() + " was not registered in the mining journal, break not journaled.");
+            index = -1;
+        }
+        lastWorld = world;
+        lastWorldIndex = index;
+        return index;
+    }
+
+    /**
+     * Attribue l'index suivant à un nom de "worlds.txt", ou -1 au-delà de {@value #MAX_WORLDS} mondes.
+     */
+    private void addWorld(String name) {
+        worldIndexes.put(name, worldCount < MAX_WORLDS ? worldCount : -1);
+        worldCount++;
+    }
+
+    private void loadWorlds() throws IOException {
+        File worlds = new File(folder, "worlds.txt");
+        if (!worlds.exists()) return;
+        for (String name : Files.readAllLines(worlds.toPath(), StandardCharsets.UTF_8)) {
+            if (name.isEmpty()) continue;
+            // L'index d'un monde est son rang dans le fichier : un doublon y occupe tout de même une ligne
+            if (worldIndexes.containsKey(name)) {
+                worldCount++;
+            } else {
+                addWorld(name);
+            }
+        }
+    }
+
+    private String loadJournalId() throws IOException {
+        File idFile = new File(folder, "journal.id");
+        if (idFile.exists()) {
+            return new String(Files.readAllBytes(idFile.toPath()), StandardCharsets.UTF_8).trim();
+        }
+        String id = UUID.randomUUID().toString();
+        Files.write(idFile.toPath(), id.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+}
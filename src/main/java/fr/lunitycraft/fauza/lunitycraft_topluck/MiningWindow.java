@@ -0,0 +1,186 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.Arrays;
+
+/**
+ * Fenêtres glissantes de minage d'un joueur connecté, à mémoire constante.
+ * <p>
+ * Deux anneaux de compartiments horodatés : un par minute sur la dernière heure
+ * et un par heure sur le dernier jour. Chaque compartiment contient le nombre de blocs
+ * par catégorie ainsi que les sommes pondérées rares et communes, ce qui permet de calculer
+ * le ratio sur une fenêtre. Un compartiment trop ancien est remis à zéro lorsqu'il est réutilisé.
+ * L'enregistrement d'un bloc n'alloue aucun objet.
+ */
+public final class MiningWindow {
+
+    /** Nombre de compartiments d'une minute (dernière heure) */
+    public static final int MINUTE_BUCKETS = 60;
+
+    /** Nombre de compartiments d'une heure (dernier jour) */
+    public static final int HOUR_BUCKETS = 24;
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    private final Ring minutes;
+    private final Ring hours;
+
+    /**
+     * Crée les fenêtres d'un joueur.
+     *
+     * @param categoryCount Nombre de catégories suivies ({@link OreRegistry#size()}).
+     */
+    public MiningWindow(int categoryCount) {
+        this.minutes = new Ring(MINUTE_BUCKETS, categoryCount);
+        this.hours = new Ring(HOUR_BUCKETS, categoryCount);
+    }
+
+    /**
+     * Enregistre un bloc cassé dans les deux fenêtres.
+     *
+     * @param category Catégorie du bloc.
+     * @param weight   Poids du matériau.
+     * @param now      Heure de l'événement, en millisecondes.
+     */
+    public void record(OreCategory category, double weight, long now) {
+        minutes.record(now / MILLIS_PER_MINUTE, category, weight);
+        hours.record(now / MILLIS_PER_HOUR, category, weight);
+    }
+
+    /**
+     * Compte les blocs d'une catégorie cassés pendant les dernières minutes.
+     *
+     * @param category La catégorie, éventuellement {@code null}.
+     * @param window   Durée de la fenêtre en minutes, au plus {@link #MINUTE_BUCKETS}.
+     * @param now      Heure actuelle, en millisecondes.
+     * @return Le nombre de blocs.
+     */
+    public long countLastMinutes(OreCategory category, int window, long now) {
+        return category == null ? 0 : minutes.count(now / MILLIS_PER_MINUTE, window, category.getIndex());
+    }
+
+    /**
+     * Compte les blocs d'une catégorie cassés pendant les dernières heures.
+     *
+     * @param category La catégorie, éventuellement {@code null}.
+     * @param window   Durée de la fenêtre en heures, au plus {@link #HOUR_BUCKETS}.
+     * @param now      Heure actuelle, en millisecondes.
+     * @return Le nombre de blocs.
+     */
+    public long countLastHours(OreCategory category, int window, long now) {
+        return category == null ? 0 : hours.count(now / MILLIS_PER_HOUR, window, category.getIndex());
+    }
+
+    /**
+     * Calcule le ratio blocs rares / blocs communs sur les dernières minutes.
+     *
+     * @param window Durée de la fenêtre en minutes, au plus {@link #MINUTE_BUCKETS}.
+     * @param now    Heure actuelle, en millisecondes.
+     * @return Le ratio pondéré sur la fenêtre.
+     */
+    public double ratioLastMinutes(int window, long now) {
+        return minutes.ratio(now / MILLIS_PER_MINUTE, window);
+    }
+
+    /**
+     * Calcule le ratio blocs rares / blocs communs sur les dernières heures.
+     *
+     * @param window Durée de la fenêtre en heures, au plus {@link #HOUR_BUCKETS}.
+     * @param now    Heure actuelle, en millisecondes.
+     * @return Le ratio pondéré sur la fenêtre.
+     */
+    public double ratioLastHours(int window, long now) {
+        return hours.ratio(now / MILLIS_PER_HOUR, window);
+    }
+
+    /**
+     * Calcule la mémoire occupée par les fenêtres d'un joueur, hors en-têtes d'objets.
+     *
+     * @param categoryCount Nombre de catégories suivies.
+     * @return La taille en octets.
+     */
+    public static long bytesPerPlayer(int categoryCount) {
+        // Par compartiment : un horodatage (long), deux sommes (float) et un compteur (int) par catégorie
+        return (long) (MINUTE_BUCKETS + HOUR_BUCKETS) * (8 + 4 + 4 + 4L * categoryCount);
+    }
+
+    /**
+     * Anneau de compartiments de durée fixe.
+     */
+    private static final class Ring {
+
+        private final int bucketCount;
+        private final int categoryCount;
+
+        /** Période (minute ou heure depuis l'epoch) de chaque compartiment */
+        private final long[] periods;
+
+        /** Compteurs par compartiment et par catégorie : counts[bucket * categoryCount + category] */
+        private final int[] counts;
+
+        /** Sommes pondérées rares et communes par compartiment */
+        private final float[] rareWeighted;
+        private final float[] commonWeighted;
+
+        private Ring(int bucketCount, int categoryCount) {
+            this.bucketCount = bucketCount;
+            this.categoryCount = categoryCount;
+            this.periods = new long[bucketCount];
+            this.counts = new int[bucketCount * categoryCount];
+            this.rareWeighted = new float[bucketCount];
+            this.commonWeighted = new float[bucketCount];
+            Arrays.fill(periods, -1);
+        }
+
+        private void record(long period, OreCategory category, double weight) {
+            int bucket = (int) (period % bucketCount);
+            // Casse rejouée plus ancienne que la fenêtre : elle ne doit pas effacer un compartiment récent
+            if (periods[bucket] > period) return;
+            if (periods[bucket] != period) {
+                // Compartiment réutilisé : on efface la période précédente
+                periods[bucket] = period;
+                int base = bucket * categoryCount;
+                for (int i = 0; i < categoryCount; i++) {
+                    counts[base + i] = 0;
+                }
+                rareWeighted[bucket] = 0;
+                commonWeighted[bucket] = 0;
+            }
+
+            counts[bucket * categoryCount + category.getIndex()]++;
+            if (category.isRare()) {
+                rareWeighted[bucket] += (float) weight;
+            } else {
+                commonWeighted[bucket] += (float) weight;
+            }
+        }
+
+        private long count(long period, int window, int categoryIndex) {
+            long total = 0;
+            long oldest = period - Math.min(window, bucketCount);
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                if (periods[bucket] > oldest && periods[bucket] <= period) {
+                    total += counts[bucket * categoryCount + categoryIndex];
+                }
+            }
+            return total;
+        }
+
+        private double ratio(long period, int window) {
+            double rare = 0;
+            double common = 0;
+            long oldest = period - Math.min(window, bucketCount);
+            for (int bucket = 0; bucket < bucketCount; bucket++) {
+                if (periods[bucket] > oldest && periods[bucket] <= period) {
+                    rare += rareWeighted[bucket];
+                    common += commonWeighted[bucket];
+                }
+            }
+            return rare / (common + 1);
+        }
+    }
+}
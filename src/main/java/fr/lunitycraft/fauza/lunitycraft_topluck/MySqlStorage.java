@@ -0,0 +1,224 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Stockage dans une base MySQL/MariaDB partagée par tous les serveurs du réseau : la chance d'un
+ * joueur est cumulée quel que soit le serveur sur lequel il mine.
+ * <p>
+ * Les totaux sont écrits avec {@code INSERT ... ON DUPLICATE KEY UPDATE col = col + VALUES(col)} :
+ * chaque serveur n'envoie que ses propres incréments, que la base additionne, de sorte que deux
+ * serveurs n'écrasent jamais leurs écritures. Les identifiants des joueurs sont attribués par
+ * la base ({@code AUTO_INCREMENT}) et non par chaque serveur, pour qu'ils soient les mêmes partout.
+ * <p>
+ * La même syntaxe est acceptée par H2 2.x en mode de compatibilité MySQL
+ * ({@code jdbc:h2:./topluck;MODE=MySQL;NON_KEYWORDS=DAY}), utilisable pour essayer ce stockage en local ;
+ * {@code DAY}, mot réservé de H2, y nomme la colonne du jour des tables d'historique.
+ */
+public class MySqlStorage extends JdbcStorage {
+
+    private static final String INSERT_PLAYER_QUERY =
+            "INSERT INTO players (uuid, name) VALUES (?, ?) ON DUPLICATE KEY UPDATE name = VALUES(name)";
+
+    private static final String SELECT_PLAYER_ID_QUERY =
+            "SELECT id FROM players WHERE uuid = ?";
+
+    /**
+     * Crée le stockage sans ouvrir de connexion.
+     *
+     * @param url         URL JDBC de la base.
+     * @param user        Utilisateur de la base.
+     * @param password    Mot de passe de l'utilisateur.
+     * @param poolSize    Nombre maximal de connexions ouvertes.
+     * @param oreRegistry Classification des blocs suivis.
+     */
+    public MySqlStorage(String url, String user, String password, int poolSize, OreRegistry oreRegistry) {
+        super(new ConnectionPool(url, credentials(user, password), poolSize, Collections.<String>emptyList()),
+                oreRegistry);
+    }
+
+    @Override
+    protected List<String> schema() {
+        return Arrays.asList(
+                "CREATE TABLE IF NOT EXISTS players (" +
+                        "id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                        "uuid CHAR(36) UNIQUE, " +
+                        "name VARCHAR(32) NOT NULL" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS player_stats (" +
+                        "player_id INT NOT NULL PRIMARY KEY, " +
+                        "total_blocks BIGINT NOT NULL DEFAULT 0, " +
+                        "rare_to_common_ratio DOUBLE NOT NULL DEFAULT 0, " +
+                        "luck_score DOUBLE NOT NULL DEFAULT 0" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS player_ores (" +
+                        "player_id INT NOT NULL, " +
+                        "category VARCHAR(32) NOT NULL, " +
+                        "count BIGINT NOT NULL DEFAULT 0, " +
+                        "weighted DOUBLE NOT NULL DEFAULT 0, " +
+                        "veins BIGINT NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, category)" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS player_ore_history (" +
+                        "player_id INT NOT NULL, " +
+                        "day INT NOT NULL, " +
+                        "category VARCHAR(32) NOT NULL, " +
+                        "count BIGINT NOT NULL DEFAULT 0, " +
+                        "dark BIGINT NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, day, category)" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS journal_checkpoints (" +
+                        "journal CHAR(36) NOT NULL PRIMARY KEY, " +
+                        "segment BIGINT NOT NULL" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS player_ore_daily (" +
+                        "player_id INT NOT NULL, " +
+                        "day INT NOT NULL, " +
+                        "category VARCHAR(32) NOT NULL, " +
+                        "count BIGINT NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, day, category)" +
+                        ")",
+                "CREATE TABLE IF NOT EXISTS player_ore_weekly (" +
+                        "player_id INT NOT NULL, " +
+                        "week INT NOT NULL, " +
+                        "category VARCHAR(32) NOT NULL, " +
+                        "count BIGINT NOT NULL DEFAULT 0, " +
+                        "dark BIGINT NOT NULL DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, week, category)" +
+                        ")"
+        );
+    }
+
+    @Override
+    protected List<Migration> migrations() {
+        return Arrays.<Migration>asList(
+                // 1 : index par jour des tables journalières, pour leur regroupement par semaine
+                connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate("CREATE INDEX player_ore_daily_day ON player_ore_daily (day)");
+                        statement.executeUpdate("CREATE INDEX player_ore_history_day ON player_ore_history (day)");
+                    }
+                },
+                // 2 : répartition des blocs par couche et par luminosité
+                connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate("ALTER TABLE player_ores ADD COLUMN profile BLOB");
+                    }
+                }
+        );
+    }
+
+    @Override
+    protected String upsertPlayerQuery() {
+        return "INSERT INTO players (id, uuid, name) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE name = VALUES(name)";
+    }
+
+    @Override
+    protected String upsertStatsQuery() {
+        return "INSERT INTO player_stats (player_id, total_blocks, rare_to_common_ratio, luck_score) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "total_blocks = total_blocks + VALUES(total_blocks), " +
+                "rare_to_common_ratio = VALUES(rare_to_common_ratio), " +
+                "luck_score = VALUES(luck_score)";
+    }
+
+    @Override
+    protected String upsertOreQuery() {
+        return "INSERT INTO player_ores (player_id, category, count, weighted, veins, profile) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "count = count + VALUES(count), " +
+                "weighted = weighted + VALUES(weighted), " +
+                "veins = veins + VALUES(veins), " +
+                "profile = VALUES(profile)";
+    }
+
+    /**
+     * Verrouille les lignes lues : un autre serveur qui écrit le même joueur attend la fin
+     * de la transaction, puis relit les répartitions fusionnées.
+     */
+    @Override
+    protected String selectProfilesQuery() {
+        return super.selectProfilesQuery() + " FOR UPDATE";
+    }
+
+    @Override
+    protected String upsertHistoryQuery() {
+        return "INSERT INTO player_ore_history (player_id, day, category, count, dark) VALUES (?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE " +
+                "count = count + VALUES(count), " +
+                "dark = dark + VALUES(dark)";
+    }
+
+    @Override
+    protected String upsertCheckpointQuery() {
+        return "INSERT INTO journal_checkpoints (journal, segment) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE segment = VALUES(segment)";
+    }
+
+    @Override
+    protected String upsertDailyQuery() {
+        return "INSERT INTO player_ore_daily (player_id, day, category, count) VALUES (?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE count = count + VALUES(count)";
+    }
+
+    @Override
+    protected String rollupWeeklyQuery(String select) {
+        return "INSERT INTO player_ore_weekly (player_id, week, category, count, dark) " + select + " " +
+                "ON DUPLICATE KEY UPDATE " +
+                "count = count + VALUES(count), " +
+                "dark = dark + VALUES(dark)";
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    /**
+     * Retourne l'identifiant d'un joueur qui se connecte. Un joueur inconnu de ce serveur a pu être
+     * créé par un autre serveur du réseau : il est créé en base s'il n'existe pas, puis son
+     * identifiant est relu pour être le même sur tous les serveurs.
+     */
+    @Override
+    public int resolvePlayer(PlayerIndex playerIndex, UUID uuid, String name) throws SQLException {
+        if (playerIndex.getId(uuid) >= 0) {
+            return playerIndex.resolve(uuid, name);
+        }
+
+        try (PooledConnection connection = pool.borrow()) {
+            PreparedStatement insertStatement = connection.prepare(INSERT_PLAYER_QUERY);
+            insertStatement.setString(1, uuid.toString());
+            insertStatement.setString(2, name);
+            insertStatement.executeUpdate();
+
+            PreparedStatement selectStatement = connection.prepare(SELECT_PLAYER_ID_QUERY);
+            selectStatement.setString(1, uuid.toString());
+            try (ResultSet resultSet = selectStatement.executeQuery()) {
+                if (!resultSet.next()) throw new SQLException("Player " + uuid + " missing after insert");
+                int id = resultSet.getInt("id");
+                playerIndex.register(id, uuid, name);
+                return id;
+            }
+        }
+    }
+
+    private static Properties credentials(String user, String password) {
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        return properties;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+/**
+ * Catégorie de blocs suivie (diamant, or, blocs communs, ...), définie dans la section "ores" de la configuration.
+ * L'index est dense et sert à adresser les tableaux de compteurs de {@link PlayerStats}.
+ */
+public final class OreCategory {
+
+    /** Nom de la catégorie, utilisé comme clé dans les tables "player_ores", "player_ore_daily" et "player_ore_history" */
+    private final String name;
+
+    /** Position de la catégorie dans les tableaux de compteurs */
+    private final int index;
+
+    /** {@code true} si la catégorie compte au numérateur du ratio, {@code false} au dénominateur */
+    private final boolean rare;
+
+    /**
+     * Constructeur d'une catégorie.
+     *
+     * @param name  Nom de la catégorie.
+     * @param index Index dense de la catégorie.
+     * @param rare  {@code true} pour un minerai rare, {@code false} pour un bloc commun.
+     */
+    public OreCategory(String name, int index, boolean rare) {
+        this.name = name;
+        this.index = index;
+        this.rare = rare;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isRare() {
+        return rare;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+/**
+ * Minerais d'une catégorie cassés par un joueur en une journée, agrégés depuis le {@link MiningJournal}
+ * par le {@link JournalCompactor} et ajoutés à la table "player_ore_history".
+ */
+public final class OreHistoryEntry {
+
+    private final int playerId;
+
+    /** Jour de la casse, en jours depuis le 1er janvier 1970 (UTC) */
+    private final int day;
+
+    private final String category;
+
+    private long count;
+
+    /** Nombre de minerais cassés dans l'obscurité totale (luminosité 0) */
+    private long dark;
+
+    public OreHistoryEntry(int playerId, int day, String category) {
+        this.playerId = playerId;
+        this.day = day;
+        this.category = category;
+    }
+
+    /**
+     * Compte un minerai cassé.
+     *
+     * @param light Luminosité autour du bloc.
+     */
+    public void add(int light) {
+        count++;
+        if (light == 0) dark++;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getDark() {
+        return dark;
+    }
+}
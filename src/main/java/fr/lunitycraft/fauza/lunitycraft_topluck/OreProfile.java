@@ -0,0 +1,240 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.Arrays;
+
+/**
+ * Répartition des blocs cassés d'un joueur par couche (tranches de {@value #BAND_HEIGHT} blocs en Y)
+ * et par luminosité autour du bloc, pour chaque catégorie suivie.
+ * <p>
+ * Deux tableaux primitifs de taille fixe, indexés par catégorie puis par tranche ou par niveau :
+ * un enregistrement ne fait que deux incrémentations, sans allocation. Un joueur qui trouve ses
+ * diamants dans l'obscurité totale, sans jamais miner la pierre des couches voisines, est un
+ * signal fort de x-ray.
+ * <p>
+ * Chaque catégorie est enregistrée en base dans un petit blob ({@link #encode(int)}), les compteurs
+ * étant écrits en entiers de taille variable : une tranche vide n'occupe qu'un octet.
+ */
+public final class OreProfile {
+
+    /** Hauteur d'une tranche, en blocs */
+    public static final int BAND_HEIGHT = 8;
+
+    /** Nombre de tranches, de Y 0 à Y 255 */
+    public static final int BANDS = 32;
+
+    /** Nombre de niveaux de luminosité, de 0 (obscurité totale) à 15 */
+    public static final int LIGHT_LEVELS = 16;
+
+    /** Version du format des blobs */
+    private static final byte FORMAT = 1;
+
+    /** Blocs cassés par catégorie et par tranche : index {@code category * BANDS + band} */
+    private final long[] bands;
+
+    /** Blocs cassés par catégorie et par luminosité : index {@code category * LIGHT_LEVELS + light} */
+    private final long[] light;
+
+    /**
+     * Crée une répartition vide.
+     *
+     * @param categoryCount Nombre de catégories suivies ({@link OreRegistry#size()}).
+     */
+    public OreProfile(int categoryCount) {
+        this.bands = new long[categoryCount * BANDS];
+        this.light = new long[categoryCount * LIGHT_LEVELS];
+    }
+
+    /**
+     * Enregistre un bloc cassé.
+     *
+     * @param category   Index de la catégorie du bloc.
+     * @param y          Coordonnée Y du bloc, ramenée aux tranches existantes.
+     * @param lightLevel Luminosité autour du bloc, ou -1 si elle n'a pas été mesurée.
+     */
+    public void record(int category, int y, int lightLevel) {
+        bands[category * BANDS + Math.min(Math.max(y, 0) / BAND_HEIGHT, BANDS - 1)]++;
+        if (lightLevel >= 0) {
+            light[category * LIGHT_LEVELS + Math.min(lightLevel, LIGHT_LEVELS - 1)]++;
+        }
+    }
+
+    /**
+     * Ajoute une autre répartition à celle-ci.
+     *
+     * @param other La répartition à ajouter, avec le même nombre de catégories.
+     */
+    public void add(OreProfile other) {
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] += other.bands[i];
+        }
+        for (int i = 0; i < light.length; i++) {
+            light[i] += other.light[i];
+        }
+    }
+
+    /**
+     * Calcule la différence entre cette répartition et une répartition antérieure.
+     *
+     * @param earlier La répartition antérieure, avec le même nombre de catégories.
+     * @return Une nouvelle répartition.
+     */
+    public OreProfile minus(OreProfile earlier) {
+        OreProfile difference = new OreProfile(bands.length / BANDS);
+        for (int i = 0; i < bands.length; i++) {
+            difference.bands[i] = bands[i] - earlier.bands[i];
+        }
+        for (int i = 0; i < light.length; i++) {
+            difference.light[i] = light[i] - earlier.light[i];
+        }
+        return difference;
+    }
+
+    /**
+     * Copie une autre répartition dans celle-ci.
+     *
+     * @param other La répartition à copier, avec le même nombre de catégories.
+     */
+    public void copyFrom(OreProfile other) {
+        System.arraycopy(other.bands, 0, bands, 0, bands.length);
+        System.arraycopy(other.light, 0, light, 0, light.length);
+    }
+
+    /**
+     * Retourne le nombre de blocs cassés d'une catégorie dans une tranche.
+     *
+     * @param category Index de la catégorie.
+     * @param band     Index de la tranche (Y / {@value #BAND_HEIGHT}).
+     * @return Le nombre de blocs.
+     */
+    public long getBand(int category, int band) {
+        return bands[category * BANDS + band];
+    }
+
+    /**
+     * Retourne le nombre de blocs cassés d'une catégorie à une luminosité.
+     *
+     * @param category   Index de la catégorie.
+     * @param lightLevel Luminosité, de 0 à 15.
+     * @return Le nombre de blocs.
+     */
+    public long getLight(int category, int lightLevel) {
+        return light[category * LIGHT_LEVELS + lightLevel];
+    }
+
+    /**
+     * Retourne le nombre de blocs d'une catégorie enregistrés dans la répartition.
+     *
+     * @param category Index de la catégorie.
+     * @return Le nombre de blocs, toutes tranches confondues.
+     */
+    public long getTotal(int category) {
+        long total = 0;
+        for (int band = 0; band < BANDS; band++) {
+            total += bands[category * BANDS + band];
+        }
+        return total;
+    }
+
+    /**
+     * Retourne la tranche où le joueur a cassé le plus de blocs d'une catégorie.
+     *
+     * @param category Index de la catégorie.
+     * @return L'index de la tranche, ou -1 si aucun bloc n'a été cassé.
+     */
+    public int getPeakBand(int category) {
+        int peak = -1;
+        long peakCount = 0;
+        for (int band = 0; band < BANDS; band++) {
+            long count = bands[category * BANDS + band];
+            if (count > peakCount) {
+                peak = band;
+                peakCount = count;
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Retourne la part des blocs d'une catégorie cassés dans l'obscurité totale.
+     *
+     * @param category Index de la catégorie.
+     * @return La part, entre 0 et 1, ou -1 si la luminosité n'a jamais été mesurée.
+     */
+    public double getDarkShare(int category) {
+        long total = 0;
+        for (int level = 0; level < LIGHT_LEVELS; level++) {
+            total += light[category * LIGHT_LEVELS + level];
+        }
+        return total == 0 ? -1 : (double) light[category * LIGHT_LEVELS] / total;
+    }
+
+    /**
+     * Encode la répartition d'une catégorie : un octet de format, le nombre de tranches et de niveaux,
+     * puis chaque compteur en entier de taille variable (7 bits par octet).
+     *
+     * @param category Index de la catégorie.
+     * @return Le blob, de 51 octets pour une catégorie vide.
+     */
+    public byte[] encode(int category) {
+        byte[] blob = new byte[3 + (BANDS + LIGHT_LEVELS) * 10];
+        blob[0] = FORMAT;
+        blob[1] = BANDS;
+        blob[2] = LIGHT_LEVELS;
+        int position = 3;
+        for (int band = 0; band < BANDS; band++) {
+            position = writeVarLong(blob, position, bands[category * BANDS + band]);
+        }
+        for (int level = 0; level < LIGHT_LEVELS; level++) {
+            position = writeVarLong(blob, position, light[category * LIGHT_LEVELS + level]);
+        }
+        return Arrays.copyOf(blob, position);
+    }
+
+    /**
+     * Ajoute à une catégorie la répartition d'un blob lu en base.
+     *
+     * @param category Index de la catégorie.
+     * @param blob     Le blob, éventuellement {@code null}.
+     * @return {@code false} si le blob est d'un format inconnu ou tronqué ; il est alors ignoré.
+     */
+    public boolean decode(int category, byte[] blob) {
+        if (blob == null) return true;
+        if (blob.length < 3 || blob[0] != FORMAT || blob[1] != BANDS || blob[2] != LIGHT_LEVELS) return false;
+
+        long[] values = new long[BANDS + LIGHT_LEVELS];
+        int position = 3;
+        for (int i = 0; i < values.length; i++) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= blob.length || shift > 63) return false;
+                b = blob[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            values[i] = value;
+        }
+
+        for (int band = 0; band < BANDS; band++) {
+            bands[category * BANDS + band] += values[band];
+        }
+        for (int level = 0; level < LIGHT_LEVELS; level++) {
+            light[category * LIGHT_LEVELS + level] += values[BANDS + level];
+        }
+        return true;
+    }
+
+    private static int writeVarLong(byte[] blob, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            blob[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        blob[position++] = (byte) value;
+        return position;
+    }
+}
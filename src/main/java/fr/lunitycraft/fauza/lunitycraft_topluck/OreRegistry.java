@@ -0,0 +1,140 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table de classification des blocs, construite une seule fois à partir de la configuration.
+ * Chaque {@link Material} est associé à une catégorie et à un poids par des tableaux indexés
+ * par {@link Material#ordinal()} : un bloc non suivi est rejeté en une seule lecture de tableau.
+ */
+public final class OreRegistry {
+
+    /** Catégorie de chaque matériau, {@code null} si le matériau n'est pas suivi */
+    private final OreCategory[] categoryByOrdinal;
+
+    /** Poids de chaque matériau dans le calcul du ratio */
+    private final double[] weightByOrdinal;
+
+    /** Catégories dans l'ordre de leur index */
+    private final List<OreCategory> categories;
+
+    private OreRegistry(OreCategory[] categoryByOrdinal, double[] weightByOrdinal, List<OreCategory> categories) {
+        this.categoryByOrdinal = categoryByOrdinal;
+        this.weightByOrdinal = weightByOrdinal;
+        this.categories = Collections.unmodifiableList(categories);
+    }
+
+    /**
+     * Construit la table à partir de la section "ores" de la configuration.
+     * Exemple d'entrée :
+     * <pre>
+     * diamond:
+     *   rare: true
+     *   materials:
+     *     DIAMOND_ORE: 1.0
+     * </pre>
+     * Les matériaux inconnus de cette version du serveur sont ignorés avec un avertissement.
+     *
+     * @param section La section "ores".
+     * @return La table de classification.
+     */
+    public static OreRegistry fromConfig(ConfigurationSection section) {
+        Material[] materials = Material.values();
+        OreCategory[] categoryByOrdinal = new OreCategory[materials.length];
+        double[] weightByOrdinal = new double[materials.length];
+        List<OreCategory> categories = new ArrayList<>();
+
+        if (section == null) {
+            System.out.println("[TopLuck] No 'ores' section in config.yml, no block will be tracked.");
+            return new OreRegistry(categoryByOrdinal, weightByOrdinal, categories);
+        }
+
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection categorySection = section.getConfigurationSection(name);
+            if (categorySection == null) continue;
+
+            OreCategory category = new OreCategory(name, categories.size(), categorySection.getBoolean("rare", false));
+            categories.add(category);
+
+            ConfigurationSection materialSection = categorySection.getConfigurationSection("materials");
+            if (materialSection == null) continue;
+
+            for (String materialName : materialSection.getKeys(false)) {
+                Material material = Material.matchMaterial(materialName);
+                if (material == null) {
+                    System.out.println("[TopLuck] Unknown material '" + materialName + "' in category '" + name + "', ignored.");
+                    continue;
+                }
+                if (categoryByOrdinal[material.ordinal()] != null) {
+                    System.out.println("[TopLuck] Material " + material + " is already in category '"
+                            + categoryByOrdinal[material.ordinal()].getName() + "', ignored in '" + name + "'.");
+                    continue;
+                }
+                categoryByOrdinal[material.ordinal()] = category;
+                weightByOrdinal[material.ordinal()] = materialSection.getDouble(materialName, 1.0);
+            }
+        }
+
+        return new OreRegistry(categoryByOrdinal, weightByOrdinal, categories);
+    }
+
+    /**
+     * Retourne la catégorie d'un matériau.
+     *
+     * @param material Le matériau du bloc cassé.
+     * @return La catégorie, ou {@code null} si le matériau n'est pas suivi.
+     */
+    public OreCategory getCategory(Material material) {
+        return categoryByOrdinal[material.ordinal()];
+    }
+
+    /**
+     * Retourne le poids d'un matériau suivi.
+     *
+     * @param material Le matériau du bloc cassé.
+     * @return Le poids du matériau.
+     */
+    public double getWeight(Material material) {
+        return weightByOrdinal[material.ordinal()];
+    }
+
+    /**
+     * Recherche une catégorie par son nom.
+     *
+     * @param name Nom de la catégorie.
+     * @return La catégorie, ou {@code null} si elle n'existe pas.
+     */
+    public OreCategory getCategory(String name) {
+        for (OreCategory category : categories) {
+            if (category.getName().equals(name)) return category;
+        }
+        return null;
+    }
+
+    /**
+     * Retourne les catégories dans l'ordre de leur index.
+     *
+     * @return Liste non modifiable des catégories.
+     */
+    public List<OreCategory> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Retourne le nombre de catégories, c'est-à-dire la taille des tableaux de compteurs.
+     *
+     * @return Le nombre de catégories.
+     */
+    public int size() {
+        return categories.size();
+    }
+}
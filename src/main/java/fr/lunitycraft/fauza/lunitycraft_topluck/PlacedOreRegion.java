@@ -0,0 +1,144 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fichier de région (32 x 32 chunks) des blocs suivis posés par les joueurs, projeté en mémoire.
+ * <p>
+ * Format : un en-tête de 1024 entrées (décalage, capacité, nombre) indexées par
+ * {@code (chunkZ & 31) * 32 + (chunkX & 31)}, suivi des positions de chaque chunk,
+ * triées et codées sur 16 bits par {@link PlacedOreStore#local(int, int, int)}.
+ * Un chunk est réécrit à sa place tant qu'il tient dans sa capacité ; sinon il est déplacé
+ * en fin de fichier avec une capacité doublée, ce qui borne l'espace perdu à l'espace utilisé.
+ * La zone des positions est agrandie par doublement, au-delà de la fin des données : le fichier
+ * n'est reprojeté en mémoire qu'un nombre logarithmique de fois, et non à chaque déplacement.
+ */
+public final class PlacedOreRegion {
+
+    private static final int CHUNKS = 32 * 32;
+
+    /** Taille d'une entrée d'en-tête : décalage, capacité et nombre de positions (3 int) */
+    private static final int ENTRY_SIZE = 12;
+
+    private static final int HEADER_SIZE = CHUNKS * ENTRY_SIZE;
+
+    /** Capacité minimale allouée à un chunk, en positions */
+    private static final int MIN_CAPACITY = 16;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /** Fin des données : les chunks déplacés sont écrits à partir de ce décalage */
+    private long end = HEADER_SIZE;
+
+    /**
+     * Ouvre ou crée un fichier de région et le projette en mémoire.
+     *
+     * @param path Chemin du fichier.
+     * @throws IOException En cas d'erreur d'accès au fichier.
+     */
+    public PlacedOreRegion(File path) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        if (channel.size() < HEADER_SIZE) {
+            file.setLength(HEADER_SIZE);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        for (int entry = 0; entry < HEADER_SIZE; entry += ENTRY_SIZE) {
+            int offset = buffer.getInt(entry);
+            if (offset != 0) {
+                end = Math.max(end, offset + buffer.getInt(entry + 4) * 2L);
+            }
+        }
+    }
+
+    /**
+     * Lit les positions posées d'un chunk.
+     *
+     * @param index Index du chunk dans la région.
+     * @return Les positions triées, ou {@code null} si le chunk n'en contient aucune.
+     */
+    public char[] read(int index) {
+        int entry = index * ENTRY_SIZE;
+        int offset = buffer.getInt(entry);
+        int count = buffer.getInt(entry + 8);
+        if (offset == 0 || count == 0) return null;
+
+        char[] positions = new char[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = buffer.getChar(offset + i * 2);
+        }
+        return positions;
+    }
+
+    /**
+     * Écrit les positions posées d'un chunk, directement dans la projection du fichier.
+     *
+     * @param index     Index du chunk dans la région.
+     * @param positions Les positions triées, éventuellement vides.
+     * @throws IOException En cas d'erreur lors de l'agrandissement du fichier.
+     */
+    public void write(int index, char[] positions) throws IOException {
+        int entry = index * ENTRY_SIZE;
+        int offset = buffer.getInt(entry);
+        int capacity = buffer.getInt(entry + 4);
+
+        if (positions.length > capacity) {
+            capacity = MIN_CAPACITY;
+            while (capacity < positions.length) {
+                capacity <<= 1;
+            }
+            offset = (int) end;
+            end += capacity * 2L;
+            if (end > buffer.capacity()) {
+                file.setLength(Math.max(end, HEADER_SIZE + 2L * (buffer.capacity() - HEADER_SIZE)));
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            buffer.putInt(entry, offset);
+            buffer.putInt(entry + 4, capacity);
+        }
+
+        for (int i = 0; i < positions.length; i++) {
+            buffer.putChar(offset + i * 2, positions[i]);
+        }
+        buffer.putInt(entry + 8, positions.length);
+    }
+
+    /**
+     * Force l'écriture sur disque des pages modifiées.
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    /**
+     * Écrit les pages modifiées puis ferme le fichier.
+     *
+     * @throws IOException En cas d'erreur lors de la fermeture.
+     */
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * Retourne l'index d'un chunk dans sa région.
+     *
+     * @param chunkX Coordonnée X du chunk.
+     * @param chunkZ Coordonnée Z du chunk.
+     * @return L'index de l'entrée d'en-tête du chunk.
+     */
+    public static int index(int chunkX, int chunkZ) {
+        return (chunkZ & 31) * 32 + (chunkX & 31);
+    }
+}
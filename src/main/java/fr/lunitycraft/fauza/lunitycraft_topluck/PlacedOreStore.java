@@ -0,0 +1,395 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Positions des blocs suivis posés par les joueurs, qui ne doivent pas être comptés à leur casse.
+ * Tous les blocs suivis sont concernés, et non seulement les minerais rares : un minerai commun qui
+ * se ramasse tel quel (fer, ou n'importe quel bloc avec Toucher de soie) pourrait sinon être posé et
+ * recassé en boucle pour gonfler le nombre de blocs communs et faire baisser le ratio.
+ * <p>
+ * Seuls les chunks chargés sont en mémoire : chacun est un tableau trié de positions locales
+ * codées sur 16 bits, lu à son chargement et oublié à son déchargement. Une recherche est donc
+ * une recherche dichotomique dans quelques positions. Les positions sont enregistrées dans des
+ * fichiers de région projetés en mémoire ({@link PlacedOreRegion}) dans le dossier "placed-ores",
+ * à côté de data.db ; chaque modification y est écrite immédiatement. Au chargement d'un chunk, seul
+ * un fichier de région existant est ouvert : le fichier n'est créé qu'à la première pose d'un minerai
+ * dans la région, et la plupart des chunks chargés n'en ont aucun.
+ * <p>
+ * Les chunks déjà chargés à l'activation sont seulement relevés sur le thread principal
+ * ({@link #registerLoadedChunks(Iterable)}) et lus en arrière-plan par {@link PluginStartup}
+ * ({@link #loadRegisteredChunks()}) ; un chunk relevé qui n'a pas encore été lu l'est à la
+ * première casse ou pose d'un bloc suivi qu'il contient.
+ * <p>
+ * Sur un serveur à régions, un chunk n'est modifié que par le thread de sa région : la recherche
+ * reste sans verrou dans des tables concurrentes. Un fichier de région couvre 32 × 32 chunks qui
+ * peuvent appartenir à plusieurs régions du serveur ; ses accès sont donc synchronisés sur le monde.
+ */
+public class PlacedOreStore implements Listener {
+
+    /** Dossier des fichiers de région, un sous-dossier par monde */
+    private final File folder;
+
+    /** Classification des blocs suivis */
+    private final OreRegistry oreRegistry;
+
+    /** Données de chaque monde, indexées par UUID du monde */
+    private final Map<UUID, PlacedWorld> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Chunks et régions ouverts d'un monde ; les régions ne sont lues et modifiées que sous le verrou du monde.
+     */
+    private static final class PlacedWorld {
+
+        private final File folder;
+
+        /** Positions posées des chunks chargés qui en contiennent, par clé de chunk */
+        private final Map<Long, char[]> chunks = new ConcurrentHashMap<>();
+
+        /** Régions ouvertes, par clé de région */
+        private final Map<Long, PlacedOreRegion> regions = new HashMap<>();
+
+        /** Nombre de chunks chargés de chaque région, par clé de région ; une région est fermée lorsqu'il retombe à 0 */
+        private final Map<Long, Integer> loadedChunks = new HashMap<>();
+
+        /**
+         * Chunks déjà chargés à l'activation dont les positions n'ont pas encore été lues, par clé de chunk ;
+         * modifié sous le verrou du monde, vide une fois le démarrage terminé
+         */
+        private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+        private PlacedWorld(File folder) {
+            this.folder = folder;
+        }
+    }
+
+    /**
+     * Constructeur du stockage.
+     *
+     * @param folder      Dossier des fichiers de région.
+     * @param oreRegistry Classification des blocs suivis.
+     */
+    public PlacedOreStore(File folder, OreRegistry oreRegistry) {
+        this.folder = folder;
+        this.oreRegistry = oreRegistry;
+    }
+
+    /**
+     * Indique si un bloc a été posé par un joueur et l'oublie, puisqu'il est cassé.
+     *
+     * @param block Le bloc cassé.
+     * @return {@code true} si le bloc avait été posé par un joueur.
+     */
+    public boolean removePlaced(Block block) {
+        PlacedWorld placedWorld = worlds.get(block.getWorld().getUID());
+        if (placedWorld == null) return false;
+
+        int chunkX = block.getX() >> 4;
+        int chunkZ = block.getZ() >> 4;
+        long key = key(chunkX, chunkZ);
+        if (placedWorld.pending.contains(key)) {
+            loadPending(placedWorld, key, chunkX, chunkZ);
+        }
+        char[] positions = placedWorld.chunks.get(key);
+        if (positions == null) return false;
+
+        int index = Arrays.binarySearch(positions, local(block.getX(), block.getY(), block.getZ()));
+        if (index < 0) return false;
+
+        char[] updated = new char[positions.length - 1];
+        System.arraycopy(positions, 0, updated, 0, index);
+        System.arraycopy(positions, index + 1, updated, index, updated.length - index);
+        if (updated.length == 0) {
+            placedWorld.chunks.remove(key);
+        } else {
+            placedWorld.chunks.put(key, updated);
+        }
+        save(placedWorld, block.getWorld(), chunkX, chunkZ, updated, false);
+        return true;
+    }
+
+    /**
+     * Enregistre la position d'un bloc suivi posé par un joueur.
+     *
+     * @param event L'événement de pose de bloc.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        Block block = event.getBlockPlaced();
+        if (oreRegistry.getCategory(block.getType()) == null) return;
+
+        World world = block.getWorld();
+        PlacedWorld placedWorld = world(world);
+        int chunkX = block.getX() >> 4;
+        int chunkZ = block.getZ() >> 4;
+        long key = key(chunkX, chunkZ);
+        if (placedWorld.pending.contains(key)) {
+            loadPending(placedWorld, key, chunkX, chunkZ);
+        }
+        char[] positions = placedWorld.chunks.get(key);
+        if (positions == null) {
+            positions = new char[0];
+        }
+
+        char position = local(block.getX(), block.getY(), block.getZ());
+        int index = Arrays.binarySearch(positions, position);
+        if (index >= 0) return;
+
+        int insertAt = -index - 1;
+        char[] updated = new char[positions.length + 1];
+        System.arraycopy(positions, 0, updated, 0, insertAt);
+        updated[insertAt] = position;
+        System.arraycopy(positions, insertAt, updated, insertAt + 1, positions.length - insertAt);
+        placedWorld.chunks.put(key, updated);
+        save(placedWorld, world, chunkX, chunkZ, updated, true);
+    }
+
+    /**
+     * Charge les positions posées d'un chunk.
+     *
+     * @param event L'événement de chargement de chunk.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        load(event.getChunk());
+    }
+
+    /**
+     * Oublie les positions d'un chunk déchargé et ferme sa région si c'était le dernier chunk chargé.
+     *
+     * @param event L'événement de déchargement de chunk.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        Chunk chunk = event.getChunk();
+        PlacedWorld placedWorld = worlds.get(chunk.getWorld().getUID());
+        if (placedWorld == null) return;
+
+        long key = key(chunk.getX(), chunk.getZ());
+        long regionKey = key(chunk.getX() >> 5, chunk.getZ() >> 5);
+        synchronized (placedWorld) {
+            placedWorld.pending.remove(key);
+            placedWorld.chunks.remove(key);
+            Integer loaded = placedWorld.loadedChunks.get(regionKey);
+            if (loaded != null && loaded > 1) {
+                placedWorld.loadedChunks.put(regionKey, loaded - 1);
+                return;
+            }
+            placedWorld.loadedChunks.remove(regionKey);
+            PlacedOreRegion region = placedWorld.regions.remove(regionKey);
+            if (region != null) {
+                close(region);
+            }
+        }
+    }
+
+    /**
+     * Écrit sur disque les régions d'un monde lors de sa sauvegarde.
+     *
+     * @param event L'événement de sauvegarde du monde.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldSave(WorldSaveEvent event) {
+        PlacedWorld placedWorld = worlds.get(event.getWorld().getUID());
+        if (placedWorld == null) return;
+        synchronized (placedWorld) {
+            for (PlacedOreRegion region : placedWorld.regions.values()) {
+                region.flush();
+            }
+        }
+    }
+
+    /**
+     * Ferme les régions d'un monde déchargé.
+     *
+     * @param event L'événement de déchargement du monde.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        PlacedWorld placedWorld = worlds.remove(event.getWorld().getUID());
+        if (placedWorld == null) return;
+        synchronized (placedWorld) {
+            placedWorld.pending.clear();
+            for (PlacedOreRegion region : placedWorld.regions.values()) {
+                close(region);
+            }
+        }
+    }
+
+    /**
+     * Relève les chunks déjà chargés de tous les mondes (activation ou rechargement du plugin), sans
+     * ouvrir de fichier : leurs positions sont lues ensuite par {@link #loadRegisteredChunks()}.
+     * Appelée sur le thread principal.
+     *
+     * @param loadedWorlds Les mondes du serveur.
+     */
+    public void registerLoadedChunks(Iterable<World> loadedWorlds) {
+        for (World world : loadedWorlds) {
+            PlacedWorld placedWorld = world(world);
+            synchronized (placedWorld) {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    placedWorld.loadedChunks.merge(key(chunk.getX() >> 5, chunk.getZ() >> 5), 1, Integer::sum);
+                    placedWorld.pending.add(key(chunk.getX(), chunk.getZ()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lit les positions des chunks relevés par {@link #registerLoadedChunks(Iterable)} qui ne l'ont pas
+     * encore été. Appelée hors du thread principal, pendant le démarrage.
+     */
+    public void loadRegisteredChunks() {
+        for (PlacedWorld placedWorld : worlds.values()) {
+            for (Long key : placedWorld.pending) {
+                loadPending(placedWorld, key, (int) (key >> 32), (int) (long) key);
+            }
+        }
+    }
+
+    /**
+     * Ferme toutes les régions ouvertes, pour la désactivation du plugin.
+     */
+    public void closeAll() {
+        for (PlacedWorld placedWorld : worlds.values()) {
+            synchronized (placedWorld) {
+                placedWorld.pending.clear();
+                for (PlacedOreRegion region : placedWorld.regions.values()) {
+                    close(region);
+                }
+            }
+        }
+        worlds.clear();
+    }
+
+    /**
+     * Code une position dans un chunk sur 16 bits : 8 bits pour Y, 4 bits pour Z et X.
+     *
+     * @param x Coordonnée X du bloc.
+     * @param y Coordonnée Y du bloc (0 à 255).
+     * @param z Coordonnée Z du bloc.
+     * @return La position locale.
+     */
+    public static char local(int x, int y, int z) {
+        return (char) (((y & 0xFF) << 8) | ((z & 15) << 4) | (x & 15));
+    }
+
+    private void load(Chunk chunk) {
+        PlacedWorld placedWorld = world(chunk.getWorld());
+        char[] positions;
+        synchronized (placedWorld) {
+            placedWorld.loadedChunks.merge(key(chunk.getX() >> 5, chunk.getZ() >> 5), 1, Integer::sum);
+            PlacedOreRegion region = region(placedWorld, chunk.getX(), chunk.getZ(), false);
+            if (region == null) return;
+
+            positions = region.read(PlacedOreRegion.index(chunk.getX(), chunk.getZ()));
+        }
+        if (positions != null) {
+            placedWorld.chunks.put(key(chunk.getX(), chunk.getZ()), positions);
+        }
+    }
+
+    /**
+     * Lit les positions d'un chunk relevé à l'activation s'il ne l'a pas encore été. Les positions sont
+     * publiées avant que le chunk ne quitte {@code pending}, pour qu'une recherche sans verrou ne le voie
+     * jamais sorti et encore vide.
+     */
+    private void loadPending(PlacedWorld placedWorld, long key, int chunkX, int chunkZ) {
+        synchronized (placedWorld) {
+            if (!placedWorld.pending.contains(key)) return;
+
+            PlacedOreRegion region = region(placedWorld, chunkX, chunkZ, false);
+            char[] positions = region != null ? region.read(PlacedOreRegion.index(chunkX, chunkZ)) : null;
+            if (positions != null) {
+                placedWorld.chunks.put(key, positions);
+            }
+            placedWorld.pending.remove(key);
+        }
+    }
+
+    private void save(PlacedWorld placedWorld, World world, int chunkX, int chunkZ, char[] positions, boolean create) {
+        try {
+            synchronized (placedWorld) {
+                PlacedOreRegion region = region(placedWorld, chunkX, chunkZ, create);
+                if (region == null) return;
+                region.write(PlacedOreRegion.index(chunkX, chunkZ), positions);
+            }
+        } catch (IOException e) {
+            System.out.println("[TopLuck] Failed to save placed ores of chunk " + chunkX + ", " + chunkZ
+                    + " in " + world.getName() + ".");
+            e.printStackTrace();
+        }
+    }
+
+    private PlacedWorld world(World world) {
+        PlacedWorld placedWorld = worlds.get(world.getUID());
+        if (placedWorld == null) {
+            placedWorld = worlds.computeIfAbsent(world.getUID(), uid -> new PlacedWorld(new File(folder, world.getName())));
+        }
+        return placedWorld;
+    }
+
+    /**
+     * Retourne la région d'un chunk, en ouvrant son fichier si nécessaire. À appeler sous le verrou du monde.
+     *
+     * @param create {@code true} pour créer le fichier s'il n'existe pas encore.
+     * @return La région, ou {@code null} si le fichier n'existe pas et n'est pas à créer, ou ne peut pas être ouvert.
+     */
+    private PlacedOreRegion region(PlacedWorld placedWorld, int chunkX, int chunkZ, boolean create) {
+        int regionX = chunkX >> 5;
+        int regionZ = chunkZ >> 5;
+        long regionKey = key(regionX, regionZ);
+        PlacedOreRegion region = placedWorld.regions.get(regionKey);
+        if (region == null) {
+            File path = new File(placedWorld.folder, "r." + regionX + "." + regionZ + ".bin");
+            if (!path.exists()) {
+                if (!create) return null;
+                placedWorld.folder.mkdirs();
+            }
+            try {
+                region = new PlacedOreRegion(path);
+            } catch (IOException e) {
+                System.out.println("[TopLuck] Failed to open placed ore region " + regionX + ", " + regionZ + ".");
+                e.printStackTrace();
+                return null;
+            }
+            placedWorld.regions.put(regionKey, region);
+        }
+        return region;
+    }
+
+    private static void close(PlacedOreRegion region) {
+        try {
+            region.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Migration des anciennes tables indexées par pseudo ("player_data" et "player_ore_stats")
+ * vers les tables indexées par identifiant ("player_stats" et "player_ores").
+ * <p>
+ * Les joueurs sont déplacés par lots sur un thread dédié : chaque lot est copié puis supprimé
+ * des anciennes tables dans une seule transaction, de sorte qu'une migration interrompue
+ * (arrêt du serveur) reprend simplement là où elle s'était arrêtée au démarrage suivant.
+ * Les copies sont additives, car un joueur connecté pendant la migration a déjà pu écrire
+ * de nouveaux incréments sous son identifiant. Les anciennes tables sont supprimées à la fin.
+ * <p>
+ * Seule une base SQLite peut contenir ces anciennes tables : chaque lot emprunte une connexion
+ * au pool du {@link SqliteStorage}, avec ses requêtes déjà préparées.
+ */
+public class PlayerIdMigration implements Runnable {
+
+    private static final String SELECT_BATCH_QUERY =
+            "SELECT player_name, total_blocks, rare_to_common_ratio, luck_score FROM player_data LIMIT ?";
+
+    private static final String INSERT_PLAYER_QUERY =
+            "INSERT INTO players (id, uuid, name) VALUES (?, ?, ?) ON CONFLICT(id) DO NOTHING";
+
+    private static final String UPSERT_STATS_QUERY =
+            "INSERT INTO player_stats (player_id, total_blocks, rare_to_common_ratio, luck_score) VALUES (?, ?, ?, ?) " +
+                    "ON CONFLICT(player_id) DO UPDATE SET total_blocks = total_blocks + excluded.total_blocks";
+
+    private static final String COPY_ORES_QUERY =
+            "INSERT INTO player_ores (player_id, category, count, weighted) " +
+                    "SELECT ?, category, count, weighted FROM player_ore_stats WHERE player_name = ? " +
+                    "ON CONFLICT(player_id, category) DO UPDATE SET " +
+                    "count = count + excluded.count, " +
+                    "weighted = weighted + excluded.weighted";
+
+    private static final String DELETE_ORES_QUERY = "DELETE FROM player_ore_stats WHERE player_name = ?";
+
+    private static final String DELETE_PLAYER_QUERY = "DELETE FROM player_data WHERE player_name = ?";
+
+    /** Pause entre deux lots, pour laisser la base au thread d'écriture */
+    private static final long PAUSE_MILLIS = 50;
+
+    /** Pause après une erreur avant de réessayer le lot */
+    private static final long RETRY_MILLIS = 5000;
+
+    /** Base contenant les anciennes tables */
+    private final SqliteStorage storage;
+
+    /** Identifiants attribués aux pseudos des anciennes tables */
+    private final PlayerIndex playerIndex;
+
+    /** Nombre de joueurs déplacés par transaction */
+    private final int batchSize;
+
+    /** Mesures du plugin : durée des lots et nombre de requêtes */
+    private final PluginMetrics metrics;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    /** Indique que les anciennes tables ont été entièrement migrées et supprimées */
+    private volatile boolean finished;
+
+    /**
+     * Crée la migration sans la démarrer.
+     *
+     * @param storage     Base SQLite contenant les anciennes tables.
+     * @param playerIndex Table des identifiants, déjà chargée.
+     * @param batchSize   Nombre de joueurs déplacés par transaction.
+     * @param metrics     Mesures du plugin.
+     */
+    public PlayerIdMigration(SqliteStorage storage, PlayerIndex playerIndex, int batchSize, PluginMetrics metrics) {
+        this.storage = storage;
+        this.playerIndex = playerIndex;
+        this.batchSize = batchSize;
+        this.metrics = metrics;
+        this.thread = new Thread(this, "TopLuck-Migration");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Démarre la migration en arrière-plan.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Indique si les lectures doivent encore tenir compte des anciennes tables.
+     *
+     * @return {@code true} une fois les anciennes tables supprimées.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Boucle de migration : déplace un lot, fait une pause, recommence jusqu'à épuisement.
+     */
+    @Override
+    public void run() {
+        try {
+            long migrated = 0;
+            while (running) {
+                // La connexion est rendue au pool pendant la pause
+                long pause = PAUSE_MILLIS;
+                try (PooledConnection connection = storage.borrow()) {
+                    long start = System.nanoTime();
+                    int moved = migrateBatch(connection);
+                    metrics.getMigrationBatch().record(System.nanoTime() - start);
+                    if (moved == 0) {
+                        dropLegacyTables(connection.getConnection());
+                        finished = true;
+                        System.out.println("[TopLuck] Player id migration finished, " + migrated + " player(s) migrated.");
+                        return;
+                    }
+                    migrated += moved;
+                } catch (SQLException e) {
+                    System.out.println("[TopLuck] Player id migration batch failed, retrying later.");
+                    e.printStackTrace();
+                    pause = RETRY_MILLIS;
+                }
+                Thread.sleep(pause);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Arrête la migration ; le lot en cours est soit validé, soit annulé entièrement.
+     */
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Déplace un lot de joueurs dans une seule transaction.
+     *
+     * @param pooled Connexion empruntée au pool.
+     * @return Le nombre de joueurs déplacés, 0 s'il ne reste plus rien à migrer.
+     * @throws SQLException En cas d'erreur ; le lot est alors annulé.
+     */
+    private int migrateBatch(PooledConnection pooled) throws SQLException {
+        Connection connection = pooled.getConnection();
+        PreparedStatement selectStatement = pooled.prepare(SELECT_BATCH_QUERY);
+        PreparedStatement playerStatement = pooled.prepare(INSERT_PLAYER_QUERY);
+        PreparedStatement statsStatement = pooled.prepare(UPSERT_STATS_QUERY);
+        PreparedStatement oresStatement = pooled.prepare(COPY_ORES_QUERY);
+        PreparedStatement deleteOresStatement = pooled.prepare(DELETE_ORES_QUERY);
+        PreparedStatement deletePlayerStatement = pooled.prepare(DELETE_PLAYER_QUERY);
+        connection.setAutoCommit(false);
+        try {
+            List<String> names = new ArrayList<>();
+            selectStatement.setInt(1, batchSize);
+            try (ResultSet resultSet = selectStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    String name = resultSet.getString("player_name");
+                    int id = playerIndex.legacyId(name);
+                    UUID uuid = playerIndex.getUuid(id);
+                    names.add(name);
+
+                    playerStatement.setInt(1, id);
+                    playerStatement.setString(2, uuid == null ? null : uuid.toString());
+                    playerStatement.setString(3, name);
+                    playerStatement.addBatch();
+
+                    statsStatement.setInt(1, id);
+                    statsStatement.setLong(2, resultSet.getLong("total_blocks"));
+                    statsStatement.setDouble(3, resultSet.getDouble("rare_to_common_ratio"));
+                    statsStatement.setDouble(4, resultSet.getDouble("luck_score"));
+                    statsStatement.addBatch();
+
+                    oresStatement.setInt(1, id);
+                    oresStatement.setString(2, name);
+                    oresStatement.addBatch();
+                }
+            }
+            metrics.getDatabaseStatements().increment();
+            if (names.isEmpty()) {
+                connection.commit();
+                return 0;
+            }
+
+            for (String name : names) {
+                deleteOresStatement.setString(1, name);
+                deleteOresStatement.addBatch();
+                deletePlayerStatement.setString(1, name);
+                deletePlayerStatement.addBatch();
+            }
+            playerStatement.executeBatch();
+            statsStatement.executeBatch();
+            oresStatement.executeBatch();
+            deleteOresStatement.executeBatch();
+            deletePlayerStatement.executeBatch();
+            connection.commit();
+            // Par joueur : joueur, totaux, minerais et deux suppressions
+            metrics.getDatabaseStatements().add(names.size() * 5L);
+            return names.size();
+        } catch (SQLException e) {
+            // Les requêtes restent en cache : un lot interrompu ne doit pas être rejoué au suivant
+            playerStatement.clearBatch();
+            statsStatement.clearBatch();
+            oresStatement.clearBatch();
+            deleteOresStatement.clearBatch();
+            deletePlayerStatement.clearBatch();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Supprime les anciennes tables une fois vides.
+     */
+    private void dropLegacyTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS player_ore_stats");
+            statement.executeUpdate("DROP TABLE IF EXISTS player_data");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Table en mémoire des identifiants de joueurs, chargée au démarrage depuis la table "players".
+ * <p>
+ * Chaque joueur reçoit un identifiant entier dense, clé de toutes les tables de statistiques :
+ * un changement de pseudo ne sépare plus l'historique, et les index ne contiennent plus de texte.
+ * Les joueurs importés des anciennes tables indexées par pseudo n'ont pas encore d'UUID ;
+ * ils sont rattachés au premier joueur qui se connecte avec ce pseudo.
+ * <p>
+ * Avec une base partagée entre plusieurs serveurs, les identifiants sont attribués par la base
+ * ({@link MySqlStorage}) puis enregistrés ici avec {@link #register(int, UUID, String)}.
+ * <p>
+ * Les méthodes sont synchronisées car la table est aussi lue par le thread de migration et le thread de lecture.
+ */
+public final class PlayerIndex {
+
+    /** Identifiant de chaque joueur connu par son UUID */
+    private final Map<UUID, Integer> idsByUuid = new HashMap<>();
+
+    /** Identifiant du dernier joueur connu sous chaque pseudo */
+    private final Map<String, Integer> idsByName = new HashMap<>();
+
+    /** Pseudo de chaque identifiant */
+    private String[] names = new String[64];
+
+    /** UUID de chaque identifiant, {@code null} pour un joueur importé pas encore rattaché */
+    private UUID[] uuids = new UUID[64];
+
+    /** Prochain identifiant libre (les identifiants commencent à 1, comme les rowid SQLite) */
+    private int nextId = 1;
+
+    /**
+     * Charge la table "players".
+     *
+     * @param connection Connexion à la base de données.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    public synchronized void load(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, uuid, name FROM players")) {
+            while (resultSet.next()) {
+                String uuid = resultSet.getString("uuid");
+                put(resultSet.getInt("id"), uuid == null ? null : UUID.fromString(uuid), resultSet.getString("name"));
+            }
+        }
+    }
+
+    /**
+     * Retourne l'identifiant d'un joueur qui se connecte, en le créant si nécessaire.
+     * Un joueur importé portant le même pseudo et sans UUID est rattaché à ce joueur,
+     * et un changement de pseudo est enregistré.
+     *
+     * @param uuid UUID du joueur.
+     * @param name Pseudo actuel du joueur.
+     * @return L'identifiant du joueur.
+     */
+    public synchronized int resolve(UUID uuid, String name) {
+        Integer id = idsByUuid.get(uuid);
+        if (id != null) {
+            if (!name.equals(names[id])) {
+                rename(id, name);
+            }
+            return id;
+        }
+
+        id = idsByName.get(name);
+        if (id != null && uuids[id] == null) {
+            uuids[id] = uuid;
+            idsByUuid.put(uuid, id);
+            return id;
+        }
+
+        int newId = nextId;
+        put(newId, uuid, name);
+        return newId;
+    }
+
+    /**
+     * Retourne l'identifiant d'un joueur des anciennes tables, connu uniquement par son pseudo,
+     * en lui réservant un identifiant sans UUID si nécessaire.
+     *
+     * @param name Pseudo enregistré dans les anciennes tables.
+     * @return L'identifiant du joueur.
+     */
+    public synchronized int legacyId(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) return id;
+
+        int newId = nextId;
+        put(newId, null, name);
+        return newId;
+    }
+
+    /**
+     * Enregistre un joueur dont l'identifiant a été attribué par la base.
+     *
+     * @param id   L'identifiant du joueur.
+     * @param uuid UUID du joueur, éventuellement {@code null}.
+     * @param name Pseudo actuel du joueur.
+     */
+    public synchronized void register(int id, UUID uuid, String name) {
+        if (id < nextId && names[id] != null && !name.equals(names[id])) {
+            rename(id, name);
+        }
+        put(id, uuid, name);
+    }
+
+    /**
+     * Retourne l'identifiant d'un joueur par son UUID.
+     *
+     * @param uuid L'UUID.
+     * @return L'identifiant, ou -1 si le joueur n'est pas encore connu.
+     */
+    public synchronized int getId(UUID uuid) {
+        Integer id = idsByUuid.get(uuid);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retourne l'identifiant du dernier joueur connu sous un pseudo.
+     *
+     * @param name Le pseudo.
+     * @return L'identifiant, ou -1 si aucun joueur ne porte ce pseudo.
+     */
+    public synchronized int getId(String name) {
+        Integer id = idsByName.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Retourne le pseudo d'un joueur.
+     *
+     * @param id L'identifiant du joueur.
+     * @return Le pseudo, ou {@code null} si l'identifiant n'existe pas.
+     */
+    public synchronized String getName(int id) {
+        return id > 0 && id < nextId ? names[id] : null;
+    }
+
+    /**
+     * Retourne l'UUID d'un joueur.
+     *
+     * @param id L'identifiant du joueur.
+     * @return L'UUID, ou {@code null} si le joueur importé n'a pas encore été rattaché.
+     */
+    public synchronized UUID getUuid(int id) {
+        return id > 0 && id < nextId ? uuids[id] : null;
+    }
+
+    /**
+     * Retourne le nombre de joueurs connus.
+     *
+     * @return Le nombre d'identifiants attribués.
+     */
+    public synchronized int size() {
+        return nextId - 1;
+    }
+
+    private void put(int id, UUID uuid, String name) {
+        if (id >= names.length) {
+            int capacity = Math.max(id + 1, names.length * 2);
+            names = Arrays.copyOf(names, capacity);
+            uuids = Arrays.copyOf(uuids, capacity);
+        }
+        names[id] = name;
+        uuids[id] = uuid;
+        if (uuid != null) {
+            idsByUuid.put(uuid, id);
+        }
+        idsByName.put(name, id);
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    private void rename(int id, String name) {
+        String oldName = names[id];
+        if (oldName != null && Integer.valueOf(id).equals(idsByName.get(oldName))) {
+            idsByName.remove(oldName);
+        }
+        names[id] = name;
+        idsByName.put(name, id);
+    }
+}
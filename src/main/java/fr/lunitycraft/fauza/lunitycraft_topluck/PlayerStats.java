@@ -0,0 +1,365 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compteurs de minage d'un joueur conservés en mémoire.
+ * Les compteurs sont des tableaux primitifs indexés par {@link OreCategory#getIndex()},
+ * pour que l'incrémentation depuis {@code onBlockBreak} ne crée aucun objet.
+ * <p>
+ * Les compteurs n'ont qu'un seul écrivain, le thread qui possède le joueur (le thread principal,
+ * ou celui de sa région sur un serveur Folia) ; le nombre total de blocs, volatile et incrémenté
+ * en dernier, publie les autres compteurs aux threads qui les lisent. Le vidage en base les lit
+ * depuis un autre thread : il n'avance les valeurs envoyées que des incréments qu'il a lus
+ * ({@link #takeDelta(double)}), si bien qu'une casse arrivée pendant le vidage n'est jamais perdue.
+ * Les compteurs au début du jour des dernières casses permettent au vidage de répartir les incréments
+ * entre ce jour et le précédent, au passage de minuit UTC.
+ */
+public final class PlayerStats {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    /** Identifiant du joueur (clé des tables "player_stats" et "player_ores"), voir {@link PlayerIndex} */
+    private final int playerId;
+
+    /** UUID du joueur, {@code null} pour un joueur importé pas encore rattaché */
+    private final UUID uuid;
+
+    /** Pseudo du joueur lors du chargement */
+    private final String playerName;
+
+    /** Nombre total de blocs cassés, écrit après les autres compteurs */
+    private volatile long totalBlocks;
+
+    /** Nombre de blocs cassés par catégorie */
+    private final long[] counts;
+
+    /** Somme des poids des blocs cassés par catégorie */
+    private final double[] weighted;
+
+    /** Nombre de filons trouvés par catégorie rare */
+    private final long[] veins;
+
+    /** Répartition des blocs cassés par couche et par luminosité */
+    private final OreProfile profile;
+
+    /** Sommes pondérées des catégories rares et communes, tenues à jour pour le ratio */
+    private double rareWeighted;
+    private double commonWeighted;
+
+    /** Valeurs des compteurs lors du dernier envoi au {@link DatabaseWriter}, modifiées par le seul vidage */
+    private volatile long flushedTotalBlocks;
+    private final long[] flushedCounts;
+    private final double[] flushedWeighted;
+    private final long[] flushedVeins;
+    private final OreProfile flushedProfile;
+
+    /** Jour des dernières casses et compteurs par catégorie au début de ce jour, {@code null} avant la première casse */
+    private volatile DayStart dayStart;
+
+    /** Indique si le joueur attend d'être reclassé par le {@link LeaderboardUpdater} */
+    private final AtomicBoolean rankPending = new AtomicBoolean();
+
+    /** Fenêtres glissantes de minage, présentes uniquement pour les joueurs connectés */
+    private MiningWindow window;
+
+    /** Minerais rares récemment cassés, présents uniquement pour les joueurs connectés */
+    private VeinTracker veinTracker;
+
+    /**
+     * Compteurs par catégorie d'un joueur avant sa première casse d'un jour.
+     */
+    private static final class DayStart {
+
+        /** Jour (UTC, depuis l'epoch) */
+        private final int day;
+
+        private final long[] counts;
+
+        private DayStart(int day, long[] counts) {
+            this.day = day;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Crée des statistiques vides.
+     *
+     * @param playerId      Identifiant du joueur.
+     * @param uuid          UUID du joueur, éventuellement {@code null}.
+     * @param playerName    Pseudo du joueur.
+     * @param categoryCount Nombre de catégories suivies ({@link OreRegistry#size()}).
+     */
+    public PlayerStats(int playerId, UUID uuid, String playerName, int categoryCount) {
+        this.playerId = playerId;
+        this.uuid = uuid;
+        this.playerName = playerName;
+        this.counts = new long[categoryCount];
+        this.weighted = new double[categoryCount];
+        this.veins = new long[categoryCount];
+        this.profile = new OreProfile(categoryCount);
+        this.flushedCounts = new long[categoryCount];
+        this.flushedWeighted = new double[categoryCount];
+        this.flushedVeins = new long[categoryCount];
+        this.flushedProfile = new OreProfile(categoryCount);
+    }
+
+    /**
+     * Enregistre un bloc cassé. Un minerai rare qui n'est voisin d'aucun minerai récemment cassé
+     * de la même catégorie compte aussi comme un nouveau filon.
+     *
+     * @param category  Catégorie du bloc.
+     * @param weight    Poids du matériau.
+     * @param x         Coordonnée X du bloc.
+     * @param y         Coordonnée Y du bloc.
+     * @param z         Coordonnée Z du bloc.
+     * @param light     Luminosité autour du bloc, ou -1 si elle n'a pas été mesurée.
+     * @param timestamp Heure de la casse, en millisecondes ; antérieure à l'appel pour une casse rejouée.
+     */
+    public void record(OreCategory category, double weight, int x, int y, int z, int light, long timestamp) {
+        int index = category.getIndex();
+        // Première casse du jour : une copie des compteurs par jour et par joueur
+        int day = (int) Math.floorDiv(timestamp, MILLIS_PER_DAY);
+        DayStart start = dayStart;
+        if (start == null || day > start.day) {
+            dayStart = new DayStart(day, counts.clone());
+        }
+        counts[index]++;
+        weighted[index] += weight;
+        profile.record(index, y, light);
+        if (category.isRare()) {
+            rareWeighted += weight;
+        } else {
+            commonWeighted += weight;
+        }
+        // Écriture volatile en dernier : publie les compteurs ci-dessus
+        totalBlocks++;
+        if (window == null) return;
+
+        window.record(category, weight, timestamp);
+        if (category.isRare() && veinTracker.record(category, x, y, z, timestamp)) {
+            veins[index]++;
+        }
+    }
+
+    /**
+     * Active le suivi par fenêtres glissantes et le comptage des filons, pour un joueur connecté.
+     *
+     * @param veinCapacity     Nombre de minerais rares mémorisés pour le comptage des filons.
+     * @param veinExpiryMillis Durée de mémorisation d'un minerai rare, en millisecondes.
+     */
+    public void enableTracking(int veinCapacity, long veinExpiryMillis) {
+        if (window == null) {
+            window = new MiningWindow(counts.length);
+            veinTracker = new VeinTracker(veinCapacity, veinExpiryMillis);
+        }
+    }
+
+    /**
+     * Retire les fenêtres glissantes et les minerais rares récemment cassés d'un joueur qui se déconnecte :
+     * sans nouvelle casse, ils ne décriraient plus les dernières heures. À appeler sur le thread du joueur.
+     */
+    public void disableTracking() {
+        window = null;
+        veinTracker = null;
+    }
+
+    /**
+     * Retourne les fenêtres glissantes de minage.
+     *
+     * @return Les fenêtres, ou {@code null} si le joueur n'est pas suivi en direct.
+     */
+    public MiningWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * Ajoute aux compteurs d'une catégorie les valeurs lues en base.
+     * Une catégorie peut être lue deux fois tant que la migration des anciennes tables n'est pas terminée.
+     *
+     * @param category Catégorie chargée.
+     * @param count    Nombre de blocs enregistré.
+     * @param weight   Somme des poids enregistrée.
+     * @param veins    Nombre de filons enregistré.
+     */
+    public void load(OreCategory category, long count, double weight, long veins) {
+        int index = category.getIndex();
+        counts[index] += count;
+        weighted[index] += weight;
+        this.veins[index] += veins;
+        flushedCounts[index] += count;
+        flushedWeighted[index] += weight;
+        flushedVeins[index] += veins;
+        if (category.isRare()) {
+            rareWeighted += weight;
+        } else {
+            commonWeighted += weight;
+        }
+    }
+
+    /**
+     * Ajoute à la répartition d'une catégorie le blob lu en base.
+     *
+     * @param category Catégorie chargée.
+     * @param blob     Blob de la répartition, éventuellement {@code null}.
+     * @return {@code false} si le blob est illisible ; il est alors ignoré.
+     */
+    public boolean loadProfile(OreCategory category, byte[] blob) {
+        return profile.decode(category.getIndex(), blob) && flushedProfile.decode(category.getIndex(), blob);
+    }
+
+    /**
+     * Ajoute au nombre total de blocs la valeur lue en base.
+     *
+     * @param totalBlocks Nombre total de blocs enregistré.
+     */
+    public void loadTotal(long totalBlocks) {
+        this.totalBlocks += totalBlocks;
+        this.flushedTotalBlocks += totalBlocks;
+    }
+
+    /**
+     * Calcule le ratio blocs rares / blocs communs, pondéré par le poids de chaque matériau.
+     *
+     * @return Le ratio enregistré dans "rare_to_common_ratio".
+     */
+    public double getRatio() {
+        return rareWeighted / (commonWeighted + 1);
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public long getTotalBlocks() {
+        return totalBlocks;
+    }
+
+    /**
+     * Retourne le nombre de blocs cassés d'une catégorie.
+     *
+     * @param category La catégorie, éventuellement {@code null}.
+     * @return Le nombre de blocs, ou 0 si la catégorie n'existe pas.
+     */
+    public long getCount(OreCategory category) {
+        return category == null ? 0 : counts[category.getIndex()];
+    }
+
+    /**
+     * Retourne le nombre de filons trouvés d'une catégorie.
+     *
+     * @param category La catégorie, éventuellement {@code null}.
+     * @return Le nombre de filons, ou 0 si la catégorie n'existe pas.
+     */
+    public long getVeins(OreCategory category) {
+        return category == null ? 0 : veins[category.getIndex()];
+    }
+
+    /**
+     * Retourne la répartition des blocs cassés par couche et par luminosité.
+     *
+     * @return La répartition, à ne pas modifier.
+     */
+    public OreProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Indique si les compteurs ont changé depuis le dernier envoi en base.
+     *
+     * @return {@code true} si des blocs restent à écrire.
+     */
+    public boolean isDirty() {
+        return totalBlocks != flushedTotalBlocks;
+    }
+
+    /**
+     * Signale que le joueur doit être reclassé.
+     *
+     * @return {@code true} s'il ne l'était pas déjà, et doit donc être ajouté à la file.
+     */
+    boolean markRankPending() {
+        return !rankPending.get() && rankPending.compareAndSet(false, true);
+    }
+
+    /**
+     * Retire le signalement, juste avant le reclassement du joueur.
+     */
+    void clearRankPending() {
+        rankPending.set(false);
+    }
+
+    /**
+     * Calcule les incréments accumulés depuis le dernier envoi en base et les marque comme envoyés :
+     * le delta doit ensuite être remis au {@link DatabaseWriter}, ou conservé s'il est refusé.
+     * Synchronisée, car le vidage périodique et la déconnexion du joueur peuvent s'exécuter sur des
+     * threads différents ; les casses enregistrées pendant le calcul restent pour le vidage suivant.
+     *
+     * @param score Score d'anomalie actuel du joueur ({@link LuckScorer#score(PlayerStats)}).
+     * @return Le delta à écrire.
+     */
+    public synchronized StatsDelta takeDelta(double score) {
+        // Lecture volatile en premier : les compteurs lus ensuite sont au moins aussi récents
+        long total = totalBlocks;
+        long[] countDelta = new long[counts.length];
+        double[] weightDelta = new double[weighted.length];
+        long[] veinDelta = new long[veins.length];
+        for (int i = 0; i < counts.length; i++) {
+            countDelta[i] = counts[i] - flushedCounts[i];
+            weightDelta[i] = weighted[i] - flushedWeighted[i];
+            veinDelta[i] = veins[i] - flushedVeins[i];
+            flushedCounts[i] += countDelta[i];
+            flushedWeighted[i] += weightDelta[i];
+            flushedVeins[i] += veinDelta[i];
+        }
+        OreProfile profileDelta = profile.minus(flushedProfile);
+        flushedProfile.add(profileDelta);
+        StatsDelta delta = new StatsDelta(playerId, uuid, playerName, total - flushedTotalBlocks,
+                countDelta, weightDelta, veinDelta, profileDelta, splitByDay(countDelta), getRatio(), score);
+        flushedTotalBlocks = total;
+        return delta;
+    }
+
+    /**
+     * Répartit les blocs d'un delta entre le jour des dernières casses et le précédent : les blocs comptés
+     * avant le début de ce jour appartiennent au jour précédent, le vidage ayant lieu toutes les quelques secondes.
+     * À appeler après la mise à jour des valeurs envoyées.
+     */
+    private Map<Integer, long[]> splitByDay(long[] countDelta) {
+        Map<Integer, long[]> daily = new HashMap<>();
+        // Lu après les compteurs : un jour commencé pendant leur lecture ne compte aucun bloc lu
+        DayStart start = dayStart;
+        if (start == null) return daily;
+
+        long[] previous = new long[countDelta.length];
+        long[] current = new long[countDelta.length];
+        boolean hasPrevious = false;
+        boolean hasCurrent = false;
+        for (int i = 0; i < countDelta.length; i++) {
+            long before = start.counts[i] - (flushedCounts[i] - countDelta[i]);
+            previous[i] = Math.max(0, Math.min(before, countDelta[i]));
+            current[i] = countDelta[i] - previous[i];
+            hasPrevious |= previous[i] != 0;
+            hasCurrent |= current[i] != 0;
+        }
+        if (hasPrevious) daily.put(start.day - 1, previous);
+        if (hasCurrent) daily.put(start.day, current);
+        return daily;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures de performance du plugin, enregistrées par les listeners, le thread d'écriture,
+ * le thread de lecture et la migration, puis relevées périodiquement par {@link MetricsReporter}.
+ * <p>
+ * Les durées sont en nanosecondes. Tous les compteurs sont des {@link LongAdder} et des {@link Histogram} :
+ * aucun verrou n'est pris sur le thread principal.
+ */
+public final class PluginMetrics {
+
+    /** Durée de {@link CheatListener#onBlockBreak} */
+    private final Histogram blockBreak = new Histogram();
+
+    /** Durée des gestionnaires de clics dans les menus */
+    private final Histogram inventoryClick = new Histogram();
+
+    /** Durée d'une transaction du {@link DatabaseWriter} */
+    private final Histogram databaseWrite = new Histogram();
+
+    /** Nombre de deltas écrits par transaction, soit la profondeur de la file à chaque vidage */
+    private final Histogram writeBatch = new Histogram();
+
+    /** Durée de lecture des statistiques d'un joueur */
+    private final Histogram databaseRead = new Histogram();
+
+    /** Durée d'un lot de la migration des anciennes tables */
+    private final Histogram migrationBatch = new Histogram();
+
+    /** Durée d'agrégation d'un segment du journal des minerais */
+    private final Histogram journalCompaction = new Histogram();
+
+    /** Durée du regroupement d'une journée de l'historique dans les totaux hebdomadaires */
+    private final Histogram historyRollup = new Histogram();
+
+    /** Nombre de requêtes SQL exécutées */
+    private final LongAdder databaseStatements = new LongAdder();
+
+    private final LongAdder statsHits = new LongAdder();
+    private final LongAdder statsMisses = new LongAdder();
+    private final LongAdder skullHits = new LongAdder();
+    private final LongAdder skullMisses = new LongAdder();
+
+    /**
+     * Enregistre la lecture des statistiques d'un joueur par {@link Storage#read}.
+     *
+     * @param nanos         Durée de la lecture.
+     * @param includeLegacy Indique si les anciennes tables ont aussi été lues (deux requêtes de plus).
+     */
+    public void recordRead(long nanos, boolean includeLegacy) {
+        databaseRead.record(nanos);
+        databaseStatements.add(includeLegacy ? 4 : 2);
+    }
+
+    /**
+     * Compte une recherche de statistiques en mémoire pour l'interface graphique.
+     *
+     * @param hit {@code true} si les statistiques étaient en mémoire.
+     */
+    public void recordStatsLookup(boolean hit) {
+        (hit ? statsHits : statsMisses).increment();
+    }
+
+    /**
+     * Compte une recherche dans le cache des têtes.
+     *
+     * @param hit {@code true} si la tête était déjà préparée.
+     */
+    public void recordSkullLookup(boolean hit) {
+        (hit ? skullHits : skullMisses).increment();
+    }
+
+    public Histogram getBlockBreak() {
+        return blockBreak;
+    }
+
+    public Histogram getInventoryClick() {
+        return inventoryClick;
+    }
+
+    public Histogram getDatabaseWrite() {
+        return databaseWrite;
+    }
+
+    public Histogram getWriteBatch() {
+        return writeBatch;
+    }
+
+    public Histogram getDatabaseRead() {
+        return databaseRead;
+    }
+
+    public Histogram getMigrationBatch() {
+        return migrationBatch;
+    }
+
+    public Histogram getJournalCompaction() {
+        return journalCompaction;
+    }
+
+    public Histogram getHistoryRollup() {
+        return historyRollup;
+    }
+
+    public LongAdder getDatabaseStatements() {
+        return databaseStatements;
+    }
+
+    public LongAdder getStatsHits() {
+        return statsHits;
+    }
+
+    public LongAdder getStatsMisses() {
+        return statsMisses;
+    }
+
+    public LongAdder getSkullHits() {
+        return skullHits;
+    }
+
+    public LongAdder getSkullMisses() {
+        return skullMisses;
+    }
+}
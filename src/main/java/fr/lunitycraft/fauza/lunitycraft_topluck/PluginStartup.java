@@ -0,0 +1,189 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Démarrage du plugin hors du thread principal, pour qu'un disque ou une base lente ne retarde
+ * jamais le démarrage du serveur.
+ * <p>
+ * Sur un thread dédié : chargement du driver, création des tables et migrations du schéma,
+ * puis chargement de la table des identifiants. Les taux de référence et le classement sont
+ * ensuite chargés sur un second thread, pendant que le premier lit les statistiques des joueurs
+ * déjà connectés, ouvre le journal des minerais et lit les blocs posés des chunks déjà chargés. Le résultat est remis au thread global
+ * (le thread principal sur un serveur classique) par {@link LunityCraft_TopLuck#completeStartup}, qui démarre les services et rejoue les casses
+ * mises en attente.
+ */
+public class PluginStartup implements Runnable {
+
+    /** Référence à l'instance principale du plugin */
+    private final LunityCraft_TopLuck plugin;
+
+    /** Joueurs connectés à l'activation (rechargement du plugin), par UUID, avec leur pseudo */
+    private final Map<UUID, String> onlinePlayers;
+
+    /** Thread de démarrage et thread de chargement du classement */
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "TopLuck-Startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Début du démarrage, pour la durée affichée lorsque le plugin est prêt */
+    private final long start = System.nanoTime();
+
+    /** Stockage et journal ouverts, fermés ici s'ils ne sont jamais remis au plugin */
+    private volatile Storage storage;
+    private volatile MiningJournal journal;
+
+    /** Indique si le résultat a été remis au plugin (thread principal uniquement) */
+    private boolean handedOver;
+
+    /**
+     * Constructeur du démarrage, appelé sur le thread principal.
+     *
+     * @param plugin        Instance du plugin LunityCraft_TopLuck
+     * @param onlinePlayers Joueurs déjà connectés, par UUID, avec leur pseudo.
+     */
+    public PluginStartup(LunityCraft_TopLuck plugin, Map<UUID, String> onlinePlayers) {
+        this.plugin = plugin;
+        this.onlinePlayers = onlinePlayers;
+    }
+
+    /**
+     * Lance le démarrage en arrière-plan.
+     */
+    public void start() {
+        executor.execute(this);
+    }
+
+    @Override
+    public void run() {
+        try {
+            final Storage opened = plugin.createStorage();
+            storage = opened;
+            opened.initialize();
+            System.out.println("[TopLuck] DB or/and tables created");
+            opened.loadPlayers(plugin.getPlayerIndex());
+
+            // Identifiants des joueurs connectés, avant que le classement n'en attribue aux anciennes tables
+            Map<UUID, Integer> playerIds = new LinkedHashMap<>();
+            for (Map.Entry<UUID, String> player : onlinePlayers.entrySet()) {
+                playerIds.put(player.getKey(), opened.resolvePlayer(plugin.getPlayerIndex(), player.getKey(), player.getValue()));
+            }
+
+            Future<?> leaderboardLoad = executor.submit(() -> {
+                opened.loadPopulation(plugin.getLuckScorer());
+                opened.loadLeaderboard(plugin.getLeaderboard(), plugin.getPlayerIndex());
+                return null;
+            });
+
+            Map<UUID, PlayerStats> preloaded = new HashMap<>();
+            boolean includeLegacy = opened.hasLegacyTables();
+            for (Map.Entry<UUID, Integer> player : playerIds.entrySet()) {
+                String playerName = onlinePlayers.get(player.getKey());
+                long readStart = System.nanoTime();
+                PlayerStats stats = opened.read(player.getValue(), player.getKey(), playerName, includeLegacy);
+                plugin.getMetrics().recordRead(System.nanoTime() - readStart, includeLegacy);
+                preloaded.put(player.getKey(), stats != null ? stats
+                        : new PlayerStats(player.getValue(), player.getKey(), playerName, plugin.getOreRegistry().size()));
+            }
+
+            journal = openJournal();
+            plugin.getPlacedOreStore().loadRegisteredChunks();
+            leaderboardLoad.get();
+            System.out.println("[TopLuck] Leaderboard loaded with " + plugin.getLeaderboard().size() + " players.");
+
+            // Plugin désactivé pendant le démarrage : shutdown() ferme le stockage et le journal
+            if (!plugin.isEnabled()) return;
+            plugin.getTaskScheduler().runGlobal(() -> {
+                handedOver = true;
+                plugin.completeStartup(opened, journal, preloaded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            });
+        } catch (ClassNotFoundException e) {
+            System.out.println("[TopLuck] JDBC driver not found.");
+            fail();
+        } catch (InterruptedException e) {
+            // Plugin désactivé pendant le démarrage
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.out.println("[TopLuck] Failed to initialize the database.");
+            e.printStackTrace();
+            fail();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Interrompt un démarrage en cours et ferme ce qu'il a ouvert sans le remettre au plugin.
+     * Appelée sur le thread principal, à la désactivation du plugin.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!handedOver) {
+            closeOpened();
+        }
+    }
+
+    /**
+     * Ouvre le journal des minerais rares cassés, s'il est activé.
+     *
+     * @return Le journal, ou {@code null} s'il est désactivé ou ne peut pas être ouvert.
+     */
+    private MiningJournal openJournal() {
+        if (!plugin.getConfig().getBoolean("journal.enabled", true)) return null;
+        try {
+            return new MiningJournal(new File(plugin.getDataFolder(), "journal"),
+                    Math.max(1024, plugin.getConfig().getInt("journal.segment-records", 65536)));
+        } catch (IOException e) {
+            System.out.println("[TopLuck] Failed to open the mining journal, journal disabled.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Ferme ce qui a été ouvert et signale l'échec au thread principal.
+     */
+    private void fail() {
+        closeOpened();
+        if (plugin.isEnabled()) {
+            plugin.getTaskScheduler().runGlobal(plugin::failStartup);
+        }
+    }
+
+    private void closeOpened() {
+        Storage opened = storage;
+        storage = null;
+        if (opened != null) {
+            opened.close();
+        }
+        MiningJournal openedJournal = journal;
+        journal = null;
+        if (openedJournal != null) {
+            try {
+                openedJournal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+/**
+ * État de démarrage du plugin, voir {@link LunityCraft_TopLuck#getState()}.
+ */
+public enum PluginState {
+
+    /** Le stockage est en cours d'ouverture : les casses de blocs sont mises en attente */
+    STARTING,
+
+    /** Le stockage et les caches sont chargés */
+    READY,
+
+    /** Le stockage n'a pas pu être ouvert : les statistiques sont désactivées */
+    FAILED
+}
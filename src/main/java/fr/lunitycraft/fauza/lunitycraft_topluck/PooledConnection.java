@@ -0,0 +1,97 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connexion empruntée à un {@link ConnectionPool}, rendue au pool par {@link #close()}.
+ * <p>
+ * Les requêtes préparées sont conservées avec la connexion et réutilisées d'un emprunt à l'autre :
+ * une requête n'est analysée qu'une fois par connexion. Elles ne doivent donc pas être fermées
+ * par l'appelant, qui ne ferme que ses {@link java.sql.ResultSet}.
+ */
+public final class PooledConnection implements AutoCloseable {
+
+    /** Pool propriétaire de la connexion */
+    private final ConnectionPool pool;
+
+    /** Connexion JDBC sous-jacente */
+    private final Connection connection;
+
+    /** Requêtes préparées sur cette connexion, indexées par leur texte */
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    /** Heure du dernier retour au pool, en millisecondes */
+    private long lastReleased = System.currentTimeMillis();
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    /**
+     * Retourne la requête préparée pour ce texte, en la préparant au premier appel.
+     *
+     * @param sql Texte de la requête.
+     * @return La requête, à ne pas fermer.
+     * @throws SQLException En cas d'erreur lors de la préparation.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Retourne la connexion JDBC, pour les requêtes ponctuelles et les transactions.
+     *
+     * @return La connexion, à ne pas fermer.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Rend la connexion au pool.
+     */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    long getLastReleased() {
+        return lastReleased;
+    }
+
+    void setLastReleased(long lastReleased) {
+        this.lastReleased = lastReleased;
+    }
+
+    /**
+     * Ferme les requêtes préparées puis la connexion.
+     */
+    void closeConnection() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
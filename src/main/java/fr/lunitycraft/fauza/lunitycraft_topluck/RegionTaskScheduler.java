@@ -0,0 +1,127 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Planification sur un serveur à régions (Folia), dont chaque région avance sur son propre thread.
+ * <p>
+ * Le plugin est compilé contre l'API Spigot : les planificateurs de Folia (global, asynchrone et
+ * par entité) sont donc appelés par réflexion, les méthodes étant résolues une seule fois.
+ * Folia n'accepte pas de délai nul : les tâches immédiates partent au tick suivant.
+ */
+public class RegionTaskScheduler implements TaskScheduler {
+
+    /** Classe présente uniquement sur un serveur à régions */
+    private static final String REGIONIZED_SERVER = "io.papermc.paper.threadedregions.RegionizedServer";
+
+    /** Plugin propriétaire des tâches */
+    private final Plugin plugin;
+
+    /** Planificateurs global et asynchrone du serveur */
+    private final Object globalScheduler;
+    private final Object asyncScheduler;
+
+    private final Method globalExecute;
+    private final Method globalRunDelayed;
+    private final Method globalRunAtFixedRate;
+    private final Method asyncRunAtFixedRate;
+    private final Method entityGetScheduler;
+    private final Method entityExecute;
+
+    /**
+     * Constructeur du planificateur.
+     *
+     * @param plugin Plugin propriétaire des tâches.
+     * @throws ReflectiveOperationException Si l'API de planification de Folia est introuvable.
+     */
+    public RegionTaskScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        // Méthodes résolues sur les interfaces publiques de l'API, pas sur leurs implémentations
+        Method getGlobal = Bukkit.class.getMethod("getGlobalRegionScheduler");
+        Method getAsync = Bukkit.class.getMethod("getAsyncScheduler");
+        this.globalScheduler = getGlobal.invoke(null);
+        this.asyncScheduler = getAsync.invoke(null);
+
+        Class<?> global = getGlobal.getReturnType();
+        this.globalExecute = global.getMethod("execute", Plugin.class, Runnable.class);
+        this.globalRunDelayed = global.getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
+        this.globalRunAtFixedRate = global.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+        this.asyncRunAtFixedRate = getAsync.getReturnType().getMethod("runAtFixedRate",
+                Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+
+        this.entityGetScheduler = Entity.class.getMethod("getScheduler");
+        this.entityExecute = entityGetScheduler.getReturnType().getMethod("execute",
+                Plugin.class, Runnable.class, Runnable.class, long.class);
+    }
+
+    /**
+     * Indique si le serveur fait avancer ses régions sur plusieurs threads.
+     *
+     * @return {@code true} sur un serveur Folia.
+     */
+    public static boolean isSupported() {
+        try {
+            Class.forName(REGIONIZED_SERVER);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void runGlobal(Runnable task) {
+        invoke(globalExecute, globalScheduler, plugin, task);
+    }
+
+    @Override
+    public void runGlobalLater(Runnable task, long delayTicks) {
+        invoke(globalRunDelayed, globalScheduler, plugin, consumer(task), Math.max(1, delayTicks));
+    }
+
+    @Override
+    public void runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        invoke(globalRunAtFixedRate, globalScheduler, plugin, consumer(task), Math.max(1, delayTicks), periodTicks);
+    }
+
+    @Override
+    public void runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        invoke(asyncRunAtFixedRate, asyncScheduler, plugin, consumer(task),
+                delayTicks * 50, periodTicks * 50, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void runForPlayer(Player player, Runnable task, long delayTicks) {
+        // Le joueur déconnecté est « retiré » : la tâche est alors abandonnée
+        Object entityScheduler = invoke(entityGetScheduler, player);
+        invoke(entityExecute, entityScheduler, plugin, task, null, Math.max(1, delayTicks));
+    }
+
+    /**
+     * Adapte une tâche à l'interface attendue par Folia, qui reçoit la tâche planifiée en paramètre.
+     */
+    private static Consumer<Object> consumer(Runnable task) {
+        return scheduled -> task.run();
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot call " + method, e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Failed to schedule a task with " + method, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Outil hors serveur qui recalcule le ratio et le score de tous les joueurs d'une base "data.db",
+ * après un changement des catégories rares ou communes de la configuration.
+ * <p>
+ * Lancé par {@code ./gradlew rescore --args="<data.db> [config.yml]"}, sur une copie de la base
+ * et sans serveur : sans fichier de configuration, celle fournie avec le plugin est utilisée.
+ * <p>
+ * Les joueurs sont lus par lots de {@value #CHUNK_SIZE}, dans l'ordre de leur identifiant :
+ * seul le lot en cours est en mémoire, quelle que soit la taille de la base. Les scores d'un lot sont
+ * calculés en parallèle sur un {@link ForkJoinPool}, puis écrits dans une seule transaction.
+ * Les taux de référence du {@link LuckScorer} sont d'abord calculés sur toute la base avec la nouvelle
+ * configuration, puis restent fixes : le calcul d'un score ne modifie aucun état partagé.
+ */
+public final class RescoreTool {
+
+    /** Nombre de joueurs par lot et par transaction */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /** Nombre de joueurs calculés par une tâche du pool sans être divisée */
+    private static final int TASK_THRESHOLD = 512;
+
+    private static final String SELECT_CHUNK_QUERY =
+            "SELECT player_id, total_blocks FROM player_stats WHERE player_id > ? ORDER BY player_id LIMIT ?";
+
+    private static final String SELECT_CHUNK_ORES_QUERY =
+            "SELECT player_id, category, count, weighted, veins FROM player_ores " +
+                    "WHERE player_id >= ? AND player_id <= ? ORDER BY player_id";
+
+    private static final String UPDATE_SCORE_QUERY =
+            "UPDATE player_stats SET rare_to_common_ratio = ?, luck_score = ? WHERE player_id = ?";
+
+    private RescoreTool() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: RescoreTool <data.db> [config.yml]");
+            System.exit(2);
+        }
+        File databaseFile = new File(args[0]);
+        if (!databaseFile.isFile()) {
+            System.out.println("[TopLuck] Database " + databaseFile + " not found.");
+            System.exit(1);
+        }
+
+        YamlConfiguration config = loadConfig(args.length > 1 ? new File(args[1]) : null);
+        OreRegistry oreRegistry = OreRegistry.fromConfig(config.getConfigurationSection("ores"));
+        LuckScorer luckScorer = new LuckScorer(oreRegistry, Math.max(1, config.getDouble("scoring.prior-strength", 500)));
+
+        Class.forName("org.sqlite.JDBC");
+        SqliteStorage storage = new SqliteStorage(databaseFile, oreRegistry);
+        ForkJoinPool forkJoinPool = new ForkJoinPool();
+        try {
+            storage.initialize();
+            if (storage.hasLegacyTables()) {
+                System.out.println("[TopLuck] This database still has tables keyed by player name: "
+                        + "start the plugin once to finish the migration, then run the tool again.");
+                System.exit(1);
+            }
+            storage.loadPopulation(luckScorer);
+
+            long start = System.nanoTime();
+            long players = rescore(storage, oreRegistry, luckScorer, forkJoinPool);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("[TopLuck] Rescored " + players + " players in " + millis + " ms.");
+        } finally {
+            forkJoinPool.shutdown();
+            storage.close();
+        }
+    }
+
+    /**
+     * Recalcule tous les joueurs, lot par lot.
+     *
+     * @return Le nombre de joueurs recalculés.
+     */
+    private static long rescore(SqliteStorage storage, OreRegistry oreRegistry, LuckScorer luckScorer,
+                                ForkJoinPool forkJoinPool) throws SQLException {
+        PlayerStats[] chunk = new PlayerStats[CHUNK_SIZE];
+        double[] ratios = new double[CHUNK_SIZE];
+        double[] scores = new double[CHUNK_SIZE];
+        long players = 0;
+        int lastId = Integer.MIN_VALUE;
+
+        try (PooledConnection pooled = storage.borrow()) {
+            Connection connection = pooled.getConnection();
+            while (true) {
+                int size = readChunk(pooled, oreRegistry, lastId, chunk);
+                if (size == 0) break;
+
+                forkJoinPool.invoke(new ScoreTask(luckScorer, chunk, ratios, scores, 0, size));
+
+                PreparedStatement updateStatement = pooled.prepare(UPDATE_SCORE_QUERY);
+                connection.setAutoCommit(false);
+                try {
+                    for (int i = 0; i < size; i++) {
+                        updateStatement.setDouble(1, ratios[i]);
+                        updateStatement.setDouble(2, scores[i]);
+                        updateStatement.setInt(3, chunk[i].getPlayerId());
+                        updateStatement.addBatch();
+                    }
+                    updateStatement.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    updateStatement.clearBatch();
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+
+                lastId = chunk[size - 1].getPlayerId();
+                players += size;
+                if ((players / CHUNK_SIZE) % 10 == 0) {
+                    System.out.println("[TopLuck] " + players + " players rescored...");
+                }
+                if (size < CHUNK_SIZE) break;
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Lit le lot de joueurs suivant l'identifiant {@code lastId}, avec leurs minerais.
+     *
+     * @return Le nombre de joueurs lus dans {@code chunk}.
+     */
+    private static int readChunk(PooledConnection pooled, OreRegistry oreRegistry, int lastId, PlayerStats[] chunk)
+            throws SQLException {
+        int size = 0;
+        PreparedStatement chunkStatement = pooled.prepare(SELECT_CHUNK_QUERY);
+        chunkStatement.setInt(1, lastId);
+        chunkStatement.setInt(2, chunk.length);
+        try (ResultSet resultSet = chunkStatement.executeQuery()) {
+            while (resultSet.next()) {
+                PlayerStats stats = new PlayerStats(resultSet.getInt("player_id"), null, null, oreRegistry.size());
+                stats.loadTotal(resultSet.getLong("total_blocks"));
+                chunk[size++] = stats;
+            }
+        }
+        if (size == 0) return 0;
+
+        // Les lignes arrivent triées par joueur, comme le lot : un seul parcours suffit
+        PreparedStatement oreStatement = pooled.prepare(SELECT_CHUNK_ORES_QUERY);
+        oreStatement.setInt(1, chunk[0].getPlayerId());
+        oreStatement.setInt(2, chunk[size - 1].getPlayerId());
+        try (ResultSet resultSet = oreStatement.executeQuery()) {
+            int index = 0;
+            while (resultSet.next()) {
+                int playerId = resultSet.getInt("player_id");
+                while (index < size && chunk[index].getPlayerId() < playerId) {
+                    index++;
+                }
+                // Minerais sans ligne de totaux, ignorés comme à la lecture par le plugin
+                if (index == size || chunk[index].getPlayerId() != playerId) continue;
+
+                OreCategory category = oreRegistry.getCategory(resultSet.getString("category"));
+                if (category != null) {
+                    chunk[index].load(category, resultSet.getLong("count"), resultSet.getDouble("weighted"),
+                            resultSet.getLong("veins"));
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Charge la configuration donnée, ou celle fournie avec le plugin.
+     */
+    private static YamlConfiguration loadConfig(File configFile) throws Exception {
+        if (configFile != null) {
+            if (!configFile.isFile()) {
+                System.out.println("[TopLuck] Configuration " + configFile + " not found.");
+                System.exit(1);
+            }
+            return YamlConfiguration.loadConfiguration(configFile);
+        }
+        try (Reader reader = new InputStreamReader(
+                RescoreTool.class.getResourceAsStream("/config.yml"), StandardCharsets.UTF_8)) {
+            return YamlConfiguration.loadConfiguration(reader);
+        }
+    }
+
+    /**
+     * Calcule le ratio et le score d'une partie du lot, en la divisant tant qu'elle dépasse
+     * {@value #TASK_THRESHOLD} joueurs. Chaque tâche écrit dans ses propres cases des tableaux de résultats.
+     */
+    private static final class ScoreTask extends RecursiveAction {
+
+        private final LuckScorer luckScorer;
+        private final PlayerStats[] chunk;
+        private final double[] ratios;
+        private final double[] scores;
+        private final int from;
+        private final int to;
+
+        private ScoreTask(LuckScorer luckScorer, PlayerStats[] chunk, double[] ratios, double[] scores, int from, int to) {
+            this.luckScorer = luckScorer;
+            this.chunk = chunk;
+            this.ratios = ratios;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > TASK_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScoreTask(luckScorer, chunk, ratios, scores, from, middle),
+                        new ScoreTask(luckScorer, chunk, ratios, scores, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                ratios[i] = chunk[i].getRatio();
+                scores[i] = luckScorer.score(chunk[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.SkullMeta;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU borné de têtes de joueurs préparées.
+ * {@link SkullMeta#setOwner(String)} peut déclencher une résolution de profil bloquante :
+ * chaque tête n'est donc préparée qu'une fois puis copiée à chaque affichage.
+ * Le cache est synchronisé : les menus peuvent être construits sur les threads de plusieurs régions.
+ */
+public class SkullCache {
+
+    /** Têtes préparées, de la moins récemment utilisée à la plus récente */
+    private final Map<String, ItemStack> skulls;
+
+    /** Mesures du plugin, pour le taux de réussite du cache */
+    private final PluginMetrics metrics;
+
+    /**
+     * Constructeur du cache.
+     *
+     * @param capacity Nombre maximal de têtes conservées.
+     * @param metrics  Mesures du plugin.
+     */
+    public SkullCache(final int capacity, PluginMetrics metrics) {
+        this.metrics = metrics;
+        this.skulls = new LinkedHashMap<String, ItemStack>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ItemStack> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Retourne une copie de la tête préparée d'un joueur, en la créant si nécessaire.
+     * La copie peut être modifiée (lore) sans altérer le cache.
+     *
+     * @param playerName Nom du joueur.
+     * @return Une copie de la tête du joueur.
+     */
+    public synchronized ItemStack get(String playerName) {
+        ItemStack skull = skulls.get(playerName);
+        metrics.recordSkullLookup(skull != null);
+        if (skull == null) {
+            skull = new ItemStack(Material.SKULL_ITEM, 1, (short) 3); // Pour les versions <1.13
+            SkullMeta meta = (SkullMeta) skull.getItemMeta();
+            if (meta != null) {
+                meta.setDisplayName(ChatColor.GREEN + "Joueur : " + playerName);
+                meta.setOwner(playerName);
+            }
+            skull.setItemMeta(meta);
+            skulls.put(playerName, skull);
+        }
+        return skull.clone();
+    }
+
+    /**
+     * Retourne le nombre de têtes en cache.
+     *
+     * @return La taille du cache.
+     */
+    public synchronized int size() {
+        return skulls.size();
+    }
+}
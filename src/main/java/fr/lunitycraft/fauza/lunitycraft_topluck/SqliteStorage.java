@@ -0,0 +1,427 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Stockage dans le fichier SQLite "data.db" du serveur.
+ * <p>
+ * Le journal WAL permet au thread de lecture de lire pendant que le thread d'écriture écrit ;
+ * le pool ouvre une connexion par thread qui accède à la base. C'est aussi le seul stockage qui peut
+ * contenir les anciennes tables indexées par pseudo, lues en complément tant que la
+ * {@link PlayerIdMigration} n'est pas terminée.
+ * <p>
+ * La base est en mode {@code auto_vacuum=INCREMENTAL} : les pages libérées par le regroupement
+ * de l'historique sont rendues au système par petites étapes ({@link #vacuum(int)}), sans
+ * réécrire tout le fichier comme le ferait un {@code VACUUM}.
+ */
+public class SqliteStorage extends JdbcStorage {
+
+    /** Thread principal, thread d'écriture, thread de lecture et migration */
+    private static final int POOL_SIZE = 4;
+
+    /** Ancienne table des minerais indexée par pseudo, créée pour une base antérieure à son introduction */
+    private static final String CREATE_LEGACY_ORES_QUERY =
+            "CREATE TABLE IF NOT EXISTS player_ore_stats (" +
+                    "player_name TEXT NOT NULL, " +
+                    "category TEXT NOT NULL, " +
+                    "count INTEGER DEFAULT 0, " +
+                    "weighted REAL DEFAULT 0.0, " +
+                    "PRIMARY KEY (player_name, category)" +
+                    ");";
+
+    private static final String SELECT_LEGACY_TOTAL_QUERY =
+            "SELECT total_blocks FROM player_data WHERE player_name = ?";
+
+    private static final String SELECT_LEGACY_ORES_QUERY =
+            "SELECT category, count, weighted, 0 AS veins, NULL AS profile FROM player_ore_stats WHERE player_name = ?";
+
+    private static final String LEGACY_POPULATION_COUNTS_QUERY =
+            "SELECT category, SUM(count) AS total FROM (" +
+                    "SELECT category, count FROM player_ores UNION ALL " +
+                    "SELECT category, count FROM player_ore_stats) GROUP BY category";
+
+    private static final String LEGACY_POPULATION_TOTAL_QUERY =
+            "SELECT (SELECT IFNULL(SUM(total_blocks), 0) FROM player_stats) + " +
+                    "(SELECT IFNULL(SUM(total_blocks), 0) FROM player_data) AS total";
+
+    private static final String FREELIST_COUNT_QUERY = "PRAGMA freelist_count";
+
+    private static final String INCREMENTAL_VACUUM_QUERY = "PRAGMA incremental_vacuum(1)";
+
+    /** Indique si les anciennes tables existaient à l'initialisation */
+    private boolean legacy;
+
+    /**
+     * Crée le stockage sans ouvrir de connexion.
+     *
+     * @param databaseFile Fichier de la base SQLite.
+     * @param oreRegistry  Classification des blocs suivis.
+     */
+    public SqliteStorage(File databaseFile, OreRegistry oreRegistry) {
+        // Journal WAL : les lectures ne bloquent plus le thread d'écriture et chaque
+        // transaction ne nécessite plus qu'une synchronisation disque au checkpoint
+        super(new ConnectionPool("jdbc:sqlite:" + databaseFile.getPath(), new Properties(), POOL_SIZE,
+                Arrays.asList("PRAGMA journal_mode=WAL", "PRAGMA synchronous=NORMAL", "PRAGMA busy_timeout=5000")),
+                oreRegistry);
+    }
+
+    @Override
+    protected List<String> schema() {
+        return Arrays.asList(
+                "CREATE TABLE IF NOT EXISTS players (" +
+                        "id INTEGER PRIMARY KEY, " +
+                        "uuid TEXT UNIQUE, " +
+                        "name TEXT NOT NULL" +
+                        ");",
+                "CREATE TABLE IF NOT EXISTS player_stats (" +
+                        "player_id INTEGER PRIMARY KEY, " +
+                        "total_blocks INTEGER DEFAULT 0, " +
+                        "rare_to_common_ratio REAL DEFAULT 0.0, " +
+                        "luck_score REAL DEFAULT 0.0" +
+                        ");",
+                "CREATE TABLE IF NOT EXISTS player_ores (" +
+                        "player_id INTEGER NOT NULL, " +
+                        "category TEXT NOT NULL, " +
+                        "count INTEGER DEFAULT 0, " +
+                        "weighted REAL DEFAULT 0.0, " +
+                        "veins INTEGER DEFAULT 0, " +
+                        "profile BLOB, " +
+                        "PRIMARY KEY (player_id, category)" +
+                        ") WITHOUT ROWID;",
+                "CREATE TABLE IF NOT EXISTS player_ore_history (" +
+                        "player_id INTEGER NOT NULL, " +
+                        "day INTEGER NOT NULL, " +
+                        "category TEXT NOT NULL, " +
+                        "count INTEGER DEFAULT 0, " +
+                        "dark INTEGER DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, day, category)" +
+                        ") WITHOUT ROWID;",
+                "CREATE TABLE IF NOT EXISTS journal_checkpoints (" +
+                        "journal TEXT PRIMARY KEY, " +
+                        "segment INTEGER NOT NULL" +
+                        ");",
+                "CREATE TABLE IF NOT EXISTS player_ore_daily (" +
+                        "player_id INTEGER NOT NULL, " +
+                        "day INTEGER NOT NULL, " +
+                        "category TEXT NOT NULL, " +
+                        "count INTEGER DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, day, category)" +
+                        ") WITHOUT ROWID;",
+                "CREATE TABLE IF NOT EXISTS player_ore_weekly (" +
+                        "player_id INTEGER NOT NULL, " +
+                        "week INTEGER NOT NULL, " +
+                        "category TEXT NOT NULL, " +
+                        "count INTEGER DEFAULT 0, " +
+                        "dark INTEGER DEFAULT 0, " +
+                        "PRIMARY KEY (player_id, week, category)" +
+                        ") WITHOUT ROWID;",
+                "CREATE INDEX IF NOT EXISTS player_ore_daily_day ON player_ore_daily (day);",
+                "CREATE INDEX IF NOT EXISTS player_ore_history_day ON player_ore_history (day);"
+        );
+    }
+
+    @Override
+    protected String upsertPlayerQuery() {
+        return "INSERT INTO players (id, uuid, name) VALUES (?, ?, ?) " +
+                "ON CONFLICT(id) DO UPDATE SET uuid = excluded.uuid, name = excluded.name";
+    }
+
+    @Override
+    protected String upsertStatsQuery() {
+        return "INSERT INTO player_stats (player_id, total_blocks, rare_to_common_ratio, luck_score) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(player_id) DO UPDATE SET " +
+                "total_blocks = total_blocks + excluded.total_blocks, " +
+                "rare_to_common_ratio = excluded.rare_to_common_ratio, " +
+                "luck_score = excluded.luck_score";
+    }
+
+    @Override
+    protected String upsertOreQuery() {
+        return "INSERT INTO player_ores (player_id, category, count, weighted, veins, profile) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT(player_id, category) DO UPDATE SET " +
+                "count = count + excluded.count, " +
+                "weighted = weighted + excluded.weighted, " +
+                "veins = veins + excluded.veins, " +
+                "profile = excluded.profile";
+    }
+
+    @Override
+    protected String upsertHistoryQuery() {
+        return "INSERT INTO player_ore_history (player_id, day, category, count, dark) VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT(player_id, day, category) DO UPDATE SET " +
+                "count = count + excluded.count, " +
+                "dark = dark + excluded.dark";
+    }
+
+    @Override
+    protected String upsertCheckpointQuery() {
+        return "INSERT INTO journal_checkpoints (journal, segment) VALUES (?, ?) " +
+                "ON CONFLICT(journal) DO UPDATE SET segment = excluded.segment";
+    }
+
+    @Override
+    protected String upsertDailyQuery() {
+        return "INSERT INTO player_ore_daily (player_id, day, category, count) VALUES (?, ?, ?, ?) " +
+                "ON CONFLICT(player_id, day, category) DO UPDATE SET count = count + excluded.count";
+    }
+
+    @Override
+    protected String rollupWeeklyQuery(String select) {
+        // La clause WHERE de la sélection lève l'ambiguïté entre ON CONFLICT et une jointure
+        return "INSERT INTO player_ore_weekly (player_id, week, category, count, dark) " + select + " " +
+                "ON CONFLICT(player_id, week, category) DO UPDATE SET " +
+                "count = count + excluded.count, " +
+                "dark = dark + excluded.dark";
+    }
+
+    @Override
+    public boolean isShared() {
+        return false;
+    }
+
+    @Override
+    protected List<Migration> migrations() {
+        return Arrays.<Migration>asList(
+                // 1 : nombre de filons par minerai
+                connection -> addColumn(connection, "player_ores", "veins", "INTEGER DEFAULT 0"),
+                // 2 et 3 : anciennes tables indexées par pseudo, mises au dernier format avant leur migration ;
+                // une base de la toute première version n'a que "player_data", avec une colonne par minerai
+                connection -> {
+                    if (!hasTable(connection, "player_data")) return;
+                    try (Statement statement = connection.createStatement()) {
+                        statement.executeUpdate(CREATE_LEGACY_ORES_QUERY);
+                    }
+                    migrateLegacyColumns(connection);
+                },
+                connection -> {
+                    if (hasTable(connection, "player_data")) {
+                        addColumn(connection, "player_data", "luck_score", "REAL DEFAULT 0.0");
+                    }
+                },
+                // 4 : libération incrémentale des pages, appliquée par une réécriture complète du fichier
+                SqliteStorage::enableIncrementalVacuum,
+                // 5 : répartition des blocs par couche et par luminosité
+                connection -> addColumn(connection, "player_ores", "profile", "BLOB")
+        );
+    }
+
+    /**
+     * Crée et met à jour les tables, puis détecte les anciennes tables indexées par pseudo
+     * qui restent à migrer.
+     */
+    @Override
+    public void initialize() throws SQLException {
+        super.initialize();
+        try (PooledConnection pooled = pool.borrow()) {
+            legacy = hasTable(pooled.getConnection(), "player_data");
+        }
+    }
+
+    @Override
+    public boolean hasLegacyTables() {
+        return legacy;
+    }
+
+    @Override
+    public void loadPopulation(LuckScorer luckScorer) throws SQLException {
+        if (!legacy) {
+            super.loadPopulation(luckScorer);
+            return;
+        }
+        loadPopulation(luckScorer, LEGACY_POPULATION_COUNTS_QUERY, LEGACY_POPULATION_TOTAL_QUERY);
+    }
+
+    /**
+     * Remplit le classement ; les joueurs des anciennes tables reçoivent ici leur identifiant,
+     * utilisé ensuite par la migration.
+     */
+    @Override
+    public void loadLeaderboard(LuckLeaderboard leaderboard, PlayerIndex playerIndex) throws SQLException {
+        super.loadLeaderboard(leaderboard, playerIndex);
+        if (!legacy) return;
+
+        try (PooledConnection connection = pool.borrow();
+             Statement statement = connection.getConnection().createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT player_name, luck_score, rare_to_common_ratio FROM player_data")) {
+            while (resultSet.next()) {
+                String playerName = resultSet.getString("player_name");
+                leaderboard.update(playerIndex.legacyId(playerName), playerName,
+                        resultSet.getDouble("luck_score"), resultSet.getDouble("rare_to_common_ratio"));
+            }
+        }
+    }
+
+    /**
+     * Lit les statistiques d'un joueur. Tant que la migration des anciennes tables n'est pas terminée,
+     * les lignes encore indexées par pseudo sont ajoutées ; la lecture se fait alors dans une transaction
+     * pour qu'un lot migré entre deux requêtes ne soit ni compté deux fois, ni oublié.
+     */
+    @Override
+    public PlayerStats read(int playerId, UUID uuid, String playerName, boolean includeLegacy) throws SQLException {
+        if (!includeLegacy) {
+            return super.read(playerId, uuid, playerName, false);
+        }
+
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            PlayerStats playerStats = new PlayerStats(playerId, uuid, playerName, oreRegistry.size());
+            connection.setAutoCommit(false);
+            try {
+                boolean found = readRows(pooled, SELECT_TOTAL_QUERY, SELECT_ORES_QUERY, playerId, playerStats);
+                found |= readRows(pooled, SELECT_LEGACY_TOTAL_QUERY, SELECT_LEGACY_ORES_QUERY, playerName, playerStats);
+                return found ? playerStats : null;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Déplace les anciennes colonnes par minerai de "player_data" (diamond_blocks, gold_blocks,
+     * emerald_blocks, common_blocks) vers la table normalisée "player_ore_stats", puis les supprime.
+     * Ne fait rien si la base a déjà été migrée.
+     *
+     * @throws SQLException En cas d'erreur lors de la migration.
+     */
+    private void migrateLegacyColumns(Connection connection) throws SQLException {
+        boolean legacyColumns = false;
+        try (Statement statement = connection.createStatement();
+             ResultSet columns = statement.executeQuery("PRAGMA table_info(player_data)")) {
+            while (columns.next()) {
+                if ("diamond_blocks".equals(columns.getString("name"))) legacyColumns = true;
+            }
+        }
+        if (!legacyColumns) return;
+
+        String[][] columns = {
+                {"diamond", "diamond_blocks"},
+                {"gold", "gold_blocks"},
+                {"emerald", "emerald_blocks"},
+                {"common", "common_blocks"}
+        };
+
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String[] column : columns) {
+                statement.executeUpdate(
+                        "INSERT OR IGNORE INTO player_ore_stats (player_name, category, count, weighted) " +
+                                "SELECT player_name, '" + column[0] + "', " + column[1] + ", " + column[1] +
+                                " FROM player_data WHERE " + column[1] + " > 0"
+                );
+            }
+            for (String[] column : columns) {
+                statement.executeUpdate("ALTER TABLE player_data DROP COLUMN " + column[1]);
+            }
+            connection.commit();
+            System.out.println("[TopLuck] Migrated per-ore columns of player_data to player_ore_stats.");
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Rend au système au plus {@code pages} pages libres, dans une seule transaction.
+     * Le pragma rend une ligne par page libérée et le driver n'avance qu'à la première :
+     * chaque exécution de {@code incremental_vacuum(1)} libère donc exactement une page.
+     */
+    @Override
+    public int vacuum(int pages) throws SQLException {
+        try (PooledConnection pooled = pool.borrow()) {
+            Connection connection = pooled.getConnection();
+            int free;
+            try (ResultSet resultSet = pooled.prepare(FREELIST_COUNT_QUERY).executeQuery()) {
+                free = resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+            int freed = Math.min(free, pages);
+            if (freed == 0) return 0;
+
+            PreparedStatement statement = pooled.prepare(INCREMENTAL_VACUUM_QUERY);
+            connection.setAutoCommit(false);
+            try {
+                for (int i = 0; i < freed; i++) {
+                    statement.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return freed;
+        }
+    }
+
+    /**
+     * Passe la base en mode {@code auto_vacuum=INCREMENTAL}. Le mode d'une base existante ne change
+     * qu'avec un {@code VACUUM}, qui réécrit le fichier une seule fois, ici pendant le démarrage
+     * en arrière-plan. Ne fait rien si la base est déjà dans ce mode.
+     *
+     * @throws SQLException En cas d'erreur lors de la réécriture.
+     */
+    private static void enableIncrementalVacuum(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("PRAGMA auto_vacuum")) {
+                if (resultSet.next() && resultSet.getInt(1) == 2) return;
+            }
+            statement.executeUpdate("PRAGMA auto_vacuum=INCREMENTAL");
+            statement.executeUpdate("VACUUM");
+            System.out.println("[TopLuck] Enabled incremental vacuum on data.db.");
+        }
+    }
+
+    /**
+     * Indique si une table existe dans la base.
+     *
+     * @param table Nom de la table.
+     * @return {@code true} si la table existe.
+     */
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    /**
+     * Ajoute une colonne à une table créée par une version précédente du plugin, si elle n'existe pas
+     * (par exemple "luck_score" dans l'ancienne table "player_data", pour que la migration puisse la copier).
+     *
+     * @param table      Nom de la table.
+     * @param column     Nom de la colonne.
+     * @param definition Type et valeur par défaut de la colonne.
+     * @throws SQLException En cas d'erreur lors de la modification de la table.
+     */
+    private static void addColumn(Connection connection, String table, String column, String definition)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet columns = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (columns.next()) {
+                    if (column.equals(columns.getString("name"))) return;
+                }
+            }
+            statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            System.out.println("[TopLuck] Added " + column + " column to " + table + ".");
+        }
+    }
+}
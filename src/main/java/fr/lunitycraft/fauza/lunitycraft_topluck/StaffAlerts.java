@@ -0,0 +1,225 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alertes du staff lorsqu'un joueur franchit le seuil de score ou de ratio.
+ * <p>
+ * Chaque reclassement d'un joueur par le {@link LeaderboardUpdater} est comparé aux seuils en O(1),
+ * sans accès à la base : seul le passage de sous le seuil à au-dessus compte comme un franchissement.
+ * Le premier franchissement d'un joueur est signalé au passage suivant ; ceux qui suivent pendant la
+ * fenêtre de regroupement sont réunis en un seul message, envoyé à la fin de la fenêtre.
+ * Un seau à jetons borne le nombre de messages par minute pour tout le serveur : sans jeton, l'alerte
+ * reste en attente et continue d'accumuler les franchissements, sans jamais être perdue.
+ * Un joueur qui se déconnecte est considéré comme redescendu sous les seuils : l'alerte déjà en attente
+ * part quand même, et un nouveau franchissement après sa reconnexion est de nouveau signalé.
+ * <p>
+ * Les alertes sont envoyées aux joueurs connectés ayant la permission {@value #PERMISSION}, en un
+ * message cliquable qui ouvre l'interface Top Luck du joueur. Toutes les méthodes s'exécutent sur le
+ * thread global (le thread principal sur un serveur classique).
+ */
+public class StaffAlerts implements Runnable {
+
+    /** Permission des destinataires, celle de la commande /topluck */
+    private static final String PERMISSION = "LunityCraft.topluck";
+
+    /** Référence à l'instance principale du plugin */
+    private final LunityCraft_TopLuck plugin;
+
+    /** Score d'anomalie à partir duquel un joueur est signalé */
+    private final double scoreThreshold;
+
+    /** Ratio à partir duquel un joueur est signalé */
+    private final double ratioThreshold;
+
+    /** Nombre de blocs en dessous duquel le ratio, trop instable, n'est pas comparé au seuil */
+    private final long minBlocks;
+
+    /** Durée de regroupement des franchissements d'un joueur, en millisecondes */
+    private final long windowMillis;
+
+    /** Seau à jetons : capacité, jetons disponibles et jetons ajoutés par milliseconde */
+    private final double burst;
+    private double tokens;
+    private final double tokensPerMilli;
+    private long lastRefill = System.currentTimeMillis();
+
+    /** Joueurs au-dessus d'un seuil ou avec une alerte en attente, par identifiant */
+    private final Map<Integer, Suspect> suspects = new HashMap<>();
+
+    /** Nombre d'alertes envoyées, et de passages où une alerte a attendu faute de jeton */
+    private final AtomicLong sentAlerts = new AtomicLong();
+    private final AtomicLong throttledAlerts = new AtomicLong();
+
+    /**
+     * État d'alerte d'un joueur.
+     */
+    private static final class Suspect {
+
+        private final String playerName;
+
+        /** Indique si le joueur était au-dessus d'un seuil à son dernier reclassement */
+        private boolean above;
+
+        /** Franchissements pas encore signalés */
+        private int pending;
+
+        /** Fin de la fenêtre ouverte par la dernière alerte, en millisecondes */
+        private long windowEnd;
+
+        /** Score et ratio au dernier reclassement */
+        private double score;
+        private double ratio;
+
+        private Suspect(String playerName) {
+            this.playerName = playerName;
+        }
+    }
+
+    /**
+     * Constructeur des alertes.
+     *
+     * @param plugin         Instance du plugin LunityCraft_TopLuck
+     * @param scoreThreshold Score d'anomalie à partir duquel un joueur est signalé.
+     * @param ratioThreshold Ratio à partir duquel un joueur est signalé.
+     * @param minBlocks      Nombre de blocs suivis avant de comparer le ratio au seuil.
+     * @param windowSeconds  Durée de regroupement des franchissements d'un joueur, en secondes.
+     * @param burst          Nombre de messages pouvant partir d'un coup.
+     * @param perMinute      Nombre de messages par minute au-delà de la rafale.
+     */
+    public StaffAlerts(LunityCraft_TopLuck plugin, double scoreThreshold, double ratioThreshold, long minBlocks,
+                       long windowSeconds, int burst, double perMinute) {
+        this.plugin = plugin;
+        this.scoreThreshold = scoreThreshold;
+        this.ratioThreshold = ratioThreshold;
+        this.minBlocks = minBlocks;
+        this.windowMillis = windowSeconds * 1000L;
+        this.burst = burst;
+        this.tokens = burst;
+        this.tokensPerMilli = perMinute / 60_000.0;
+    }
+
+    /**
+     * Compare le score et le ratio d'un joueur reclassé aux seuils.
+     *
+     * @param stats Les statistiques du joueur.
+     * @param score Son score d'anomalie actuel.
+     * @param ratio Son ratio actuel.
+     */
+    public void evaluate(PlayerStats stats, double score, double ratio) {
+        // Reclassement reçu après la déconnexion du joueur : il ne doit pas le remettre au-dessus des seuils
+        boolean online = plugin.getStatsCache().get(stats.getUuid()) == stats;
+        boolean above = online && (score >= scoreThreshold
+                || (ratio >= ratioThreshold && stats.getTotalBlocks() >= minBlocks));
+        Suspect suspect = suspects.get(stats.getPlayerId());
+        if (suspect == null) {
+            if (!above) return;
+            suspect = new Suspect(stats.getPlayerName());
+            suspects.put(stats.getPlayerId(), suspect);
+        }
+        if (above && !suspect.above) {
+            suspect.pending++;
+        }
+        suspect.above = above;
+        suspect.score = score;
+        suspect.ratio = ratio;
+    }
+
+    /**
+     * Considère un joueur qui s'est déconnecté comme redescendu sous les seuils ; il est oublié une fois
+     * son éventuelle alerte en attente envoyée.
+     *
+     * @param playerId Identifiant du joueur.
+     */
+    public void forget(int playerId) {
+        Suspect suspect = suspects.get(playerId);
+        if (suspect != null) {
+            suspect.above = false;
+        }
+    }
+
+    /**
+     * Envoie les alertes dont la fenêtre est terminée, tant qu'il reste des jetons,
+     * puis oublie les joueurs redescendus sous les seuils. Planifiée chaque seconde.
+     */
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerMilli);
+        lastRefill = now;
+
+        Iterator<Suspect> iterator = suspects.values().iterator();
+        while (iterator.hasNext()) {
+            Suspect suspect = iterator.next();
+            if (suspect.pending > 0 && now >= suspect.windowEnd) {
+                if (tokens < 1) {
+                    throttledAlerts.incrementAndGet();
+                    continue;
+                }
+                tokens--;
+                send(suspect);
+                suspect.pending = 0;
+                suspect.windowEnd = now + windowMillis;
+            }
+            if (!suspect.above && suspect.pending == 0 && now >= suspect.windowEnd) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Envoie l'alerte d'un joueur au staff connecté et à la console.
+     */
+    private void send(Suspect suspect) {
+        String values = "score " + String.format("%.2f", suspect.score) + ", ratio " + String.format("%.3f", suspect.ratio);
+        String text = ChatColor.RED + "[TopLuck] " + ChatColor.GOLD + suspect.playerName + ChatColor.YELLOW
+                + " a franchi le seuil d'alerte (" + values + ")";
+        if (suspect.pending > 1) {
+            text += ChatColor.GRAY + " - " + suspect.pending + " fois en " + windowMillis / 1000 + " s";
+        }
+        TextComponent message = new TextComponent(TextComponent.fromLegacyText(text + ChatColor.AQUA + " [Voir]"));
+        message.setClickEvent(new ClickEvent(ClickEvent.Action.RUN_COMMAND, "/topluck " + suspect.playerName));
+        message.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+                new ComponentBuilder("Ouvrir Top Luck de " + suspect.playerName).create()));
+
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            if (player.hasPermission(PERMISSION)) {
+                player.spigot().sendMessage(message);
+            }
+        }
+        System.out.println("[TopLuck] Alert: " + suspect.playerName + " crossed the alert threshold (" + values + ").");
+        sentAlerts.incrementAndGet();
+    }
+
+    /**
+     * Retourne le nombre d'alertes envoyées depuis le démarrage.
+     *
+     * @return Le nombre d'alertes.
+     */
+    public long getSentAlerts() {
+        return sentAlerts.get();
+    }
+
+    /**
+     * Retourne le nombre de fois où une alerte a été retardée faute de jeton.
+     *
+     * @return Le nombre d'alertes retardées.
+     */
+    public long getThrottledAlerts() {
+        return throttledAlerts.get();
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache en mémoire des statistiques des joueurs connectés (écriture différée).
+ * Les statistiques sont chargées à la connexion, retirées à la déconnexion et
+ * les incréments sont transmis périodiquement au {@link DatabaseWriter}.
+ * <p>
+ * La lecture en base d'un joueur qui se connecte (identifiant puis statistiques, plusieurs allers-retours
+ * avec une base partagée) se fait sur le thread de lecture du {@link StatsService} ; les statistiques
+ * sont ensuite installées sur le thread du joueur. Ses casses reçues entre-temps sont mises en attente
+ * par le {@link CheatListener} et rejouées à l'installation.
+ * Les joueurs connectés à la fin du démarrage du plugin sont chargés de la même façon par
+ * {@link #install(Map)} ; jusque-là, les casses de tous les joueurs sont mises en attente.
+ * <p>
+ * Les tables sont concurrentes : sur un serveur à régions, les connexions, déconnexions et casses
+ * arrivent sur les threads des joueurs pendant que le vidage s'exécute sur le thread global.
+ */
+public class StatsCache implements Listener {
+
+    /** Référence à l'instance principale du plugin */
+    private final LunityCraft_TopLuck plugin;
+
+    /** Statistiques des joueurs connectés, indexées par UUID */
+    private final Map<UUID, PlayerStats> stats = new ConcurrentHashMap<>();
+
+    /** Chargements en cours des joueurs connectés, par UUID, avec un jeton propre à chaque chargement */
+    private final Map<UUID, Object> loading = new ConcurrentHashMap<>();
+
+    /** Indique si les joueurs connectés à la fin du démarrage ont tous un chargement en cours ou terminé */
+    private volatile boolean installed;
+
+    /** Deltas de joueurs déconnectés refusés par une file d'écriture pleine, indexés par identifiant */
+    private final Map<Integer, StatsDelta> rejected = new ConcurrentHashMap<>();
+
+    /** Nombre de minerais rares mémorisés par joueur pour le comptage des filons */
+    private final int veinCapacity;
+
+    /** Durée de mémorisation d'un minerai rare pour le comptage des filons, en millisecondes */
+    private final long veinExpiryMillis;
+
+    /**
+     * Constructeur du cache.
+     *
+     * @param plugin Instance du plugin LunityCraft_TopLuck
+     */
+    public StatsCache(LunityCraft_TopLuck plugin) {
+        this.plugin = plugin;
+        this.veinCapacity = Math.max(1, plugin.getConfig().getInt("veins.tracked-blocks", 256));
+        this.veinExpiryMillis = Math.max(1, plugin.getConfig().getLong("veins.expiry-seconds", 300)) * 1000L;
+    }
+
+    /**
+     * Retourne les statistiques en mémoire d'un joueur connecté.
+     *
+     * @param uuid UUID du joueur.
+     * @return Les statistiques, ou {@code null} si elles n'ont pas été chargées.
+     */
+    public PlayerStats get(UUID uuid) {
+        return stats.get(uuid);
+    }
+
+    /**
+     * Indique si les statistiques d'un joueur connecté sont en cours de lecture, ou si les joueurs
+     * connectés à la fin du démarrage n'ont pas encore tous été pris en charge.
+     *
+     * @param uuid UUID du joueur.
+     * @return {@code true} si ses casses doivent être mises en attente.
+     */
+    public boolean isLoading(UUID uuid) {
+        return !installed || loading.containsKey(uuid);
+    }
+
+    /**
+     * Lance la lecture des statistiques d'un joueur qui se connecte, si le stockage est prêt.
+     *
+     * @param event L'événement de connexion.
+     */
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        if (!plugin.isReady()) return;
+        // Un chargement resté d'une session précédente ne doit pas empêcher celui-ci
+        loading.remove(event.getPlayer().getUniqueId());
+        loadAsync(event.getPlayer());
+    }
+
+    /**
+     * Transmet les incréments d'un joueur qui se déconnecte puis le retire du cache.
+     *
+     * @param event L'événement de déconnexion.
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        loading.remove(uuid);
+        plugin.getCheatListener().discardHeld(uuid);
+        PlayerStats playerStats = stats.remove(uuid);
+        if (playerStats == null) return;
+
+        // Les alertes du staff s'exécutent sur le thread global
+        final StaffAlerts alerts = plugin.getStaffAlerts();
+        if (alerts != null) {
+            final int playerId = playerStats.getPlayerId();
+            plugin.getTaskScheduler().runGlobal(() -> alerts.forget(playerId));
+        }
+
+        // Les statistiques restent consultables sans lecture en base
+        plugin.getStatsService().remember(playerStats);
+        if (playerStats.isDirty()) {
+            StatsDelta delta = playerStats.takeDelta(plugin.getLuckScorer().score(playerStats));
+            if (!plugin.getDatabaseWriter().submit(delta)) {
+                reject(delta);
+            }
+        }
+    }
+
+    /**
+     * Prend en charge les joueurs connectés à la fin du démarrage, une fois le plugin prêt : ceux déjà
+     * connectés à l'activation ont été lus en arrière-plan et sont installés sur leur thread, ceux qui
+     * se sont connectés depuis sont lus sur le thread de lecture. Un joueur qui se connecte pendant
+     * cette méthode est chargé par {@link #onPlayerJoin(PlayerJoinEvent)}, sans être lu deux fois.
+     *
+     * @param preloaded Statistiques lues en arrière-plan, par UUID.
+     */
+    public void install(Map<UUID, PlayerStats> preloaded) {
+        for (final Player player : plugin.getServer().getOnlinePlayers()) {
+            final PlayerStats playerStats = preloaded.get(player.getUniqueId());
+            if (playerStats == null) {
+                loadAsync(player);
+                continue;
+            }
+            final Object token = begin(player);
+            if (token != null) {
+                plugin.getTaskScheduler().runForPlayer(player, () -> install(player, token, playerStats), 0);
+            }
+        }
+        installed = true;
+    }
+
+    /**
+     * Marque le chargement d'un joueur comme en cours.
+     *
+     * @return Le jeton du chargement, ou {@code null} si le joueur est déjà en cache, en cours de
+     *         chargement ou déconnecté.
+     */
+    private Object begin(Player player) {
+        UUID uuid = player.getUniqueId();
+        Object token = new Object();
+        if (stats.containsKey(uuid) || loading.putIfAbsent(uuid, token) != null) return null;
+        if (!player.isOnline()) {
+            loading.remove(uuid, token);
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * Lit les statistiques d'un joueur sur le thread de lecture, puis les installe sur le thread du joueur.
+     * Un joueur déjà en cache ou en cours de chargement n'est pas relu.
+     *
+     * @param player Le joueur à charger.
+     */
+    private void loadAsync(final Player player) {
+        final UUID uuid = player.getUniqueId();
+        final Object token = begin(player);
+        if (token == null) return;
+
+        final String playerName = player.getName();
+        plugin.getStatsService().execute(() -> {
+            PlayerStats loaded = null;
+            try {
+                loaded = read(uuid, playerName);
+            } catch (SQLException e) {
+                System.out.println("[TopLuck] Failed to load the statistics of " + playerName + ".");
+                e.printStackTrace();
+            }
+            final PlayerStats playerStats = loaded;
+            if (!plugin.isEnabled()) return;
+            plugin.getTaskScheduler().runForPlayer(player, () -> install(player, token, playerStats), 0);
+        });
+    }
+
+    /**
+     * Installe les statistiques lues pour un joueur, sur son thread, puis rejoue ses casses mises en attente.
+     * Sans effet si le joueur s'est déconnecté depuis le début de la lecture.
+     *
+     * @param playerStats Les statistiques, ou {@code null} si la lecture a échoué.
+     */
+    private void install(Player player, Object token, PlayerStats playerStats) {
+        UUID uuid = player.getUniqueId();
+        if (loading.get(uuid) != token) return;
+        if (playerStats != null) {
+            cache(player, playerStats);
+        }
+        loading.remove(uuid, token);
+        if (playerStats != null) {
+            plugin.getCheatListener().replayHeld(uuid);
+        } else {
+            plugin.getCheatListener().discardHeld(uuid);
+        }
+    }
+
+    /**
+     * Lit les statistiques d'un joueur, en lui attribuant un identifiant s'il n'en a pas encore.
+     *
+     * @return Les statistiques, vides pour un nouveau joueur, ou {@code null} si le stockage n'est pas ouvert.
+     */
+    private PlayerStats read(UUID uuid, String playerName) throws SQLException {
+        Storage storage = plugin.getStorage();
+        if (storage == null) {
+            System.out.println("[TopLuck] Failed to establish database connection.");
+            return null;
+        }
+
+        int playerId = storage.resolvePlayer(plugin.getPlayerIndex(), uuid, playerName);
+        boolean includeLegacy = plugin.isMigrationPending();
+        long start = System.nanoTime();
+        PlayerStats playerStats = storage.read(playerId, uuid, playerName, includeLegacy);
+        plugin.getMetrics().recordRead(System.nanoTime() - start, includeLegacy);
+        if (playerStats == null) {
+            playerStats = new PlayerStats(playerId, uuid, playerName, plugin.getOreRegistry().size());
+        }
+        return playerStats;
+    }
+
+    /**
+     * Place les statistiques d'un joueur connecté en cache et met à jour son classement.
+     */
+    private void cache(Player player, PlayerStats playerStats) {
+        playerStats.enableTracking(veinCapacity, veinExpiryMillis);
+        stats.put(player.getUniqueId(), playerStats);
+        plugin.getLeaderboard().update(playerStats.getPlayerId(), player.getName(),
+                plugin.getLuckScorer().score(playerStats), playerStats.getRatio());
+    }
+
+    /**
+     * Transmet au {@link DatabaseWriter} les incréments de toutes les statistiques modifiées.
+     * Un delta refusé (file pleine) reste en attente et sera retransmis au vidage suivant.
+     * Appelée périodiquement par le planificateur, sur le thread global.
+     */
+    public void flushDirty() {
+        DatabaseWriter writer = plugin.getDatabaseWriter();
+        LuckScorer scorer = plugin.getLuckScorer();
+
+        // Chaque delta est retiré avant d'être transmis : une déconnexion ne peut plus le modifier
+        for (Integer playerId : rejected.keySet()) {
+            StatsDelta delta = rejected.remove(playerId);
+            if (delta != null && !writer.submit(delta)) {
+                reject(delta);
+                return;
+            }
+        }
+
+        for (PlayerStats playerStats : stats.values()) {
+            if (!playerStats.isDirty()) continue;
+            StatsDelta delta = playerStats.takeDelta(scorer.score(playerStats));
+            if (!writer.submit(delta)) {
+                reject(delta);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retire toutes les écritures en attente du cache, pour la désactivation du plugin.
+     *
+     * @return Les deltas restant à écrire.
+     */
+    public List<StatsDelta> drainPending() {
+        List<StatsDelta> pending = new ArrayList<>();
+        for (Integer playerId : rejected.keySet()) {
+            StatsDelta delta = rejected.remove(playerId);
+            if (delta != null) pending.add(delta);
+        }
+        LuckScorer scorer = plugin.getLuckScorer();
+        for (PlayerStats playerStats : stats.values()) {
+            if (!playerStats.isDirty()) continue;
+            pending.add(playerStats.takeDelta(scorer.score(playerStats)));
+        }
+        return pending;
+    }
+
+    /**
+     * Conserve un delta refusé en le fusionnant avec un éventuel delta déjà en attente.
+     */
+    private void reject(StatsDelta delta) {
+        rejected.merge(delta.getPlayerId(), delta, (existing, added) -> {
+            existing.merge(added);
+            return existing;
+        });
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Incréments de compteurs d'un joueur en attente d'écriture en base.
+ * Plusieurs deltas d'un même joueur peuvent être fusionnés avant l'écriture : les blocs de chaque
+ * jour restent séparés pour la table "player_ore_daily", quel que soit le jour de l'écriture.
+ */
+public final class StatsDelta {
+
+    /** Identifiant du joueur (clé des tables "player_stats" et "player_ores") */
+    private final int playerId;
+
+    /** UUID et pseudo du joueur, enregistrés dans la table "players" */
+    private final UUID uuid;
+    private final String playerName;
+
+    private long totalBlocks;
+
+    /** Incréments du nombre de blocs, indexés par {@link OreCategory#getIndex()} */
+    private final long[] counts;
+
+    /** Incréments de la somme des poids, indexés par {@link OreCategory#getIndex()} */
+    private final double[] weighted;
+
+    /** Incréments du nombre de filons, indexés par {@link OreCategory#getIndex()} */
+    private final long[] veins;
+
+    /** Incréments de la répartition par couche et par luminosité */
+    private final OreProfile profile;
+
+    /** Blocs cassés par catégorie, par jour de la casse (UTC, depuis l'epoch) */
+    private final Map<Integer, long[]> daily;
+
+    /** Ratio du joueur au moment où le delta a été créé */
+    private double ratio;
+
+    /** Score d'anomalie du joueur au moment où le delta a été créé */
+    private double score;
+
+    /**
+     * Crée un delta de compteurs.
+     *
+     * @param playerId    Identifiant du joueur.
+     * @param uuid        UUID du joueur, éventuellement {@code null}.
+     * @param playerName  Pseudo du joueur.
+     * @param totalBlocks Blocs cassés depuis la dernière écriture.
+     * @param counts      Blocs cassés par catégorie depuis la dernière écriture.
+     * @param weighted    Poids cumulés par catégorie depuis la dernière écriture.
+     * @param veins       Filons trouvés par catégorie depuis la dernière écriture.
+     * @param profile     Répartition des blocs cassés depuis la dernière écriture.
+     * @param daily       Blocs cassés par catégorie depuis la dernière écriture, par jour de la casse.
+     * @param ratio       Ratio actuel du joueur.
+     * @param score       Score d'anomalie actuel du joueur.
+     */
+    public StatsDelta(int playerId, UUID uuid, String playerName, long totalBlocks, long[] counts, double[] weighted,
+                      long[] veins, OreProfile profile, Map<Integer, long[]> daily, double ratio, double score) {
+        this.playerId = playerId;
+        this.uuid = uuid;
+        this.playerName = playerName;
+        this.totalBlocks = totalBlocks;
+        this.counts = counts;
+        this.weighted = weighted;
+        this.veins = veins;
+        this.profile = profile;
+        this.daily = new TreeMap<>(daily);
+        this.ratio = ratio;
+        this.score = score;
+    }
+
+    /**
+     * Ajoute les incréments d'un delta plus récent du même joueur à celui-ci.
+     *
+     * @param other Le delta à fusionner.
+     */
+    public void merge(StatsDelta other) {
+        totalBlocks += other.totalBlocks;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+            weighted[i] += other.weighted[i];
+            veins[i] += other.veins[i];
+        }
+        profile.add(other.profile);
+        for (Map.Entry<Integer, long[]> entry : other.daily.entrySet()) {
+            long[] dayCounts = daily.get(entry.getKey());
+            if (dayCounts == null) {
+                daily.put(entry.getKey(), entry.getValue().clone());
+                continue;
+            }
+            for (int i = 0; i < dayCounts.length; i++) {
+                dayCounts[i] += entry.getValue()[i];
+            }
+        }
+        ratio = other.ratio;
+        score = other.score;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public long getTotalBlocks() {
+        return totalBlocks;
+    }
+
+    public long getCount(int index) {
+        return counts[index];
+    }
+
+    public double getWeighted(int index) {
+        return weighted[index];
+    }
+
+    public long getVeins(int index) {
+        return veins[index];
+    }
+
+    public OreProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Retourne les blocs cassés par catégorie, par jour de la casse.
+     *
+     * @return Les compteurs indexés par {@link OreCategory#getIndex()}, par jour (UTC, depuis l'epoch).
+     */
+    public Map<Integer, long[]> getDaily() {
+        return daily;
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.Player;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service de lecture des statistiques pour l'interface graphique.
+ * <p>
+ * Les statistiques des joueurs connectés et celles lues récemment sont servies immédiatement
+ * depuis la mémoire. Les autres sont lues en base sur un thread dédié, puis transmises
+ * au thread du joueur qui les consulte ; au-delà d'un délai, l'appelant est prévenu et le chargement
+ * est compté comme lent.
+ * <p>
+ * Avec une base partagée, les autres serveurs du réseau continuent d'ajouter leurs incréments aux
+ * statistiques d'un joueur déconnecté d'ici : celles gardées en mémoire expirent alors après une durée
+ * configurable et sont relues en base à la consultation suivante.
+ */
+public class StatsService {
+
+    /**
+     * Réception du résultat d'une lecture, toujours appelée sur le thread du joueur qui consulte
+     * les statistiques (le thread principal sur un serveur classique).
+     */
+    public interface Callback {
+
+        /**
+         * Appelée lorsque les statistiques sont disponibles.
+         *
+         * @param stats Les statistiques, ou {@code null} si le joueur n'a jamais été enregistré.
+         */
+        void onLoaded(PlayerStats stats);
+
+        /**
+         * Appelée si la lecture dépasse le délai configuré ; {@link #onLoaded(PlayerStats)} suivra à la fin de la lecture.
+         */
+        void onTimeout();
+    }
+
+    /** Référence à l'instance principale du plugin */
+    private final LunityCraft_TopLuck plugin;
+
+    /** Thread unique de lecture */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TopLuck-StatsLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Statistiques de joueurs déconnectés lues récemment par identifiant, de la moins récente à la plus récente ;
+     * synchronisées sur elles-mêmes
+     */
+    private final Map<Integer, Recent> recent;
+
+    /** Durée de conservation des statistiques d'un joueur déconnecté, en millisecondes, 0 pour ne jamais les relire */
+    private final long expiryMillis;
+
+    /** Délai avant de considérer une lecture comme lente, en ticks */
+    private final long timeoutTicks;
+
+    /** Nombre de lectures ayant dépassé le délai */
+    private final AtomicLong slowLoads = new AtomicLong();
+
+    /**
+     * Statistiques d'un joueur déconnecté gardées en mémoire, avec leur date d'expiration.
+     */
+    private static final class Recent {
+
+        private final PlayerStats stats;
+
+        /** Date à partir de laquelle les statistiques sont relues en base, en millisecondes */
+        private final long expiresAt;
+
+        private Recent(PlayerStats stats, long expiresAt) {
+            this.stats = stats;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Constructeur du service.
+     *
+     * @param plugin       Instance du plugin LunityCraft_TopLuck
+     * @param cacheSize    Nombre de joueurs déconnectés conservés en mémoire.
+     * @param expiryMillis Durée de conservation des statistiques d'un joueur déconnecté, en millisecondes,
+     *                     ou 0 si seul ce serveur les modifie.
+     * @param timeoutTicks Délai avant de considérer une lecture comme lente, en ticks.
+     */
+    public StatsService(LunityCraft_TopLuck plugin, final int cacheSize, long expiryMillis, long timeoutTicks) {
+        this.plugin = plugin;
+        this.expiryMillis = expiryMillis;
+        this.timeoutTicks = timeoutTicks;
+        this.recent = new LinkedHashMap<Integer, Recent>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Recent> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Retourne les statistiques d'un joueur si elles sont déjà en mémoire.
+     *
+     * @param playerName Nom du joueur.
+     * @return Les statistiques, ou {@code null} si elles doivent être lues en base.
+     */
+    public PlayerStats getCached(String playerName) {
+        PlayerStats stats = null;
+        Player online = plugin.getServer().getPlayerExact(playerName);
+        if (online != null) {
+            stats = plugin.getStatsCache().get(online.getUniqueId());
+        }
+        if (stats == null) {
+            int playerId = plugin.getPlayerIndex().getId(playerName);
+            if (playerId >= 0) {
+                synchronized (recent) {
+                    Recent entry = recent.get(playerId);
+                    if (entry != null && expiryMillis > 0 && System.currentTimeMillis() >= entry.expiresAt) {
+                        recent.remove(playerId);
+                    } else if (entry != null) {
+                        stats = entry.stats;
+                    }
+                }
+            }
+        }
+        plugin.getMetrics().recordStatsLookup(stats != null);
+        return stats;
+    }
+
+    /**
+     * Lit les statistiques d'un joueur en base sans bloquer le thread principal.
+     *
+     * @param viewer     Joueur qui consulte les statistiques, sur le thread duquel le résultat est transmis.
+     * @param playerName Nom du joueur.
+     * @param callback   Réception du résultat, appelée sur le thread de {@code viewer}.
+     */
+    public void fetch(final Player viewer, final String playerName, final Callback callback) {
+        // Pseudo inconnu de la table des identifiants : inutile d'interroger une base propre à ce serveur,
+        // alors qu'une base partagée peut contenir un joueur créé par un autre serveur du réseau
+        final Storage storage = plugin.getStorage();
+        final int knownId = plugin.getPlayerIndex().getId(playerName);
+        if (knownId < 0 && !storage.isShared()) {
+            callback.onLoaded(null);
+            return;
+        }
+        final boolean includeLegacy = plugin.isMigrationPending();
+        final AtomicBoolean done = new AtomicBoolean();
+
+        final TaskScheduler scheduler = plugin.getTaskScheduler();
+        scheduler.runForPlayer(viewer, () -> {
+            if (!done.get()) {
+                slowLoads.incrementAndGet();
+                callback.onTimeout();
+            }
+        }, timeoutTicks);
+
+        executor.execute(() -> {
+            PlayerStats loaded = null;
+            int playerId = knownId;
+            try {
+                if (playerId < 0) {
+                    playerId = storage.lookupPlayer(plugin.getPlayerIndex(), playerName);
+                }
+                if (playerId >= 0) {
+                    UUID uuid = plugin.getPlayerIndex().getUuid(playerId);
+                    long start = System.nanoTime();
+                    loaded = storage.read(playerId, uuid, playerName, includeLegacy);
+                    plugin.getMetrics().recordRead(System.nanoTime() - start, includeLegacy);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+
+            final PlayerStats stats = loaded;
+            final int loadedId = playerId;
+            if (!plugin.isEnabled()) return;
+            if (stats != null) {
+                put(loadedId, stats);
+            }
+            scheduler.runForPlayer(viewer, () -> {
+                done.set(true);
+                callback.onLoaded(stats);
+            }, 0);
+        });
+    }
+
+    /**
+     * Exécute une lecture en base sur le thread de lecture, hors des threads du serveur.
+     *
+     * @param task La lecture.
+     */
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Conserve les statistiques d'un joueur qui se déconnecte, plus récentes que celles en base
+     * tant que ses derniers incréments n'ont pas été écrits. Ses fenêtres glissantes et ses filons
+     * récents ne sont plus mis à jour : ils sont retirés plutôt que figés à l'heure de sa déconnexion.
+     * Appelée sur le thread du joueur.
+     *
+     * @param stats Les statistiques du joueur.
+     */
+    public void remember(PlayerStats stats) {
+        stats.disableTracking();
+        put(stats.getPlayerId(), stats);
+    }
+
+    private void put(int playerId, PlayerStats stats) {
+        long expiresAt = expiryMillis > 0 ? System.currentTimeMillis() + expiryMillis : Long.MAX_VALUE;
+        synchronized (recent) {
+            recent.put(playerId, new Recent(stats, expiresAt));
+        }
+    }
+
+    /**
+     * Retourne le nombre de lectures ayant dépassé le délai.
+     *
+     * @return Le nombre de lectures lentes.
+     */
+    public long getSlowLoads() {
+        return slowLoads.get();
+    }
+
+    /**
+     * Arrête le thread de lecture ; sa connexion est rendue au pool à la fin de chaque lecture.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
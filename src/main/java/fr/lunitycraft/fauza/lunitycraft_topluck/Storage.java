@@ -0,0 +1,164 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Stockage des statistiques, choisi par la clé "storage.type" de la configuration :
+ * une base SQLite propre au serveur ({@link SqliteStorage}) ou une base MySQL/MariaDB
+ * partagée par tous les serveurs du réseau ({@link MySqlStorage}).
+ * <p>
+ * Toutes les méthodes sont utilisables depuis n'importe quel thread. Les écritures sont des
+ * incréments additifs : plusieurs serveurs écrivant pour le même joueur ne s'écrasent jamais.
+ */
+public interface Storage {
+
+    /**
+     * Crée les tables si elles n'existent pas et met à jour celles d'une version précédente.
+     *
+     * @throws SQLException En cas d'erreur lors de la création.
+     */
+    void initialize() throws SQLException;
+
+    /**
+     * Indique si la base est partagée avec d'autres serveurs, qui peuvent y créer des joueurs
+     * absents de la table des identifiants de ce serveur.
+     *
+     * @return {@code true} pour une base partagée.
+     */
+    boolean isShared();
+
+    /**
+     * Indique si d'anciennes tables indexées par pseudo restaient à migrer au démarrage.
+     *
+     * @return {@code true} si la migration doit être lancée.
+     */
+    boolean hasLegacyTables();
+
+    /**
+     * Charge la table des joueurs dans la table des identifiants.
+     *
+     * @param playerIndex Table des identifiants.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    void loadPlayers(PlayerIndex playerIndex) throws SQLException;
+
+    /**
+     * Retourne l'identifiant d'un joueur qui se connecte, en le créant si nécessaire.
+     *
+     * @param playerIndex Table des identifiants.
+     * @param uuid        UUID du joueur.
+     * @param name        Pseudo actuel du joueur.
+     * @return L'identifiant du joueur.
+     * @throws SQLException En cas d'erreur lors de la création du joueur en base.
+     */
+    int resolvePlayer(PlayerIndex playerIndex, UUID uuid, String name) throws SQLException;
+
+    /**
+     * Cherche en base un joueur inconnu de la table des identifiants et l'y ajoute.
+     *
+     * @param playerIndex Table des identifiants.
+     * @param name        Pseudo du joueur.
+     * @return L'identifiant du joueur, ou -1 si aucun joueur ne porte ce pseudo.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    int lookupPlayer(PlayerIndex playerIndex, String name) throws SQLException;
+
+    /**
+     * Initialise les taux de référence du {@link LuckScorer} avec les totaux de tous les joueurs enregistrés.
+     *
+     * @param luckScorer Score d'anomalie à initialiser.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    void loadPopulation(LuckScorer luckScorer) throws SQLException;
+
+    /**
+     * Remplit le classement avec le score et le ratio de chaque joueur enregistré.
+     *
+     * @param leaderboard Classement à remplir.
+     * @param playerIndex Table des identifiants, déjà chargée.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    void loadLeaderboard(LuckLeaderboard leaderboard, PlayerIndex playerIndex) throws SQLException;
+
+    /**
+     * Lit les statistiques d'un joueur. Les catégories absentes de la configuration actuelle sont ignorées.
+     *
+     * @param playerId      Identifiant du joueur.
+     * @param uuid          UUID du joueur, éventuellement {@code null}.
+     * @param playerName    Pseudo du joueur.
+     * @param includeLegacy Indique si les anciennes tables existent encore.
+     * @return Les statistiques, ou {@code null} si le joueur n'a jamais été enregistré.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    PlayerStats read(int playerId, UUID uuid, String playerName, boolean includeLegacy) throws SQLException;
+
+    /**
+     * Ajoute des deltas, au plus un par joueur, dans une seule transaction : aux totaux des joueurs
+     * et aux totaux du jour dans la table "player_ore_daily".
+     *
+     * @param deltas Les deltas fusionnés par joueur.
+     * @return Le nombre de requêtes exécutées.
+     * @throws SQLException En cas d'erreur ; la transaction est alors annulée.
+     */
+    int write(Collection<StatsDelta> deltas) throws SQLException;
+
+    /**
+     * Retourne le dernier segment du journal déjà ajouté à l'historique.
+     *
+     * @param journalId Identifiant du journal de ce serveur.
+     * @return Le numéro du segment, ou 0 si aucun segment n'a encore été ajouté.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    long getCompactedSegment(String journalId) throws SQLException;
+
+    /**
+     * Ajoute les agrégats d'un segment du journal à l'historique et enregistre ce segment comme traité,
+     * dans une seule transaction : un segment n'est jamais compté deux fois.
+     *
+     * @param journalId Identifiant du journal de ce serveur.
+     * @param segment   Numéro du segment.
+     * @param entries   Agrégats du segment, au plus un par joueur, jour et catégorie.
+     * @return Le nombre de requêtes exécutées.
+     * @throws SQLException En cas d'erreur ; la transaction est alors annulée.
+     */
+    int writeHistory(String journalId, long segment, Collection<OreHistoryEntry> entries) throws SQLException;
+
+    /**
+     * Retourne le plus ancien jour des tables journalières "player_ore_daily" et "player_ore_history".
+     *
+     * @return Le jour, en jours depuis le 1er janvier 1970 (UTC), ou -1 si les deux tables sont vides.
+     * @throws SQLException En cas d'erreur lors de la lecture.
+     */
+    int getOldestDay() throws SQLException;
+
+    /**
+     * Ajoute les lignes journalières d'un jour aux totaux de sa semaine dans la table "player_ore_weekly",
+     * puis les supprime, dans une seule transaction.
+     *
+     * @param day  Le jour à regrouper.
+     * @param week Le lundi de sa semaine, en jours depuis le 1er janvier 1970.
+     * @return Le nombre de requêtes exécutées.
+     * @throws SQLException En cas d'erreur ; la transaction est alors annulée.
+     */
+    int rollupDay(int day, int week) throws SQLException;
+
+    /**
+     * Rend au système quelques pages libres du fichier de la base, sans la bloquer longtemps.
+     *
+     * @param pages Nombre maximal de pages libérées.
+     * @return Le nombre de pages libérées, 0 si la base gère elle-même son espace libre.
+     * @throws SQLException En cas d'erreur.
+     */
+    int vacuum(int pages) throws SQLException;
+
+    /**
+     * Ferme les connexions à la base.
+     */
+    void close();
+}
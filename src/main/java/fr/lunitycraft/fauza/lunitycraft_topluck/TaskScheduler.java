@@ -0,0 +1,61 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+import org.bukkit.entity.Player;
+
+/**
+ * Planification des tâches du plugin, indépendante du serveur.
+ * <p>
+ * Un serveur Bukkit classique exécute tout sur le thread principal ({@link BukkitTaskScheduler}) ;
+ * un serveur à régions (Folia) fait avancer chaque région sur son propre thread, où seuls le
+ * planificateur global et celui de chaque joueur peuvent être utilisés ({@link RegionTaskScheduler}).
+ * Les délais sont exprimés en ticks (50 ms).
+ */
+public interface TaskScheduler {
+
+    /**
+     * Exécute une tâche sur le thread global (le thread principal sur un serveur classique), au tick suivant.
+     *
+     * @param task La tâche.
+     */
+    void runGlobal(Runnable task);
+
+    /**
+     * Exécute une tâche sur le thread global après un délai.
+     *
+     * @param task       La tâche.
+     * @param delayTicks Délai avant l'exécution, en ticks.
+     */
+    void runGlobalLater(Runnable task, long delayTicks);
+
+    /**
+     * Exécute une tâche périodique sur le thread global.
+     *
+     * @param task        La tâche.
+     * @param delayTicks  Délai avant la première exécution, en ticks.
+     * @param periodTicks Intervalle entre deux exécutions, en ticks.
+     */
+    void runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Exécute une tâche périodique hors des threads du serveur.
+     *
+     * @param task        La tâche.
+     * @param delayTicks  Délai avant la première exécution, en ticks.
+     * @param periodTicks Intervalle entre deux exécutions, en ticks.
+     */
+    void runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * Exécute une tâche sur le thread qui possède un joueur, seul autorisé à modifier son inventaire
+     * et ses statistiques. La tâche n'est pas exécutée si le joueur se déconnecte avant.
+     *
+     * @param player     Le joueur.
+     * @param task       La tâche.
+     * @param delayTicks Délai avant l'exécution, en ticks ; 0 pour le tick suivant.
+     */
+    void runForPlayer(Player player, Runnable task, long delayTicks);
+}
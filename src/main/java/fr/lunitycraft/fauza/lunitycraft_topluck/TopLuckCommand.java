@@ -6,7 +6,6 @@ package fr.lunitycraft.fauza.lunitycraft_topluck;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -14,14 +13,18 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.inventory.meta.SkullMeta;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Classe représentant la commande /topluck.
- * Permet d'ouvrir une interface graphique affichant des informations sur un joueur sélectionné,
+ * Sans argument, ouvre le classement paginé des joueurs. Avec un nom de joueur, connecté ou non,
+ * permet d'ouvrir une interface graphique affichant des informations sur un joueur sélectionné,
  * ainsi que des actions comme le gel, la visualisation d'inventaire ou la téléportation.
+ * "/topluck metrics" affiche le dernier relevé des mesures de performance.
  */
 public class TopLuckCommand implements CommandExecutor {
 
@@ -38,6 +41,7 @@ public class TopLuckCommand implements CommandExecutor {
 
     /**
      * Méthode appelée lorsque la commande /topluck est exécutée.
+     * Sans argument, affiche le classement ; avec un nom de joueur, ouvre son interface.
      *
      * @param sender  l'expéditeur de la commande (joueur ou console)
      * @param command l'objet Command associé
@@ -47,6 +51,16 @@ public class TopLuckCommand implements CommandExecutor {
      */
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        // Mesures de performance, consultables aussi depuis la console
+        if (args.length == 1 && args[0].equalsIgnoreCase("metrics")) {
+            if (!sender.hasPermission("LunityCraft.topluck")) {
+                sender.sendMessage(ChatColor.RED + "Vous n'avez pas la permission d'utiliser cette commande.");
+                return true;
+            }
+            sendMetrics(sender);
+            return true;
+        }
+
         // Vérifie que l'expéditeur est un joueur
         if (!(sender instanceof Player)) {
             sender.sendMessage("Seuls les joueurs peuvent utiliser cette commande.");
@@ -61,90 +75,235 @@ public class TopLuckCommand implements CommandExecutor {
             return true;
         }
 
+        // Classement et statistiques indisponibles tant que le stockage n'est pas ouvert
+        if (!plugin.isReady()) {
+            player.sendMessage(ChatColor.RED + (plugin.getState() == PluginState.FAILED
+                    ? "La base de données est indisponible, les statistiques sont désactivées."
+                    : "Le plugin démarre, réessayez dans quelques secondes."));
+            return true;
+        }
+
         // Vérifie le nombre d'arguments
         if (args.length > 1) {
-            player.sendMessage(ChatColor.RED + "Usage : /topluck <playerName>");
+            player.sendMessage(ChatColor.RED + "Usage : /topluck [playerName|metrics]");
             return false;
         }
 
         if (args.length == 1) {
-            // Recherche du joueur cible
-            Player target = Bukkit.getPlayer(args[0]);
-            if (target == null) {
-                player.sendMessage(ChatColor.RED + "[TopLuck] Joueur introuvable.");
-                return true;
-            }
+            // Un joueur connecté est désigné par son nom exact ; sinon, le nom est cherché en base
+            Player online = Bukkit.getPlayer(args[0]);
+            String targetName = online != null ? online.getName() : args[0];
+            openPlayerMenu(player, targetName);
+            return true;
+        }
 
-            // Création de l'inventaire de l'interface graphique
-            Inventory gui = Bukkit.createInventory(null, 27, "Top Luck");
+        // Sans argument : ouvre la première page du classement
+        plugin.getLeaderboardMenu().open(player, 0);
+        return true;
+    }
 
-            // Remplit l'interface avec des panneaux de verre cyan en arrière-plan
-            ItemStack cyanGlassPane = new ItemStack(Material.STAINED_GLASS_PANE);
-            ItemMeta glassMeta = cyanGlassPane.getItemMeta();
-            if (glassMeta != null) glassMeta.setDisplayName(" ");
-            cyanGlassPane.setItemMeta(glassMeta);
-            for (int i = 0; i < gui.getSize(); i++) {
-                gui.setItem(i, cyanGlassPane);
+    /**
+     * Ouvre l'interface Top Luck d'un joueur, connecté ou non.
+     * Si ses statistiques sont en mémoire, l'interface s'ouvre directement avec elles ;
+     * sinon la tête affiche un texte d'attente, remplacé lorsque la lecture en base se termine.
+     * Un clic sur la tête ouvre le menu des options du joueur.
+     *
+     * @param viewer     le joueur qui consulte l'interface
+     * @param targetName le nom du joueur consulté
+     */
+    private void openPlayerMenu(final Player viewer, final String targetName) {
+        // Création du menu à partir du modèle (fond et boutons d'action)
+        final Menu menu = new Menu(plugin.getGuiTemplates().getTopLuck(), "Top Luck");
+        final Inventory gui = menu.getInventory();
+        bindStaffActions(menu, targetName);
+        final MenuListener menus = plugin.getMenuListener();
+
+        PlayerStats cached = plugin.getStatsService().getCached(targetName);
+        if (cached != null) {
+            // Statistiques en mémoire : la tête est complète dès l'ouverture
+            sendRank(viewer, targetName);
+            menu.setItem(GuiTemplates.HEAD_SLOT, createPlayerHead(targetName, statsLore(cached)),
+                    clicker -> openOptionsMenu(clicker, targetName));
+            menus.open(viewer, menu);
+            return;
+        }
+
+        // Tête provisoire pendant la lecture en base
+        menu.setItem(GuiTemplates.HEAD_SLOT, createPlayerHead(targetName,
+                Collections.singletonList(ChatColor.GRAY + "Chargement des statistiques...")),
+                clicker -> openOptionsMenu(clicker, targetName));
+        menus.open(viewer, menu);
+
+        plugin.getStatsService().fetch(viewer, targetName, new StatsService.Callback() {
+            @Override
+            public void onLoaded(PlayerStats stats) {
+                boolean stillOpen = viewer.isOnline() && menus.getSession(viewer) == menu;
+                if (stats == null) {
+                    if (stillOpen) viewer.closeInventory();
+                    viewer.sendMessage(ChatColor.RED + "[TopLuck] Joueur introuvable.");
+                    return;
+                }
+                sendRank(viewer, targetName);
+                if (stillOpen) {
+                    updateLore(gui, statsLore(stats));
+                }
             }
 
-            // Ajoute la tête du joueur avec des statistiques
-            ItemStack playerHead = createPlayerHead(target);
-            gui.setItem(11, playerHead);
+            @Override
+            public void onTimeout() {
+                if (viewer.isOnline() && menus.getSession(viewer) == menu) {
+                    updateLore(gui, Collections.singletonList(ChatColor.RED + "Chargement lent, veuillez patienter..."));
+                }
+            }
+        });
+    }
 
-            // Ajoute les boutons d'actions
-            gui.setItem(10, createActionButton(Material.DIAMOND_BLOCK, "Geler le joueur", "Gèle le joueur sélectionné."));
-            gui.setItem(12, createActionButton(Material.GOLD_BLOCK, "Voir l'inventaire", "Ouvre l'inventaire du joueur."));
-            gui.setItem(14, createActionButton(Material.EYE_OF_ENDER, "Se téléporter", "Vous téléporte au joueur sélectionné."));
+    /**
+     * Ouvre le menu des options d'un joueur sélectionné.
+     *
+     * @param viewer     le membre du staff
+     * @param targetName le nom du joueur sélectionné
+     */
+    private void openOptionsMenu(Player viewer, String targetName) {
+        Menu menu = new Menu(plugin.getGuiTemplates().getPlayerOptions(), "Options for " + targetName);
+        bindStaffActions(menu, targetName);
+        plugin.getMenuListener().open(viewer, menu);
+    }
 
-            // Ouvre l'inventaire pour le joueur
-            player.openInventory(gui);
-            return true;
+    /**
+     * Associe aux boutons d'action du modèle les commandes de modération visant le joueur.
+     *
+     * @param menu       le menu construit depuis un modèle de {@link GuiTemplates}
+     * @param targetName le nom du joueur visé
+     */
+    private void bindStaffActions(Menu menu, final String targetName) {
+        menu.setAction(GuiTemplates.FREEZE_SLOT, clicker -> clicker.getServer().dispatchCommand(clicker, "freeze " + targetName));
+        menu.setAction(GuiTemplates.INVENTORY_SLOT, clicker -> clicker.getServer().dispatchCommand(clicker, "invsee " + targetName));
+        menu.setAction(GuiTemplates.TELEPORT_SLOT, clicker -> clicker.getServer().dispatchCommand(clicker, "tp " + targetName));
+    }
+
+    /**
+     * Affiche le dernier relevé des mesures de performance.
+     *
+     * @param sender le membre du staff ou la console
+     */
+    private void sendMetrics(CommandSender sender) {
+        MetricsReporter reporter = plugin.getMetricsReporter();
+        MetricsReport report = reporter == null ? null : reporter.getLastReport();
+        if (report == null) {
+            sender.sendMessage(ChatColor.GRAY + "[TopLuck] Aucun relevé pour le moment, le premier intervalle n'est pas écoulé.");
+            return;
         }
+        long age = (System.currentTimeMillis() - report.getTimestamp()) / 1000;
+        sender.sendMessage(ChatColor.GOLD + "[TopLuck] Mesures sur " + report.getIntervalMillis() / 1000
+                + " s (relevé il y a " + age + " s) :");
+        for (String line : report.getLines()) {
+            sender.sendMessage(ChatColor.GRAY + " - " + ChatColor.WHITE + line);
+        }
+    }
 
-        return false;
+    /**
+     * Affiche le rang d'un joueur dans le classement.
+     *
+     * @param viewer     le joueur qui reçoit le message
+     * @param targetName le nom du joueur classé
+     */
+    private void sendRank(Player viewer, String targetName) {
+        int rank = plugin.getLeaderboard().rank(plugin.getPlayerIndex().getId(targetName));
+        if (rank > 0) {
+            viewer.sendMessage(ChatColor.GRAY + "[TopLuck] " + targetName + " est classé #" + rank
+                    + " sur " + plugin.getLeaderboard().size() + ".");
+        }
     }
 
     /**
-     * Crée une tête de joueur avec des informations spécifiques.
+     * Remplace la description de la tête déjà présente dans l'interface.
      *
-     * @param target le joueur pour lequel la tête est créée
-     * @return un ItemStack représentant la tête du joueur
+     * @param gui  l'interface ouverte
+     * @param lore la nouvelle description
      */
-    private ItemStack createPlayerHead(Player target) {
-        ItemStack playerHead = new ItemStack(Material.SKULL_ITEM, 1, (short) 3); // Pour les versions <1.13
-        SkullMeta headMeta = (SkullMeta) playerHead.getItemMeta();
+    private void updateLore(Inventory gui, List<String> lore) {
+        ItemStack head = gui.getItem(GuiTemplates.HEAD_SLOT);
+        if (head == null) return;
+        ItemMeta meta = head.getItemMeta();
+        if (meta != null) {
+            meta.setLore(lore);
+        }
+        head.setItemMeta(meta);
+        gui.setItem(GuiTemplates.HEAD_SLOT, head);
+    }
 
-        if (headMeta != null) {
-            headMeta.setDisplayName(ChatColor.GREEN + "Joueur : " + target.getName());
-            headMeta.setOwner(target.getName());
-            headMeta.setLore(Arrays.asList(
-                    ChatColor.LIGHT_PURPLE + "Ratio : " + "0", // Exemple de statistiques
-                    ChatColor.AQUA + "Total miné : " + "0",
-                    ChatColor.DARK_AQUA + "Blocs de diamant : " + "0",
-                    ChatColor.GOLD + "Blocs d'or : " + "0",
-                    ChatColor.GREEN + "Blocs d'émeraude : " + "0"
-            ));
+    /**
+     * Construit la description de la tête à partir des statistiques du joueur.
+     *
+     * @param stats les statistiques du joueur
+     * @return les lignes de description
+     */
+    private List<String> statsLore(PlayerStats stats) {
+        OreRegistry oreRegistry = plugin.getOreRegistry();
+        OreCategory diamond = oreRegistry.getCategory("diamond");
+        OreCategory gold = oreRegistry.getCategory("gold");
+        OreCategory emerald = oreRegistry.getCategory("emerald");
+        List<String> lore = new ArrayList<>(Arrays.asList(
+                ChatColor.RED + "Score : " + String.format("%.2f", plugin.getLuckScorer().score(stats)),
+                ChatColor.LIGHT_PURPLE + "Ratio : " + String.format("%.3f", stats.getRatio()),
+                ChatColor.AQUA + "Total miné : " + stats.getTotalBlocks(),
+                ChatColor.DARK_AQUA + "Blocs de diamant : " + stats.getCount(diamond) + " (" + stats.getVeins(diamond) + " filons)",
+                ChatColor.GOLD + "Blocs d'or : " + stats.getCount(gold) + " (" + stats.getVeins(gold) + " filons)",
+                ChatColor.GREEN + "Blocs d'émeraude : " + stats.getCount(emerald) + " (" + stats.getVeins(emerald) + " filons)"
+        ));
+
+        // Activité récente, disponible pour les joueurs connectés
+        MiningWindow window = stats.getWindow();
+        if (window != null) {
+            long now = System.currentTimeMillis();
+            lore.add(" ");
+            lore.add(ChatColor.YELLOW + "Ratio (1h) : " + String.format("%.3f", window.ratioLastMinutes(60, now))
+                    + ChatColor.GRAY + " | " + ChatColor.YELLOW + "(24h) : " + String.format("%.3f", window.ratioLastHours(24, now)));
+            lore.add(ChatColor.DARK_AQUA + "Diamants (10 min / 1h / 24h) : " + window.countLastMinutes(diamond, 10, now)
+                    + " / " + window.countLastMinutes(diamond, 60, now) + " / " + window.countLastHours(diamond, 24, now));
         }
-        playerHead.setItemMeta(headMeta);
-        return playerHead;
+
+        // Couche principale et part dans l'obscurité de chaque minerai rare, avec les blocs communs minés à cette couche
+        OreProfile profile = stats.getProfile();
+        List<String> profileLore = new ArrayList<>();
+        for (OreCategory category : oreRegistry.getCategories()) {
+            int peak = category.isRare() ? profile.getPeakBand(category.getIndex()) : -1;
+            if (peak < 0) continue;
+
+            long common = 0;
+            for (OreCategory other : oreRegistry.getCategories()) {
+                if (!other.isRare()) common += profile.getBand(other.getIndex(), peak);
+            }
+            double darkShare = profile.getDarkShare(category.getIndex());
+            profileLore.add(ChatColor.GRAY + category.getName() + " : Y " + peak * OreProfile.BAND_HEIGHT + "-"
+                    + ((peak + 1) * OreProfile.BAND_HEIGHT - 1) + " ("
+                    + Math.round(100.0 * profile.getBand(category.getIndex(), peak) / profile.getTotal(category.getIndex()))
+                    + " %)" + (darkShare < 0 ? "" : ", obscurité " + Math.round(100 * darkShare) + " %")
+                    + ", " + common + " blocs communs");
+        }
+        if (!profileLore.isEmpty()) {
+            lore.add(" ");
+            lore.add(ChatColor.WHITE + "Couche principale :");
+            lore.addAll(profileLore);
+        }
+        return lore;
     }
 
     /**
-     * Crée un bouton d'action avec un nom et une description.
+     * Crée une tête de joueur avec des informations spécifiques, à partir du cache des têtes.
      *
-     * @param material le matériau de l'élément
-     * @param name     le nom du bouton
-     * @param loreText la description du bouton
-     * @return un ItemStack représentant le bouton
+     * @param targetName le nom du joueur pour lequel la tête est créée
+     * @param lore       la description de la tête
+     * @return un ItemStack représentant la tête du joueur
      */
-    private ItemStack createActionButton(Material material, String name, String loreText) {
-        ItemStack item = new ItemStack(material);
-        ItemMeta meta = item.getItemMeta();
-        if (meta != null) {
-            meta.setDisplayName(name);
-            meta.setLore(Arrays.asList(" ", loreText));
+    private ItemStack createPlayerHead(String targetName, List<String> lore) {
+        ItemStack playerHead = plugin.getSkullCache().get(targetName);
+        ItemMeta headMeta = playerHead.getItemMeta();
+        if (headMeta != null) {
+            headMeta.setLore(lore);
         }
-        item.setItemMeta(meta);
-        return item;
+        playerHead.setItemMeta(headMeta);
+        return playerHead;
     }
 }
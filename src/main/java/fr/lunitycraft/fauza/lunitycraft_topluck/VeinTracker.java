@@ -0,0 +1,131 @@
+/**
+ * @author FauZaPespi
+ * @version 1.0
+ */
+package fr.lunitycraft.fauza.lunitycraft_topluck;
+
+/**
+ * Index spatial des minerais rares récemment cassés par un joueur connecté, pour compter les filons.
+ * <p>
+ * Un minerai est rattaché au filon d'un minerai de la même catégorie cassé récemment dans l'un des
+ * 26 blocs voisins ; sinon il ouvre un nouveau filon. Ainsi, un filon de 8 diamants compte pour
+ * un seul filon, alors qu'un joueur qui passe d'un filon isolé à l'autre en accumule beaucoup.
+ * <p>
+ * Table de hachage à adressage ouvert de capacité fixe : les positions sont empaquetées dans un
+ * {@code long} et sondées linéairement sur au plus {@link #MAX_PROBES} cases. Une entrée plus ancienne
+ * que le délai d'expiration est ignorée et sa case réutilisée ; si toutes les cases sondées sont
+ * récentes, la plus ancienne est remplacée. L'insertion et la recherche n'allouent aucun objet.
+ */
+public final class VeinTracker {
+
+    /** Nombre maximal de cases sondées pour une position */
+    private static final int MAX_PROBES = 16;
+
+    /** Positions empaquetées par {@link #pack(int, int, int)} */
+    private final long[] positions;
+
+    /** Heure de casse de chaque case, en millisecondes ; 0 pour une case jamais utilisée */
+    private final long[] times;
+
+    /** Catégorie du minerai de chaque case ({@link OreCategory#getIndex()}) */
+    private final byte[] categories;
+
+    private final int mask;
+
+    /** Durée pendant laquelle un minerai cassé peut rattacher ses voisins à son filon */
+    private final long expiryMillis;
+
+    /**
+     * Crée l'index d'un joueur.
+     *
+     * @param capacity     Nombre de minerais mémorisés, arrondi à la puissance de 2 supérieure.
+     * @param expiryMillis Durée de mémorisation d'un minerai, en millisecondes.
+     */
+    public VeinTracker(int capacity, long expiryMillis) {
+        int size = MAX_PROBES;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.positions = new long[size];
+        this.times = new long[size];
+        this.categories = new byte[size];
+        this.mask = size - 1;
+        this.expiryMillis = expiryMillis;
+    }
+
+    /**
+     * Enregistre un minerai cassé et indique s'il ouvre un nouveau filon.
+     *
+     * @param category Catégorie du minerai.
+     * @param x        Coordonnée X du bloc.
+     * @param y        Coordonnée Y du bloc.
+     * @param z        Coordonnée Z du bloc.
+     * @param now      Heure de l'événement, en millisecondes.
+     * @return {@code true} si aucun minerai voisin de la même catégorie n'a été cassé récemment.
+     */
+    public boolean record(OreCategory category, int x, int y, int z, long now) {
+        int index = category.getIndex();
+        boolean newVein = true;
+        search:
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (contains(pack(x + dx, y + dy, z + dz), index, now)) {
+                        newVein = false;
+                        break search;
+                    }
+                }
+            }
+        }
+        insert(pack(x, y, z), index, now);
+        return newVein;
+    }
+
+    /**
+     * Empaquette une position de bloc : 26 bits pour X et Z (±33 millions de blocs), 12 bits pour Y.
+     */
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private boolean contains(long position, int category, long now) {
+        int slot = slot(position);
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int current = (slot + i) & mask;
+            long time = times[current];
+            if (time == 0) return false;
+            if (positions[current] == position && categories[current] == category && now - time <= expiryMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insert(long position, int category, long now) {
+        int slot = slot(position);
+        int target = -1;
+        int oldest = slot;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int current = (slot + i) & mask;
+            long time = times[current];
+            if (time == 0 || positions[current] == position || now - time > expiryMillis) {
+                target = current;
+                break;
+            }
+            if (time < times[oldest]) {
+                oldest = current;
+            }
+        }
+        if (target < 0) {
+            target = oldest;
+        }
+        positions[target] = position;
+        times[target] = now;
+        categories[target] = (byte) category;
+    }
+
+    private int slot(long position) {
+        long hash = position * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}